@@ -0,0 +1,31 @@
+plugins {
+    id("java-library")
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+dependencies {
+    testImplementation("junit:junit:${property("JUNIT")}")
+    testImplementation("com.google.testing.compile:compile-testing:${property("COMPILE_TESTING")}")
+    testImplementation("androidx.annotation:annotation:${property("ANDROIDX_ANNOTATION")}")
+    testImplementation("androidx.lifecycle:lifecycle-common:${property("ANDROIDX_LIFECYCLE")}")
+}
+
+/**
+ * publish config, The following properties are generally configured in the ~/.gradle/gradle.properties file
+ */
+if (hasProperty("signing.keyId")
+    && hasProperty("signing.password")
+    && hasProperty("signing.secretKeyRingFile")
+    && hasProperty("mavenCentralUsername")
+    && hasProperty("mavenCentralPassword")
+) {
+    apply { plugin("com.vanniktech.maven.publish") }
+
+    configure<com.vanniktech.maven.publish.MavenPublishPluginExtension> {
+        sonatypeHost = com.vanniktech.maven.publish.SonatypeHost.S01
+    }
+}
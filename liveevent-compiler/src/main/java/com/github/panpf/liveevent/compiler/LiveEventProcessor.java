@@ -0,0 +1,382 @@
+package com.github.panpf.liveevent.compiler;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+
+/**
+ * Generates a {@code SubscriberBinder} for every class declaring {@code @OnEvent} methods and a
+ * {@code SubscriberIndex} of all of them, named by the {@code liveEventIndex} option.
+ */
+public class LiveEventProcessor extends AbstractProcessor {
+    static final String ON_EVENT = "com.github.panpf.liveevent.OnEvent";
+    static final String OPTION_INDEX = "liveEventIndex";
+
+    private static final String BINDER_SUFFIX = "_LiveEventBinder";
+    private static final String LIVE_EVENT_PACKAGE = "com.github.panpf.liveevent";
+
+    private Filer mFiler;
+    private Messager mMessager;
+    private Elements mElements;
+    private Types mTypes;
+    // binary name of the subscriber class -> qualified name of its binder
+    private final Map<String, String> mBinders = new LinkedHashMap<>();
+    private boolean mIndexWritten;
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        mFiler = processingEnv.getFiler();
+        mMessager = processingEnv.getMessager();
+        mElements = processingEnv.getElementUtils();
+        mTypes = processingEnv.getTypeUtils();
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton(ON_EVENT);
+    }
+
+    @Override
+    public Set<String> getSupportedOptions() {
+        return Collections.singleton(OPTION_INDEX);
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        TypeElement onEvent = mElements.getTypeElement(ON_EVENT);
+        if (roundEnv.processingOver() || onEvent == null) {
+            return false;
+        }
+        Set<? extends Element> elements = roundEnv.getElementsAnnotatedWith(onEvent);
+        if (elements.isEmpty()) {
+            // the binders of the previous rounds are compiled in this round, a file created in
+            // the last round would not be compiled with them and javac warns about it
+            if (!mIndexWritten && !mBinders.isEmpty()) {
+                writeIndex();
+                mIndexWritten = true;
+            }
+            return false;
+        }
+        if (mIndexWritten) {
+            for (Element element : elements) {
+                error(element, "@OnEvent methods generated after the SubscriberIndex was written"
+                        + " are not indexed");
+            }
+            return true;
+        }
+        Map<TypeElement, List<ExecutableElement>> methodsByClass = new LinkedHashMap<>();
+        for (Element element : elements) {
+            if (element.getKind() != ElementKind.METHOD) {
+                continue;
+            }
+            ExecutableElement method = (ExecutableElement) element;
+            if (!checkMethod(method)) {
+                continue;
+            }
+            TypeElement subscriber = (TypeElement) method.getEnclosingElement();
+            List<ExecutableElement> methods = methodsByClass.get(subscriber);
+            if (methods == null) {
+                methods = new ArrayList<>();
+                methodsByClass.put(subscriber, methods);
+            }
+            methods.add(method);
+        }
+        for (Map.Entry<TypeElement, List<ExecutableElement>> entry : methodsByClass.entrySet()) {
+            writeBinder(entry.getKey(), entry.getValue());
+        }
+        return true;
+    }
+
+    private boolean checkMethod(ExecutableElement method) {
+        Set<Modifier> modifiers = method.getModifiers();
+        if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.STATIC)) {
+            error(method, "@OnEvent methods must not be private or static");
+            return false;
+        }
+        if (method.getParameters().size() != 1) {
+            error(method, "@OnEvent methods must have exactly one parameter");
+            return false;
+        }
+        if (method.getParameters().get(0).asType().getKind().isPrimitive()) {
+            // a null event could not be unboxed
+            error(method, "The parameter of @OnEvent methods must not be primitive, use the boxed"
+                    + " type or a nullable Kotlin type");
+            return false;
+        }
+        for (Element element = method.getEnclosingElement();
+             element instanceof TypeElement; element = element.getEnclosingElement()) {
+            TypeElement type = (TypeElement) element;
+            if (type.getModifiers().contains(Modifier.PRIVATE)) {
+                error(method, "The class of @OnEvent methods must not be private");
+                return false;
+            }
+            if (type.getNestingKind() == NestingKind.LOCAL
+                    || type.getNestingKind() == NestingKind.ANONYMOUS) {
+                error(method, "@OnEvent methods must not be declared in local classes");
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void writeBinder(TypeElement subscriber, List<ExecutableElement> methods) {
+        String packageName = getPackage(subscriber).getQualifiedName().toString();
+        String binaryName = mElements.getBinaryName(subscriber).toString();
+        String binderName = (packageName.isEmpty() ? binaryName
+                : binaryName.substring(packageName.length() + 1)).replace('$', '_')
+                + BINDER_SUFFIX;
+        String subscriberType = mTypes.erasure(subscriber.asType()).toString();
+
+        StringBuilder builder = new StringBuilder();
+        builder.append("// Generated by liveevent-compiler, do not edit.\n");
+        if (!packageName.isEmpty()) {
+            builder.append("package ").append(packageName).append(";\n\n");
+        }
+        builder.append("import androidx.annotation.NonNull;\n")
+                .append("import androidx.lifecycle.LifecycleOwner;\n")
+                .append("import ").append(LIVE_EVENT_PACKAGE).append(".EventSubscription;\n")
+                .append("import ").append(LIVE_EVENT_PACKAGE).append(".Listener;\n")
+                .append("import ").append(LIVE_EVENT_PACKAGE).append(".SubscriberBinder;\n\n")
+                .append("@SuppressWarnings({\"rawtypes\", \"unchecked\"})\n")
+                .append("public final class ").append(binderName)
+                .append(" implements SubscriberBinder<").append(subscriberType).append("> {\n")
+                .append("    @Override\n")
+                .append("    public void bind(@NonNull final ").append(subscriberType)
+                .append(" subscriber, @NonNull LifecycleOwner owner,\n")
+                .append("            @NonNull EventSubscription subscription) {\n");
+        for (ExecutableElement method : methods) {
+            AnnotationMirror annotation = getOnEvent(method);
+            TypeElement holder = getHolder(annotation);
+            String event = (String) getValue(annotation, "event");
+            Boolean sticky = (Boolean) getValue(annotation, "sticky");
+            Boolean forever = (Boolean) getValue(annotation, "forever");
+            String eventExpression = holder != null && event != null
+                    ? getEventExpression(holder, event) : null;
+            if (eventExpression == null) {
+                error(method, "Cannot find event '" + event + "' in " + holder);
+                continue;
+            }
+            String listenMethod = (forever != null && forever ? "listenForever" : "listen")
+                    + (sticky != null && sticky ? "Sticky" : "");
+            String parameterType = getParameterType(method);
+            builder.append("        subscription.").append(listenMethod).append("(")
+                    .append(eventExpression)
+                    .append(forever != null && forever ? ", " : ", owner, ")
+                    .append("new Listener<").append(parameterType).append(">() {\n")
+                    .append("            @Override\n")
+                    .append("            public void onChanged(").append(parameterType)
+                    .append(" t) {\n")
+                    .append("                subscriber.").append(method.getSimpleName())
+                    .append("(t);\n")
+                    .append("            }\n")
+                    .append("        });\n");
+        }
+        builder.append("    }\n")
+                .append("}\n");
+
+        String qualifiedBinderName = packageName.isEmpty() ? binderName
+                : packageName + "." + binderName;
+        write(qualifiedBinderName, builder.toString(), subscriber);
+        mBinders.put(binaryName, qualifiedBinderName);
+    }
+
+    private void writeIndex() {
+        if (mBinders.isEmpty()) {
+            return;
+        }
+        String indexName = processingEnv.getOptions().get(OPTION_INDEX);
+        if (indexName == null || indexName.isEmpty()) {
+            mMessager.printMessage(Diagnostic.Kind.WARNING, "No '" + OPTION_INDEX
+                    + "' option given, no SubscriberIndex is generated for the @OnEvent methods");
+            return;
+        }
+        int lastDot = indexName.lastIndexOf('.');
+        String packageName = lastDot > 0 ? indexName.substring(0, lastDot) : "";
+        String simpleName = indexName.substring(lastDot + 1);
+
+        StringBuilder builder = new StringBuilder();
+        builder.append("// Generated by liveevent-compiler, do not edit.\n");
+        if (!packageName.isEmpty()) {
+            builder.append("package ").append(packageName).append(";\n\n");
+        }
+        builder.append("import androidx.annotation.NonNull;\n")
+                .append("import androidx.annotation.Nullable;\n")
+                .append("import ").append(LIVE_EVENT_PACKAGE).append(".SubscriberBinder;\n")
+                .append("import ").append(LIVE_EVENT_PACKAGE).append(".SubscriberIndex;\n\n")
+                .append("import java.util.HashMap;\n")
+                .append("import java.util.Map;\n\n")
+                .append("public final class ").append(simpleName)
+                .append(" implements SubscriberIndex {\n")
+                .append("    private final Map<String, SubscriberBinder<?>> mBinders")
+                .append(" = new HashMap<>();\n\n")
+                .append("    public ").append(simpleName).append("() {\n");
+        for (Map.Entry<String, String> entry : mBinders.entrySet()) {
+            builder.append("        mBinders.put(\"").append(entry.getKey()).append("\", new ")
+                    .append(entry.getValue()).append("());\n");
+        }
+        builder.append("    }\n\n")
+                .append("    @Nullable\n")
+                .append("    @Override\n")
+                .append("    public SubscriberBinder<?> getBinder(@NonNull Class<?> subscriberClass)")
+                .append(" {\n")
+                .append("        return mBinders.get(subscriberClass.getName());\n")
+                .append("    }\n")
+                .append("}\n");
+        write(indexName, builder.toString());
+    }
+
+    /**
+     * Returns the Java expression that reads the event from the holder, null if there is none.
+     */
+    private String getEventExpression(TypeElement holder, String event) {
+        String holderName = holder.getQualifiedName().toString();
+        List<VariableElement> fields = ElementFilter.fieldsIn(holder.getEnclosedElements());
+        List<ExecutableElement> methods = ElementFilter.methodsIn(holder.getEnclosedElements());
+        String getter = "get" + Character.toUpperCase(event.charAt(0)) + event.substring(1);
+
+        VariableElement field = findField(fields, event);
+        if (field != null && isAccessibleStatic(field)) {
+            return holderName + "." + event;
+        }
+        // Kotlin object
+        VariableElement instance = findField(fields, "INSTANCE");
+        if (instance != null && isAccessibleStatic(instance)) {
+            for (String name : new String[]{getter, event}) {
+                ExecutableElement method = findMethod(methods, name);
+                if (method != null && !method.getModifiers().contains(Modifier.STATIC)
+                        && !method.getModifiers().contains(Modifier.PRIVATE)) {
+                    return holderName + ".INSTANCE." + name + "()";
+                }
+            }
+        }
+        for (String name : new String[]{event, getter}) {
+            ExecutableElement method = findMethod(methods, name);
+            if (method != null && isAccessibleStatic(method)) {
+                return holderName + "." + name + "()";
+            }
+        }
+        return null;
+    }
+
+    private static boolean isAccessibleStatic(Element element) {
+        return element.getModifiers().contains(Modifier.STATIC)
+                && !element.getModifiers().contains(Modifier.PRIVATE);
+    }
+
+    private static VariableElement findField(List<VariableElement> fields, String name) {
+        for (VariableElement field : fields) {
+            if (field.getSimpleName().contentEquals(name)) {
+                return field;
+            }
+        }
+        return null;
+    }
+
+    private static ExecutableElement findMethod(List<ExecutableElement> methods, String name) {
+        for (ExecutableElement method : methods) {
+            if (method.getSimpleName().contentEquals(name) && method.getParameters().isEmpty()) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    private String getParameterType(ExecutableElement method) {
+        TypeMirror type = method.getParameters().get(0).asType();
+        if (type.getKind() == TypeKind.TYPEVAR) {
+            return mTypes.erasure(type).toString();
+        }
+        return type.toString();
+    }
+
+    private static AnnotationMirror getOnEvent(ExecutableElement method) {
+        for (AnnotationMirror mirror : method.getAnnotationMirrors()) {
+            TypeElement type = (TypeElement) mirror.getAnnotationType().asElement();
+            if (type.getQualifiedName().contentEquals(ON_EVENT)) {
+                return mirror;
+            }
+        }
+        throw new IllegalStateException("No @OnEvent on " + method);
+    }
+
+    private Object getValue(AnnotationMirror annotation, String name) {
+        Map<? extends ExecutableElement, ? extends AnnotationValue> values =
+                mElements.getElementValuesWithDefaults(annotation);
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                : values.entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(name)) {
+                return entry.getValue().getValue();
+            }
+        }
+        return null;
+    }
+
+    private TypeElement getHolder(AnnotationMirror annotation) {
+        Object value = getValue(annotation, "holder");
+        if (value instanceof DeclaredType) {
+            return (TypeElement) ((DeclaredType) value).asElement();
+        }
+        return null;
+    }
+
+    private static PackageElement getPackage(Element element) {
+        while (!(element instanceof PackageElement)) {
+            element = element.getEnclosingElement();
+        }
+        return (PackageElement) element;
+    }
+
+    private void write(String qualifiedName, String source, Element... originatingElements) {
+        try {
+            Writer writer = mFiler.createSourceFile(qualifiedName, originatingElements)
+                    .openWriter();
+            try {
+                writer.write(source);
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            mMessager.printMessage(Diagnostic.Kind.ERROR,
+                    "Unable to write " + qualifiedName + ": " + e.getMessage());
+        }
+    }
+
+    private void error(Element element, String message) {
+        mMessager.printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
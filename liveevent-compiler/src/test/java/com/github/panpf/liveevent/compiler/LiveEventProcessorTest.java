@@ -0,0 +1,235 @@
+package com.github.panpf.liveevent.compiler;
+
+import com.google.testing.compile.Compilation;
+import com.google.testing.compile.JavaFileObjects;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+import static com.google.testing.compile.CompilationSubject.assertThat;
+import static com.google.testing.compile.Compiler.javac;
+
+public class LiveEventProcessorTest {
+
+    // the parts of the liveevent runtime the generated code uses, the runtime is an Android library
+    private static final JavaFileObject[] RUNTIME = {
+            JavaFileObjects.forSourceLines("com.github.panpf.liveevent.Listener",
+                    "package com.github.panpf.liveevent;",
+                    "public interface Listener<T> {",
+                    "    void onChanged(T t);",
+                    "}"),
+            JavaFileObjects.forSourceLines("com.github.panpf.liveevent.LiveEvent",
+                    "package com.github.panpf.liveevent;",
+                    "public class LiveEvent<T> {",
+                    "}"),
+            JavaFileObjects.forSourceLines("com.github.panpf.liveevent.EventSubscription",
+                    "package com.github.panpf.liveevent;",
+                    "import androidx.lifecycle.LifecycleOwner;",
+                    "public class EventSubscription {",
+                    "    public <T> void listen(LiveEvent<T> event, LifecycleOwner owner,",
+                    "            Listener<? super T> listener) {",
+                    "    }",
+                    "    public <T> void listenSticky(LiveEvent<T> event, LifecycleOwner owner,",
+                    "            Listener<? super T> listener) {",
+                    "    }",
+                    "    public <T> void listenForever(LiveEvent<T> event,",
+                    "            Listener<? super T> listener) {",
+                    "    }",
+                    "    public <T> void listenForeverSticky(LiveEvent<T> event,",
+                    "            Listener<? super T> listener) {",
+                    "    }",
+                    "}"),
+            JavaFileObjects.forSourceLines("com.github.panpf.liveevent.SubscriberBinder",
+                    "package com.github.panpf.liveevent;",
+                    "import androidx.lifecycle.LifecycleOwner;",
+                    "public interface SubscriberBinder<S> {",
+                    "    void bind(S subscriber, LifecycleOwner owner,",
+                    "            EventSubscription subscription);",
+                    "}"),
+            JavaFileObjects.forSourceLines("com.github.panpf.liveevent.SubscriberIndex",
+                    "package com.github.panpf.liveevent;",
+                    "public interface SubscriberIndex {",
+                    "    SubscriberBinder<?> getBinder(Class<?> subscriberClass);",
+                    "}"),
+            JavaFileObjects.forSourceLines("com.github.panpf.liveevent.OnEvent",
+                    "package com.github.panpf.liveevent;",
+                    "public @interface OnEvent {",
+                    "    Class<?> holder();",
+                    "    String event();",
+                    "    boolean sticky() default false;",
+                    "    boolean forever() default false;",
+                    "}"),
+    };
+
+    private static final JavaFileObject EVENTS = JavaFileObjects.forSourceLines("test.Events",
+            "package test;",
+            "import com.github.panpf.liveevent.LiveEvent;",
+            "public class Events {",
+            "    public static final LiveEvent<String> login = new LiveEvent<>();",
+            "    private static final LiveEvent<String> sLogout = new LiveEvent<>();",
+            "    public static LiveEvent<String> getLogout() {",
+            "        return sLogout;",
+            "    }",
+            "}");
+
+    private static final JavaFileObject SUBSCRIBER = JavaFileObjects.forSourceLines(
+            "test.Subscriber",
+            "package test;",
+            "import com.github.panpf.liveevent.OnEvent;",
+            "public class Subscriber {",
+            "    @OnEvent(holder = Events.class, event = \"login\", sticky = true)",
+            "    void onLogin(String user) {",
+            "    }",
+            "    @OnEvent(holder = Events.class, event = \"logout\", forever = true)",
+            "    public void onLogout(Object user) {",
+            "    }",
+            "    static class Inner {",
+            "        @OnEvent(holder = Events.class, event = \"login\")",
+            "        void onLogin(String user) {",
+            "        }",
+            "    }",
+            "}");
+
+    private static Compilation compile(JavaFileObject... sources) {
+        List<JavaFileObject> files = new ArrayList<>(Arrays.asList(RUNTIME));
+        files.add(EVENTS);
+        files.addAll(Arrays.asList(sources));
+        return javac()
+                .withProcessors(new LiveEventProcessor())
+                .withOptions("-AliveEventIndex=test.TestIndex", "-Xlint:processing")
+                .compile(files);
+    }
+
+    private static String getSource(Compilation compilation, String qualifiedName)
+            throws IOException {
+        JavaFileObject file = compilation.generatedSourceFile(qualifiedName).orNull();
+        Assert.assertNotNull(qualifiedName + " generate error", file);
+        return file.getCharContent(true).toString();
+    }
+
+    @Test
+    public void testBinder() throws IOException {
+        Compilation compilation = compile(SUBSCRIBER);
+        assertThat(compilation).succeeded();
+
+        String binder = getSource(compilation, "test.Subscriber_LiveEventBinder");
+        Assert.assertTrue("binder class error", binder.contains("public final class "
+                + "Subscriber_LiveEventBinder implements SubscriberBinder<test.Subscriber>"));
+        Assert.assertTrue("sticky error", binder.contains(
+                "subscription.listenSticky(test.Events.login, owner, new Listener<java.lang.String>()"));
+        Assert.assertTrue("forever error", binder.contains(
+                "subscription.listenForever(test.Events.getLogout(), new Listener<java.lang.Object>()"));
+        Assert.assertTrue("call error", binder.contains("subscriber.onLogout(t);"));
+
+        String innerBinder = getSource(compilation, "test.Subscriber_Inner_LiveEventBinder");
+        Assert.assertTrue("nested class error", innerBinder.contains(
+                "subscription.listen(test.Events.login, owner, new Listener<java.lang.String>()"));
+    }
+
+    @Test
+    public void testIndex() throws IOException {
+        Compilation compilation = compile(SUBSCRIBER);
+        assertThat(compilation).succeeded();
+        for (Diagnostic<? extends JavaFileObject> warning : compilation.warnings()) {
+            Assert.assertFalse("last round error: " + warning,
+                    warning.getMessage(null).contains("last round"));
+        }
+
+        String index = getSource(compilation, "test.TestIndex");
+        Assert.assertTrue("index class error",
+                index.contains("public final class TestIndex implements SubscriberIndex"));
+        Assert.assertTrue("binder error", index.contains(
+                "mBinders.put(\"test.Subscriber\", new test.Subscriber_LiveEventBinder());"));
+        Assert.assertTrue("binary name error", index.contains(
+                "mBinders.put(\"test.Subscriber$Inner\", new test.Subscriber_Inner_LiveEventBinder());"));
+    }
+
+    @Test
+    public void testNoIndexOption() {
+        List<JavaFileObject> files = new ArrayList<>(Arrays.asList(RUNTIME));
+        files.add(EVENTS);
+        files.add(SUBSCRIBER);
+        Compilation compilation = javac().withProcessors(new LiveEventProcessor()).compile(files);
+        assertThat(compilation).succeeded();
+        assertThat(compilation).hadWarningContaining("No 'liveEventIndex' option given");
+        assertThat(compilation).generatedSourceFile("test.Subscriber_LiveEventBinder");
+    }
+
+    @Test
+    public void testErrors() {
+        JavaFileObject privateMethod = JavaFileObjects.forSourceLines("test.PrivateMethod",
+                "package test;",
+                "import com.github.panpf.liveevent.OnEvent;",
+                "public class PrivateMethod {",
+                "    @OnEvent(holder = Events.class, event = \"login\")",
+                "    private void onLogin(String user) {",
+                "    }",
+                "}");
+        Compilation compilation = compile(privateMethod);
+        assertThat(compilation).hadErrorContaining(
+                "@OnEvent methods must not be private or static")
+                .inFile(privateMethod).onLine(5);
+
+        JavaFileObject twoParameters = JavaFileObjects.forSourceLines("test.TwoParameters",
+                "package test;",
+                "import com.github.panpf.liveevent.OnEvent;",
+                "public class TwoParameters {",
+                "    @OnEvent(holder = Events.class, event = \"login\")",
+                "    void onLogin(String user, String password) {",
+                "    }",
+                "}");
+        compilation = compile(twoParameters);
+        assertThat(compilation).hadErrorContaining(
+                "@OnEvent methods must have exactly one parameter")
+                .inFile(twoParameters).onLine(5);
+
+        JavaFileObject primitiveParameter = JavaFileObjects.forSourceLines(
+                "test.PrimitiveParameter",
+                "package test;",
+                "import com.github.panpf.liveevent.OnEvent;",
+                "public class PrimitiveParameter {",
+                "    @OnEvent(holder = Events.class, event = \"count\")",
+                "    void onCount(int count) {",
+                "    }",
+                "}");
+        compilation = compile(primitiveParameter);
+        assertThat(compilation).hadErrorContaining(
+                "The parameter of @OnEvent methods must not be primitive")
+                .inFile(primitiveParameter).onLine(5);
+
+        JavaFileObject privateClass = JavaFileObjects.forSourceLines("test.PrivateClass",
+                "package test;",
+                "import com.github.panpf.liveevent.OnEvent;",
+                "public class PrivateClass {",
+                "    private static class Inner {",
+                "        @OnEvent(holder = Events.class, event = \"login\")",
+                "        void onLogin(String user) {",
+                "        }",
+                "    }",
+                "}");
+        compilation = compile(privateClass);
+        assertThat(compilation).hadErrorContaining(
+                "The class of @OnEvent methods must not be private")
+                .inFile(privateClass).onLine(6);
+
+        JavaFileObject missingEvent = JavaFileObjects.forSourceLines("test.MissingEvent",
+                "package test;",
+                "import com.github.panpf.liveevent.OnEvent;",
+                "public class MissingEvent {",
+                "    @OnEvent(holder = Events.class, event = \"missing\")",
+                "    void onMissing(String value) {",
+                "    }",
+                "}");
+        compilation = compile(missingEvent);
+        assertThat(compilation).hadErrorContaining("Cannot find event 'missing' in test.Events")
+                .inFile(missingEvent).onLine(5);
+    }
+}
@@ -0,0 +1,86 @@
+package com.github.panpf.liveevent.test
+
+import androidx.test.platform.app.InstrumentationRegistry
+import androidx.test.runner.AndroidJUnit4
+import com.github.panpf.liveevent.Listener
+import com.github.panpf.liveevent.LiveEvent
+import org.junit.Assert
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+@RunWith(AndroidJUnit4::class)
+class AnyThreadListenerTest {
+
+    @Test
+    fun testListenDuringDispatch() {
+        val instrumentation = InstrumentationRegistry.getInstrumentation()
+        val worker = Executors.newSingleThreadExecutor()
+        val liveEvent = LiveEvent<Int>()
+        val lateValues = mutableListOf<Int?>()
+        val lateListener = Listener<Int> { lateValues.add(it) }
+        val stickyValues = mutableListOf<Int?>()
+        val stickyListener = Listener<Int> { stickyValues.add(it) }
+        val removedValues = mutableListOf<Int?>()
+        val removedListener = Listener<Int> { removedValues.add(it) }
+
+        instrumentation.runOnMainSync {
+            // the first listener waits for a worker that changes the listeners meanwhile
+            liveEvent.listenForever(Listener<Int> {
+                if (it == 1) {
+                    worker.submit {
+                        liveEvent.listenForever(lateListener)
+                        liveEvent.listenForeverSticky(stickyListener)
+                        liveEvent.removeListener(removedListener)
+                    }.get(5, TimeUnit.SECONDS)
+                }
+            })
+            liveEvent.listenForever(removedListener)
+            liveEvent.value = 1
+            Assert.assertEquals("removed during dispatch error", emptyList<Int?>(), removedValues)
+            Assert.assertEquals("added during dispatch error", emptyList<Int?>(), lateValues)
+        }
+        // the listeners added on the worker are attached on the main thread
+        instrumentation.waitForIdleSync()
+
+        instrumentation.runOnMainSync {
+            Assert.assertEquals("sticky error", listOf<Int?>(1), stickyValues)
+            liveEvent.value = 2
+            Assert.assertEquals("late listener error", listOf<Int?>(2), lateValues)
+            Assert.assertEquals("sticky listener error", listOf<Int?>(1, 2), stickyValues)
+            Assert.assertEquals("removed listener error", emptyList<Int?>(), removedValues)
+        }
+        worker.shutdown()
+    }
+
+    @Test
+    fun testListenFromManyThreads() {
+        val instrumentation = InstrumentationRegistry.getInstrumentation()
+        val executor = Executors.newFixedThreadPool(4)
+        val liveEvent = LiveEvent<Int>()
+        // object expressions, a lambda without captures may be one shared instance
+        val listeners = List(200) {
+            object : Listener<Int> {
+                override fun onChanged(t: Int?) {
+                }
+            }
+        }
+        val futures = listeners.map { listener ->
+            executor.submit { liveEvent.listenForever(listener) }
+        }
+        // the main thread dispatches while the workers add listeners
+        instrumentation.runOnMainSync { liveEvent.value = 1 }
+        futures.forEach { it.get(5, TimeUnit.SECONDS) }
+        instrumentation.waitForIdleSync()
+        Assert.assertTrue("active error", liveEvent.hasActiveListeners())
+
+        listeners.map { listener ->
+            executor.submit { liveEvent.removeListener(listener) }
+        }.forEach { it.get(5, TimeUnit.SECONDS) }
+        instrumentation.waitForIdleSync()
+        Assert.assertFalse("remove error", liveEvent.hasListeners())
+        Assert.assertFalse("inactive error", liveEvent.hasActiveListeners())
+        executor.shutdown()
+    }
+}
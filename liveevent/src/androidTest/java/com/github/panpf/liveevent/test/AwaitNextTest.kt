@@ -0,0 +1,77 @@
+package com.github.panpf.liveevent.test
+
+import androidx.test.platform.app.InstrumentationRegistry
+import androidx.test.runner.AndroidJUnit4
+import com.github.panpf.liveevent.Listener
+import com.github.panpf.liveevent.LiveEvent
+import com.github.panpf.liveevent.LiveEventTransaction
+import com.github.panpf.liveevent.Predicate
+import org.junit.Assert
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeoutException
+
+@RunWith(AndroidJUnit4::class)
+class AwaitNextTest {
+
+    @Test
+    fun testAwait() {
+        val instrumentation = InstrumentationRegistry.getInstrumentation()
+        val liveEvent = LiveEvent<Int>()
+        val executor = Executors.newFixedThreadPool(2)
+        val next = executor.submit<Int> { liveEvent.awaitNext(5000) }
+        val first = executor.submit<Int> {
+            liveEvent.awaitFirst(Predicate { it != null && it > 100 }, 5000)
+        }
+
+        // the workers may not wait yet, set values until both received one
+        var value = 0
+        while (!next.isDone || !first.isDone) {
+            value++
+            instrumentation.runOnMainSync { liveEvent.value = value }
+        }
+        Assert.assertTrue("awaitNext error", next.get() in 1..value)
+        Assert.assertTrue("awaitFirst error", first.get() > 100)
+
+        try {
+            liveEvent.awaitNext(100)
+            Assert.fail("timeout error")
+        } catch (e: TimeoutException) {
+        }
+        executor.shutdown()
+    }
+
+    @Test
+    fun testFuture() {
+        val liveEvent = LiveEvent<Int>()
+        val future = liveEvent.nextAsFuture()
+        val cancelledFuture = liveEvent.nextAsFuture()
+        Assert.assertTrue("cancel error", cancelledFuture.cancel(false))
+
+        InstrumentationRegistry.getInstrumentation().runOnMainSync {
+            liveEvent.listenForever(Listener { if (it == 5) liveEvent.value = 6 })
+            liveEvent.value = 5
+            try {
+                liveEvent.awaitNext(100)
+                Assert.fail("main thread error")
+            } catch (e: IllegalStateException) {
+            }
+        }
+        Assert.assertEquals("nested dispatch error", 5, future.get())
+        Assert.assertTrue("cancelled error", cancelledFuture.isCancelled)
+    }
+
+    @Test
+    fun testNotDispatchedValue() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync {
+            val liveEvent = LiveEvent<Int>()
+            LiveEventTransaction.begin()
+            liveEvent.value = 1
+            val future = liveEvent.nextAsFuture()
+            LiveEventTransaction.commit()
+            Assert.assertTrue("dispatch error", future.isDone)
+            Assert.assertEquals("value error", 1, future.get())
+        }
+    }
+}
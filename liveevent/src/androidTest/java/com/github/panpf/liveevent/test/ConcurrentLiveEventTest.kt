@@ -0,0 +1,54 @@
+package com.github.panpf.liveevent.test
+
+import androidx.test.runner.AndroidJUnit4
+import com.github.panpf.liveevent.ConcurrentLiveEvent
+import com.github.panpf.liveevent.Listener
+import org.junit.Assert
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+@RunWith(AndroidJUnit4::class)
+class ConcurrentLiveEventTest {
+
+    @Test
+    fun testJoin() {
+        val executor = Executors.newFixedThreadPool(4)
+        val liveEvent = ConcurrentLiveEvent<Int>(executor, 2, true)
+        val count = AtomicInteger()
+        repeat(100) {
+            liveEvent.listenForever(Listener { count.incrementAndGet() })
+        }
+
+        liveEvent.value = 1
+        Assert.assertEquals("join error", 100, count.get())
+
+        val stickyValues = mutableListOf<Int?>()
+        liveEvent.listenForeverSticky(Listener { stickyValues.add(it) })
+        Assert.assertEquals("sticky error", listOf<Int?>(1), stickyValues)
+        executor.shutdown()
+    }
+
+    @Test
+    fun testNestedJoin() {
+        // listeners on the pool join another fan-out on the same small pool
+        val executor = Executors.newFixedThreadPool(2)
+        val innerLiveEvent = ConcurrentLiveEvent<Int>(executor, 2, true)
+        val innerCount = AtomicInteger()
+        repeat(8) {
+            innerLiveEvent.listenForever(Listener { innerCount.incrementAndGet() })
+        }
+        val outerLiveEvent = ConcurrentLiveEvent<Int>(executor, 2, true)
+        repeat(8) {
+            outerLiveEvent.listenForever(Listener { innerLiveEvent.value = it })
+        }
+
+        val caller = Executors.newSingleThreadExecutor()
+        caller.submit { outerLiveEvent.value = 1 }.get(10, TimeUnit.SECONDS)
+        Assert.assertTrue("nested delivery error", innerCount.get() >= 8)
+        caller.shutdown()
+        executor.shutdown()
+    }
+}
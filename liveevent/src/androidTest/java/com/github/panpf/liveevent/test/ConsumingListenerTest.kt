@@ -0,0 +1,122 @@
+package com.github.panpf.liveevent.test
+
+import androidx.test.platform.app.InstrumentationRegistry
+import androidx.test.runner.AndroidJUnit4
+import com.github.panpf.liveevent.ConsumingListener
+import com.github.panpf.liveevent.Listener
+import com.github.panpf.liveevent.LiveEvent
+import org.junit.Assert
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@RunWith(AndroidJUnit4::class)
+class ConsumingListenerTest {
+
+    @Test
+    fun testPriorityOrder() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync {
+            val liveEvent = LiveEvent<Int>()
+            val calls = mutableListOf<String>()
+            liveEvent.listenForever(Listener<Int> { calls.add("default1") })
+            liveEvent.listenForever(-1, Listener<Int> { calls.add("low") })
+            liveEvent.listenForever(10, Listener<Int> { calls.add("high") })
+            liveEvent.listenForever(Listener<Int> { calls.add("default2") })
+            liveEvent.listenForever(5, Listener<Int> { calls.add("middle") })
+
+            liveEvent.value = 1
+            Assert.assertEquals("priority order error",
+                    listOf("high", "middle", "default1", "default2", "low"), calls)
+        }
+    }
+
+    @Test
+    fun testPriorityOrderAfterChange() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync {
+            val liveEvent = LiveEvent<Int>()
+            val calls = mutableListOf<String>()
+            val low = Listener<Int> { calls.add("low") }
+            liveEvent.listenForever(-1, low)
+            liveEvent.listenForever(Listener<Int> { calls.add("default") })
+            liveEvent.value = 1
+
+            // the dispatch order follows the listeners changed since the last dispatch
+            calls.clear()
+            liveEvent.removeListener(low)
+            liveEvent.listenForever(10, Listener<Int> { calls.add("high") })
+            liveEvent.listenForever(-1, low)
+            liveEvent.value = 2
+            Assert.assertEquals("priority order error", listOf("high", "default", "low"), calls)
+        }
+    }
+
+    @Test
+    fun testConsume() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync {
+            val liveEvent = LiveEvent<Int>()
+            val calls = mutableListOf<String>()
+            liveEvent.listenForever(10, Listener<Int> { calls.add("high:$it") })
+            // consumes the even values only
+            liveEvent.listenForever(5, ConsumingListener<Int> {
+                calls.add("consumer:$it")
+                it != null && it % 2 == 0
+            })
+            liveEvent.listenForever(5, Listener<Int> { calls.add("same:$it") })
+            liveEvent.listenForever(Listener<Int> { calls.add("low:$it") })
+
+            liveEvent.value = 1
+            Assert.assertEquals("not consumed error",
+                    listOf("high:1", "consumer:1", "same:1", "low:1"), calls)
+
+            calls.clear()
+            liveEvent.value = 2
+            Assert.assertEquals("consumed error", listOf("high:2", "consumer:2"), calls)
+
+            // the next value reaches everyone again
+            calls.clear()
+            liveEvent.value = 3
+            Assert.assertEquals("next value error",
+                    listOf("high:3", "consumer:3", "same:3", "low:3"), calls)
+        }
+    }
+
+    @Test
+    fun testConsumeSticky() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync {
+            val liveEvent = LiveEvent<Int>()
+            liveEvent.listenForever(ConsumingListener<Int> { true })
+            liveEvent.value = 1
+
+            // a consumed value is not delivered to a listener added later either
+            val values = mutableListOf<Int?>()
+            liveEvent.listenForeverSticky(Listener<Int> { values.add(it) })
+            Assert.assertEquals("sticky after consume error", emptyList<Int?>(), values)
+        }
+    }
+
+    @Test
+    fun testInterface() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync {
+            // a class with its own superclass can consume events
+            val handler = BackHandler()
+            val liveEvent = LiveEvent<Int>()
+            liveEvent.listenForever(1, handler)
+            val values = mutableListOf<Int?>()
+            liveEvent.listenForever(Listener<Int> { values.add(it) })
+
+            liveEvent.value = 1
+            Assert.assertEquals("consume error", listOf<Int?>(1), handler.values)
+            Assert.assertEquals("consume error", emptyList<Int?>(), values)
+        }
+    }
+
+    open class BaseHandler {
+        val values = mutableListOf<Int?>()
+    }
+
+    class BackHandler : BaseHandler(), ConsumingListener<Int> {
+        override fun onConsume(t: Int?): Boolean {
+            values.add(t)
+            return true
+        }
+    }
+}
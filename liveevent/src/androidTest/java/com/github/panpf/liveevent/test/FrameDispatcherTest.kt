@@ -0,0 +1,67 @@
+package com.github.panpf.liveevent.test
+
+import androidx.test.platform.app.InstrumentationRegistry
+import androidx.test.runner.AndroidJUnit4
+import com.github.panpf.liveevent.FrameClock
+import com.github.panpf.liveevent.FrameDispatcher
+import com.github.panpf.liveevent.Listener
+import com.github.panpf.liveevent.LiveEvent
+import org.junit.Assert
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@RunWith(AndroidJUnit4::class)
+class FrameDispatcherTest {
+
+    @Test
+    fun test() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync {
+            val clock = FakeFrameClock()
+            val dispatcher = FrameDispatcher(clock)
+            val liveEvent1 = LiveEvent<Int>()
+            val liveEvent2 = LiveEvent<String>()
+            liveEvent1.setFrameDispatcher(dispatcher)
+            liveEvent2.setFrameDispatcher(dispatcher)
+            val values1 = mutableListOf<Int?>()
+            val values2 = mutableListOf<String?>()
+            liveEvent1.listenForever(Listener { values1.add(it) })
+            liveEvent2.listenForever(Listener { values2.add(it) })
+
+            liveEvent1.setValue(1)
+            liveEvent1.setValue(2)
+            liveEvent2.setValue("a")
+            liveEvent1.setValue(3)
+            Assert.assertEquals("dispatch before frame error", emptyList<Int?>(), values1)
+            Assert.assertEquals("dispatch before frame error", emptyList<String?>(), values2)
+            Assert.assertEquals("frame callback count error", 1, clock.callbacks.size)
+            Assert.assertEquals("getValue test error", 3, liveEvent1.value)
+
+            clock.doFrame()
+            Assert.assertEquals("frame dispatch error", listOf<Int?>(3), values1)
+            Assert.assertEquals("frame dispatch error", listOf<String?>("a"), values2)
+
+            clock.doFrame()
+            Assert.assertEquals("empty frame error", listOf<Int?>(3), values1)
+
+            liveEvent1.setValue(4)
+            liveEvent1.setFrameDispatcher(null)
+            Assert.assertEquals("remove dispatcher error", listOf<Int?>(3, 4), values1)
+            liveEvent1.setValue(5)
+            Assert.assertEquals("immediate dispatch error", listOf<Int?>(3, 4, 5), values1)
+        }
+    }
+
+    class FakeFrameClock : FrameClock {
+        val callbacks = mutableListOf<Runnable>()
+
+        override fun postFrameCallback(callback: Runnable) {
+            callbacks.add(callback)
+        }
+
+        fun doFrame() {
+            val frameCallbacks = callbacks.toList()
+            callbacks.clear()
+            frameCallbacks.forEach { it.run() }
+        }
+    }
+}
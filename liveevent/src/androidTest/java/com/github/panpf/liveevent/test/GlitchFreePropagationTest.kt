@@ -0,0 +1,38 @@
+package com.github.panpf.liveevent.test
+
+import androidx.arch.core.util.Function
+import androidx.test.platform.app.InstrumentationRegistry
+import androidx.test.runner.AndroidJUnit4
+import com.github.panpf.liveevent.Listener
+import com.github.panpf.liveevent.LiveEvent
+import com.github.panpf.liveevent.LiveEventTransformations
+import com.github.panpf.liveevent.MediatorLiveEvent
+import org.junit.Assert
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@RunWith(AndroidJUnit4::class)
+class GlitchFreePropagationTest {
+
+    @Test
+    fun testDiamond() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync {
+            val a = LiveEvent<Int>()
+            val b = LiveEventTransformations.map(a, Function<Int, Int> { it * 2 })
+            val c = LiveEventTransformations.map(a, Function<Int, Int> { it * 3 })
+            (b as MediatorLiveEvent).isGlitchFree = true
+            (c as MediatorLiveEvent).isGlitchFree = true
+            val d = MediatorLiveEvent<String>()
+            d.isGlitchFree = true
+            val combine = Listener<Int> { d.value = "${b.value}/${c.value}" }
+            d.addSource(b, combine)
+            d.addSource(c, combine)
+            val values = mutableListOf<String?>()
+            d.listenForever(Listener { values.add(it) })
+
+            a.value = 1
+            a.value = 2
+            Assert.assertEquals("glitch-free dispatch error", listOf<String?>("2/3", "4/6"), values)
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.github.panpf.liveevent.test
+
+import androidx.test.platform.app.InstrumentationRegistry
+import androidx.test.runner.AndroidJUnit4
+import com.github.panpf.liveevent.KeyedLiveEvent
+import com.github.panpf.liveevent.Listener
+import org.junit.Assert
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+@RunWith(AndroidJUnit4::class)
+class KeyedLiveEventTest {
+
+    @Test
+    fun test() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync {
+            val keyedLiveEvent = KeyedLiveEvent<Long, Int>()
+            val values1 = mutableListOf<Int?>()
+            val values2 = mutableListOf<Int?>()
+            val listener1 = Listener<Int> { values1.add(it) }
+            val listener2 = Listener<Int> { values2.add(it) }
+            keyedLiveEvent.listenForever(1L, listener1)
+            keyedLiveEvent.listenForever(2L, listener2)
+
+            keyedLiveEvent.setValue(1L, 10)
+            keyedLiveEvent.setValue(2L, 20)
+            keyedLiveEvent.setValue(3L, 30)
+            Assert.assertEquals("key dispatch error", listOf<Int?>(10), values1)
+            Assert.assertEquals("key dispatch error", listOf<Int?>(20), values2)
+            Assert.assertEquals("key count error", 2, keyedLiveEvent.keyCount)
+
+            val stickyValues = mutableListOf<Int?>()
+            val stickyListener = Listener<Int> { stickyValues.add(it) }
+            keyedLiveEvent.listenForeverSticky(1L, stickyListener)
+            Assert.assertEquals("sticky error", listOf<Int?>(10), stickyValues)
+
+            keyedLiveEvent.removeListener(1L, listener1)
+            keyedLiveEvent.removeListener(1L, stickyListener)
+            Assert.assertFalse("free key error", keyedLiveEvent.hasListeners(1L))
+            Assert.assertEquals("key count error", 1, keyedLiveEvent.keyCount)
+            Assert.assertNull("free key value error", keyedLiveEvent.getValue(1L))
+        }
+    }
+
+    @Test
+    fun testStickyListenerUsesOtherThread() {
+        val executor = Executors.newSingleThreadExecutor()
+        InstrumentationRegistry.getInstrumentation().runOnMainSync {
+            val keyedLiveEvent = KeyedLiveEvent<Long, Int>()
+            keyedLiveEvent.listenForever(1L, Listener<Int> { })
+            keyedLiveEvent.setValue(1L, 10)
+
+            // the sticky value is dispatched while listening, the listener waits for a thread
+            // that uses the KeyedLiveEvent too
+            val keyCounts = mutableListOf<Int>()
+            keyedLiveEvent.listenForeverSticky(1L, Listener {
+                keyCounts.add(executor.submit<Int> { keyedLiveEvent.keyCount }
+                        .get(5, TimeUnit.SECONDS))
+            })
+            Assert.assertEquals("key count error", listOf(1), keyCounts)
+        }
+        executor.shutdown()
+    }
+}
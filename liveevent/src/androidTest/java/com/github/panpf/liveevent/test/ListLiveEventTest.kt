@@ -0,0 +1,122 @@
+package com.github.panpf.liveevent.test
+
+import androidx.test.platform.app.InstrumentationRegistry
+import androidx.test.runner.AndroidJUnit4
+import com.github.panpf.liveevent.ListChange
+import com.github.panpf.liveevent.ListLiveEvent
+import com.github.panpf.liveevent.Listener
+import com.github.panpf.liveevent.MapChange
+import com.github.panpf.liveevent.MapLiveEvent
+import org.junit.Assert
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@RunWith(AndroidJUnit4::class)
+class ListLiveEventTest {
+
+    @Test
+    fun testListChanges() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync {
+            val listLiveEvent = ListLiveEvent(listOf("a", "b", "c"))
+            val changes = mutableListOf<String>()
+            listLiveEvent.listenForeverSticky(Listener<ListChange<String>> {
+                changes.add(if (it.isReset) "reset:${it.list}" else it.ops.toString())
+            })
+
+            listLiveEvent.add("d")
+            listLiveEvent.add("e")
+            listLiveEvent.set(4, "E")
+            listLiveEvent.dispatchChanges()
+            Assert.assertEquals("first change error", listOf("reset:[a, b, c, d, E]"), changes)
+
+            listLiveEvent.remove(1)
+            listLiveEvent.remove(1)
+            listLiveEvent.set(0, "A")
+            listLiveEvent.set(1, "D")
+            listLiveEvent.dispatchChanges()
+            Assert.assertEquals("coalesce error", "[remove(1, 2), update(0, 2)]", changes[1])
+        }
+    }
+
+    @Test
+    fun testMapChanges() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync {
+            val mapLiveEvent = MapLiveEvent(mapOf("a" to 1, "b" to 2))
+            val changes = mutableListOf<MapChange<String, Int>>()
+            mapLiveEvent.listenForever(Listener { changes.add(it) })
+            mapLiveEvent.put("c", 3)
+            mapLiveEvent.dispatchChanges()
+            Assert.assertTrue("reset error", changes[0].isReset)
+
+            mapLiveEvent.put("a", 10)
+            mapLiveEvent.remove("b")
+            mapLiveEvent.put("d", 4)
+            mapLiveEvent.put("e", 5)
+            mapLiveEvent.remove("e")
+            mapLiveEvent.dispatchChanges()
+            Assert.assertEquals("inserted error", setOf("d"), changes[1].inserted)
+            Assert.assertEquals("removed error", setOf("b"), changes[1].removed)
+            Assert.assertEquals("updated error", setOf("a"), changes[1].updated)
+        }
+    }
+
+    @Test
+    fun testStickyWhilePending() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync {
+            val listLiveEvent = ListLiveEvent(listOf("a", "b", "c"))
+            listLiveEvent.add("x")
+            listLiveEvent.dispatchChanges()
+
+            // the reset contains the pending change, the change set with it is skipped
+            listLiveEvent.add("d")
+            val changes = mutableListOf<String>()
+            listLiveEvent.listenForeverSticky(Listener<ListChange<String>> {
+                changes.add(if (it.isReset) "reset:${it.list}" else it.ops.toString())
+            })
+            listLiveEvent.dispatchChanges()
+            listLiveEvent.add("e")
+            listLiveEvent.dispatchChanges()
+            Assert.assertEquals("pending change error",
+                    listOf("reset:[a, b, c, x, d]", "[insert(5, 1)]"), changes)
+
+            val mapLiveEvent = MapLiveEvent(mapOf("a" to 1))
+            mapLiveEvent.put("b", 2)
+            mapLiveEvent.dispatchChanges()
+            mapLiveEvent.put("c", 3)
+            val mapChanges = mutableListOf<String>()
+            mapLiveEvent.listenForeverSticky(Listener<MapChange<String, Int>> {
+                mapChanges.add(if (it.isReset) "reset:${it.map}" else "inserted:${it.inserted}")
+            })
+            mapLiveEvent.dispatchChanges()
+            mapLiveEvent.put("d", 4)
+            mapLiveEvent.dispatchChanges()
+            Assert.assertEquals("pending map change error",
+                    listOf("reset:{a=1, b=2, c=3}", "inserted:[d]"), mapChanges)
+
+            // a change after the reset ends the skipped change set
+            mapLiveEvent.put("e", 5)
+            val laterChanges = mutableListOf<String>()
+            mapLiveEvent.listenForeverSticky(Listener<MapChange<String, Int>> {
+                laterChanges.add(if (it.isReset) "reset:${it.map}" else "removed:${it.removed}")
+            })
+            mapLiveEvent.remove("e")
+            mapLiveEvent.dispatchChanges()
+            Assert.assertEquals("later map change error",
+                    listOf("reset:{a=1, b=2, c=3, d=4, e=5}", "removed:[e]"), laterChanges)
+
+            // pending changes that cancel each other out still end the skipped change set
+            mapLiveEvent.put("f", 6)
+            mapLiveEvent.remove("f")
+            val cancelledChanges = mutableListOf<String>()
+            mapLiveEvent.listenForeverSticky(Listener<MapChange<String, Int>> {
+                cancelledChanges.add(
+                        if (it.isReset) "reset:${it.map}" else "inserted:${it.inserted}")
+            })
+            mapLiveEvent.dispatchChanges()
+            mapLiveEvent.put("g", 7)
+            mapLiveEvent.dispatchChanges()
+            Assert.assertEquals("cancelled map change error",
+                    listOf("reset:{a=1, b=2, c=3, d=4}", "inserted:[g]"), cancelledChanges)
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.github.panpf.liveevent.test
+
+import android.os.SystemClock
+import androidx.test.platform.app.InstrumentationRegistry
+import androidx.test.runner.AndroidJUnit4
+import com.github.panpf.liveevent.Listener
+import com.github.panpf.liveevent.LiveEvent
+import com.github.panpf.liveevent.LiveEventAudit
+import org.junit.After
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@RunWith(AndroidJUnit4::class)
+class LiveEventAuditTest {
+
+    @Before
+    fun setUp() {
+        LiveEventAudit.install()
+    }
+
+    @After
+    fun tearDown() {
+        LiveEventAudit.uninstall()
+    }
+
+    @Test
+    fun test() {
+        val liveEvent = LiveEvent("hello")
+        val listener = Listener<String> { }
+        InstrumentationRegistry.getInstrumentation().runOnMainSync {
+            liveEvent.listenForever(listener)
+        }
+        SystemClock.sleep(50)
+
+        InstrumentationRegistry.getInstrumentation().runOnMainSync {
+            val info = LiveEventAudit.findLeakSuspects(10).single { it.event === liveEvent }
+            Assert.assertEquals("forever count error", 1, info.foreverListenerCount)
+            Assert.assertEquals("lifecycle count error", 0, info.lifecycleListenerCount)
+            Assert.assertEquals("active count error", 1, info.activeCount)
+            Assert.assertSame("stale listener error", listener,
+                    info.staleForeverListeners.single().listener)
+            Assert.assertTrue("sticky size error", info.stickyValueSize > 0)
+
+            liveEvent.removeListener(listener)
+            Assert.assertTrue("removed listener error",
+                    LiveEventAudit.findLeakSuspects(10).none { it.event === liveEvent })
+        }
+    }
+
+    @Test
+    fun testUninstall() {
+        val liveEvent = LiveEvent("hello")
+        LiveEventAudit.uninstall()
+        Assert.assertFalse("uninstall error", LiveEventAudit.isInstalled())
+        val untracked = LiveEvent("world")
+        InstrumentationRegistry.getInstrumentation().runOnMainSync {
+            val events = LiveEventAudit.audit(0).map { it.event }
+            Assert.assertFalse("forget error", events.contains(liveEvent))
+            Assert.assertFalse("untracked error", events.contains(untracked))
+        }
+    }
+}
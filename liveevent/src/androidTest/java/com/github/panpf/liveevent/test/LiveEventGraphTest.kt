@@ -0,0 +1,44 @@
+package com.github.panpf.liveevent.test
+
+import androidx.arch.core.util.Function
+import androidx.test.platform.app.InstrumentationRegistry
+import androidx.test.runner.AndroidJUnit4
+import com.github.panpf.liveevent.Listener
+import com.github.panpf.liveevent.LiveEvent
+import com.github.panpf.liveevent.LiveEventGraph
+import com.github.panpf.liveevent.LiveEventTransformations
+import com.github.panpf.liveevent.MediatorLiveEvent
+import org.junit.Assert
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@RunWith(AndroidJUnit4::class)
+class LiveEventGraphTest {
+
+    @Test
+    fun test() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync {
+            val userLiveEvent = LiveEvent<Int>()
+            val idLiveEvent = LiveEventTransformations.map(userLiveEvent, Function<Int, Int> { it + 1 })
+            val nameLiveEvent = LiveEventTransformations.map(idLiveEvent, Function<Int, String> { "user$it" })
+            val titleLiveEvent = MediatorLiveEvent<String>()
+            titleLiveEvent.addSource(idLiveEvent, Listener { })
+            titleLiveEvent.addSource(nameLiveEvent, Listener { })
+            titleLiveEvent.listenForever(Listener { })
+            userLiveEvent.value = 1
+
+            val graph = LiveEventGraph.snapshot(userLiveEvent)
+            Assert.assertEquals("node count error", 4, graph.nodes.size)
+            Assert.assertEquals("edge count error", 4, graph.edges.size)
+            Assert.assertEquals("max depth error", 3, graph.maxDepth)
+
+            val idNode = graph.nodes.first { it.event === idLiveEvent }
+            Assert.assertEquals("operator error", "map", idNode.operator)
+            Assert.assertEquals("fan out error", 2, idNode.fanOut)
+            Assert.assertEquals("sticky value type error", "java.lang.Integer", idNode.stickyValueType)
+
+            Assert.assertTrue("json error", graph.toJson().startsWith("{\"nodes\":["))
+            Assert.assertTrue("dot error", graph.toDot().startsWith("digraph LiveEvents {"))
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.github.panpf.liveevent.test
+
+import androidx.test.platform.app.InstrumentationRegistry
+import androidx.test.runner.AndroidJUnit4
+import com.github.panpf.liveevent.EventCodec
+import com.github.panpf.liveevent.Listener
+import com.github.panpf.liveevent.LiveEvent
+import com.github.panpf.liveevent.LiveEventRecorder
+import com.github.panpf.liveevent.LiveEventReplayer
+import org.junit.Assert
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.io.InputStream
+import java.io.OutputStream
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+@RunWith(AndroidJUnit4::class)
+class LiveEventRecorderTest {
+
+    private val codec = object : EventCodec<String> {
+        override fun encode(value: String, out: OutputStream) {
+            require(value != "unsupported") { "unsupported value" }
+            DataOutputStream(out).writeUTF(value)
+        }
+
+        override fun decode(input: InputStream): String = DataInputStream(input).readUTF()
+    }
+
+    @Test
+    fun testRoundTrip() {
+        val instrumentation = InstrumentationRegistry.getInstrumentation()
+        val file = File(instrumentation.targetContext.cacheDir, "recorder_test")
+        val recorder = LiveEventRecorder(file, codec)
+        instrumentation.runOnMainSync {
+            val liveEvent = LiveEvent<String>()
+            recorder.attach(liveEvent)
+            liveEvent.value = "a"
+            // a failing codec records a placeholder and does not reach the caller
+            liveEvent.value = "unsupported"
+            liveEvent.value = null
+            liveEvent.value = "b"
+            recorder.close()
+        }
+
+        val replayer = LiveEventReplayer(file, codec)
+        Assert.assertEquals("value count error", 4, replayer.valueCount)
+        Assert.assertEquals("placeholder count error", 1, replayer.placeholderCount)
+        val targetLiveEvent = LiveEvent<String>()
+        val values = mutableListOf<String?>()
+        val latch = CountDownLatch(1)
+        instrumentation.runOnMainSync {
+            targetLiveEvent.listenForever(Listener { values.add(it) })
+            replayer.replay(targetLiveEvent, LiveEventReplayer.MAX_SPEED)
+            // the placeholder replays the value before it
+            Assert.assertEquals("max speed error", listOf("a", "a", null, "b"), values)
+
+            values.clear()
+            replayer.replay(targetLiveEvent, LiveEventReplayer.REAL_TIME, Runnable {
+                latch.countDown()
+            })
+        }
+        Assert.assertTrue("real time error", latch.await(5, TimeUnit.SECONDS))
+        instrumentation.runOnMainSync {
+            Assert.assertEquals("real time values error", listOf("a", "a", null, "b"), values)
+        }
+        file.delete()
+    }
+}
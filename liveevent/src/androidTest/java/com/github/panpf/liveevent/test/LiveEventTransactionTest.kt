@@ -0,0 +1,62 @@
+package com.github.panpf.liveevent.test
+
+import androidx.test.platform.app.InstrumentationRegistry
+import androidx.test.runner.AndroidJUnit4
+import com.github.panpf.liveevent.Listener
+import com.github.panpf.liveevent.LiveEvent
+import com.github.panpf.liveevent.LiveEventTransaction
+import org.junit.Assert
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@RunWith(AndroidJUnit4::class)
+class LiveEventTransactionTest {
+
+    @Test
+    fun test() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync {
+            val userLiveEvent = LiveEvent<String>()
+            val settingsLiveEvent = LiveEvent<Int>()
+            val values = mutableListOf<String>()
+            userLiveEvent.listenForever(Listener { values.add("user:$it") })
+            settingsLiveEvent.listenForever(Listener { values.add("settings:$it") })
+
+            LiveEventTransaction.run(Runnable {
+                userLiveEvent.value = "a"
+                settingsLiveEvent.value = 1
+                userLiveEvent.value = "b"
+                Assert.assertEquals("deferred dispatch error", emptyList<String>(), values)
+                Assert.assertEquals("getValue error", "b", userLiveEvent.value)
+            })
+            Assert.assertEquals("commit error", listOf("user:b", "settings:1"), values)
+
+            userLiveEvent.value = "c"
+            Assert.assertEquals("immediate dispatch error",
+                    listOf("user:b", "settings:1", "user:c"), values)
+        }
+    }
+
+    @Test
+    fun testListenerThrows() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync {
+            val failingLiveEvent = LiveEvent<Int>()
+            val userLiveEvent = LiveEvent<String>()
+            val values = mutableListOf<String>()
+            failingLiveEvent.listenForever(Listener { throw IllegalStateException("listener") })
+            userLiveEvent.listenForever(Listener { values.add("user:$it") })
+
+            try {
+                LiveEventTransaction.run(Runnable {
+                    failingLiveEvent.value = 1
+                    userLiveEvent.value = "a"
+                })
+                Assert.fail("rethrow error")
+            } catch (e: IllegalStateException) {
+            }
+            Assert.assertEquals("other dispatch error", listOf("user:a"), values)
+
+            LiveEventTransaction.run(Runnable { userLiveEvent.value = "b" })
+            Assert.assertEquals("next transaction error", listOf("user:a", "user:b"), values)
+        }
+    }
+}
@@ -1,5 +1,102 @@
 package com.github.panpf.liveevent.test
 
+import androidx.arch.core.util.Function
+import androidx.test.platform.app.InstrumentationRegistry
+import androidx.test.runner.AndroidJUnit4
+import com.github.panpf.liveevent.Equivalence
+import com.github.panpf.liveevent.Listener
+import com.github.panpf.liveevent.LiveEvent
+import com.github.panpf.liveevent.LiveEventTransformations
+import com.github.panpf.liveevent.ScheduledEvent
+import org.junit.Assert
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@RunWith(AndroidJUnit4::class)
 class LiveEventTransformationsTest {
-    // todo test
-}
\ No newline at end of file
+
+    @Test
+    fun testCachedSwitchMap() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync {
+            val createdTabs = mutableListOf<String>()
+            val tabLiveEvent = LiveEvent<String>()
+            val contentLiveEvent = LiveEventTransformations.switchMap(tabLiveEvent,
+                    Function<String, LiveEvent<String>> {
+                        createdTabs.add(it)
+                        LiveEvent("content of $it")
+                    }, 2)
+            val values = mutableListOf<String>()
+            contentLiveEvent.listenForever(Listener { values.add(it) })
+
+            tabLiveEvent.value = "home"
+            tabLiveEvent.value = "search"
+            tabLiveEvent.value = "home"
+            Assert.assertEquals("cache error", listOf("home", "search"), createdTabs)
+            Assert.assertEquals("value error",
+                    listOf("content of home", "content of search", "content of home"), values)
+
+            tabLiveEvent.value = "profile"
+            tabLiveEvent.value = "search"
+            Assert.assertEquals("eviction error", listOf("home", "search", "profile", "search"),
+                    createdTabs)
+        }
+    }
+
+    @Test
+    fun testExpiringSwitchMap() {
+        val clock = ScheduledEventTest.FakeEventClock()
+        ScheduledEvent.setClock(clock)
+        try {
+            InstrumentationRegistry.getInstrumentation().runOnMainSync {
+                val createdTabs = mutableListOf<String>()
+                val tabLiveEvent = LiveEvent<String>()
+                val contentLiveEvent = LiveEventTransformations.switchMap(tabLiveEvent,
+                        Function<String, LiveEvent<String>> {
+                            createdTabs.add(it)
+                            LiveEvent("content of $it")
+                        }, 3, 1000)
+                contentLiveEvent.listenForever(Listener<String> { })
+
+                tabLiveEvent.value = "home"
+                clock.advance(500)
+                tabLiveEvent.value = "search"
+                // home was the current one until 500 ms ago
+                clock.advance(800)
+                tabLiveEvent.value = "home"
+                Assert.assertEquals("expire error", listOf("home", "search"), createdTabs)
+
+                // search was not the current one for 1200 ms
+                clock.advance(1200)
+                tabLiveEvent.value = "profile"
+                tabLiveEvent.value = "search"
+                Assert.assertEquals("expire error", listOf("home", "search", "profile", "search"),
+                        createdTabs)
+            }
+        } finally {
+            ScheduledEvent.setClock(null)
+        }
+    }
+
+    @Test
+    fun testMemoMap() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync {
+            var formatCount = 0
+            val countLiveEvent = LiveEvent<Int>()
+            val textLiveEvent = LiveEventTransformations.memoMap(countLiveEvent,
+                    Function<Int, String> {
+                        formatCount++
+                        if (it > 99) "99+" else it.toString()
+                    }, 4, Equivalence.EQUALS, true)
+            val values = mutableListOf<String>()
+            textLiveEvent.listenForever(Listener { values.add(it) })
+
+            countLiveEvent.value = 1
+            countLiveEvent.value = 100
+            countLiveEvent.value = 1
+            countLiveEvent.value = 101
+            countLiveEvent.value = 100
+            Assert.assertEquals("cache error", 3, formatCount)
+            Assert.assertEquals("skip repeats error", listOf("1", "99+", "1", "99+"), values)
+        }
+    }
+}
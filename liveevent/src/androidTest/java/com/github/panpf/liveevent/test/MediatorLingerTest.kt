@@ -0,0 +1,97 @@
+package com.github.panpf.liveevent.test
+
+import androidx.test.platform.app.InstrumentationRegistry
+import androidx.test.runner.AndroidJUnit4
+import com.github.panpf.liveevent.Listener
+import com.github.panpf.liveevent.LiveEvent
+import com.github.panpf.liveevent.MediatorLiveEvent
+import com.github.panpf.liveevent.ScheduledEvent
+import org.junit.After
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@RunWith(AndroidJUnit4::class)
+class MediatorLingerTest {
+
+    private val clock = ScheduledEventTest.FakeEventClock()
+
+    @Before
+    fun setUp() {
+        ScheduledEvent.setClock(clock)
+    }
+
+    @After
+    fun tearDown() {
+        ScheduledEvent.setClock(null)
+    }
+
+    @Test
+    fun test() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync {
+            val sourceLiveEvent = CountingLiveEvent()
+            val mediatorLiveEvent = MediatorLiveEvent<Int>()
+            mediatorLiveEvent.setLingerMillis(300)
+            mediatorLiveEvent.addSource(sourceLiveEvent,
+                    Listener<Int> { mediatorLiveEvent.value = it })
+            val listener = Listener<Int> { }
+
+            mediatorLiveEvent.listenForever(listener)
+            mediatorLiveEvent.removeListener(listener)
+            mediatorLiveEvent.listenForever(listener)
+            mediatorLiveEvent.removeListener(listener)
+            Assert.assertEquals("plug error", 1, sourceLiveEvent.activeCount)
+            Assert.assertEquals("linger error", 0, sourceLiveEvent.inactiveCount)
+
+            clock.advance(299)
+            Assert.assertEquals("linger error", 0, sourceLiveEvent.inactiveCount)
+            clock.advance(1)
+            Assert.assertEquals("unplug error", 1, sourceLiveEvent.inactiveCount)
+        }
+    }
+
+    @Test
+    fun testActiveAgain() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync {
+            val sourceLiveEvent = CountingLiveEvent()
+            val mediatorLiveEvent = MediatorLiveEvent<Int>()
+            mediatorLiveEvent.setLingerMillis(300)
+            mediatorLiveEvent.addSource(sourceLiveEvent,
+                    Listener<Int> { mediatorLiveEvent.value = it })
+            val values = mutableListOf<Int?>()
+            val listener = Listener<Int> { values.add(it) }
+
+            mediatorLiveEvent.listenForever(listener)
+            mediatorLiveEvent.removeListener(listener)
+            clock.advance(200)
+            // active again before the unplug fires, the linger is cancelled
+            mediatorLiveEvent.listenForever(listener)
+            clock.advance(300)
+            Assert.assertEquals("cancel linger error", 0, sourceLiveEvent.inactiveCount)
+            Assert.assertEquals("cancel linger error", 1, sourceLiveEvent.activeCount)
+            sourceLiveEvent.value = 1
+            Assert.assertEquals("plugged error", listOf<Int?>(1), values)
+
+            // the next linger starts from the full time again
+            mediatorLiveEvent.removeListener(listener)
+            clock.advance(299)
+            Assert.assertEquals("linger again error", 0, sourceLiveEvent.inactiveCount)
+            clock.advance(1)
+            Assert.assertEquals("unplug again error", 1, sourceLiveEvent.inactiveCount)
+        }
+    }
+
+    class CountingLiveEvent : LiveEvent<Int>() {
+        var activeCount = 0
+        var inactiveCount = 0
+
+        override fun onActive() {
+            activeCount++
+        }
+
+        override fun onInactive() {
+            inactiveCount++
+        }
+    }
+}
@@ -1,5 +1,115 @@
 package com.github.panpf.liveevent.test
 
+import androidx.test.platform.app.InstrumentationRegistry
+import androidx.test.runner.AndroidJUnit4
+import com.github.panpf.liveevent.Listener
+import com.github.panpf.liveevent.LiveEvent
+import com.github.panpf.liveevent.MediatorLiveEvent
+import org.junit.Assert
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@RunWith(AndroidJUnit4::class)
 class MediatorLiveEventTest {
-    // todo test
-}
\ No newline at end of file
+
+    @Test
+    fun testAddSources() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync {
+            val mediator = MediatorLiveEvent<Int>()
+            val sources = List(100) { LiveEvent<Int>() }
+            val values = mutableListOf<Int?>()
+            val onChanged = Listener<Int> { values.add(it) }
+            mediator.addSources(sources, onChanged)
+            Assert.assertFalse("plug before active error", sources.any { it.hasListeners() })
+
+            val mediatorListener = Listener<Int> { }
+            mediator.listenForever(mediatorListener)
+            Assert.assertTrue("plug error", sources.all { it.hasActiveListeners() })
+
+            sources[3].value = 3
+            sources[42].value = 42
+            Assert.assertEquals("dispatch error", listOf<Int?>(3, 42), values)
+
+            // sources added while active are plugged right away
+            val late = LiveEvent<Int>()
+            mediator.addSources(listOf(late, sources[0]), onChanged)
+            Assert.assertTrue("late plug error", late.hasActiveListeners())
+            late.value = 7
+            Assert.assertEquals("late dispatch error", listOf<Int?>(3, 42, 7), values)
+
+            mediator.removeListener(mediatorListener)
+            Assert.assertFalse("unplug error", sources.any { it.hasListeners() })
+            Assert.assertFalse("unplug error", late.hasListeners())
+        }
+    }
+
+    @Test
+    fun testAddSourcesDifferentListener() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync {
+            val mediator = MediatorLiveEvent<Int>()
+            val source1 = LiveEvent<Int>()
+            val source2 = LiveEvent<Int>()
+            mediator.addSource(source1, Listener<Int> { })
+            mediator.listenForever(Listener<Int> { })
+            try {
+                mediator.addSources(listOf(source2, source1), Listener<Int> { })
+                Assert.fail("different listener error")
+            } catch (e: IllegalArgumentException) {
+            }
+            Assert.assertFalse("partial add error", source2.hasListeners())
+        }
+    }
+
+    @Test
+    fun testAddSourcesCallBack() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync {
+            val mediator = MediatorLiveEvent<Int>()
+            val source1 = StartingLiveEvent(1)
+            val source2 = StartingLiveEvent(2)
+            mediator.listenForever(Listener<Int> { })
+
+            // the first source that calls back removes the other one
+            val values = mutableListOf<Int?>()
+            mediator.addSources(listOf(source1, source2), Listener<Int> {
+                values.add(it)
+                mediator.removeSources(listOf(source1, source2))
+            })
+            Assert.assertEquals("call back error", 1, values.size)
+            Assert.assertFalse("removed source plugged error",
+                    source1.hasListeners() || source2.hasListeners())
+        }
+    }
+
+    @Test
+    fun testRemoveSources() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync {
+            val mediator = MediatorLiveEvent<Int>()
+            val sources = List(10) { LiveEvent<Int>() }
+            val values = mutableListOf<Int?>()
+            mediator.addSources(sources, Listener<Int> { values.add(it) })
+            mediator.listenForever(Listener<Int> { })
+
+            mediator.removeSources(sources.subList(0, 5))
+            Assert.assertFalse("remove error", sources.subList(0, 5).any { it.hasListeners() })
+            Assert.assertTrue("keep error", sources.subList(5, 10).all { it.hasActiveListeners() })
+
+            sources[0].value = 0
+            sources[9].value = 9
+            Assert.assertEquals("dispatch after remove error", listOf<Int?>(9), values)
+
+            // removing sources that were never added or already removed does nothing
+            mediator.removeSources(listOf(sources[0], LiveEvent<Int>()))
+            Assert.assertTrue("keep error", sources.subList(5, 10).all { it.hasActiveListeners() })
+        }
+    }
+
+    /**
+     * Sets a value when it becomes active, so the mediator is called back while plugging it.
+     */
+    class StartingLiveEvent(private val startValue: Int) : LiveEvent<Int>() {
+        override fun onActive() {
+            super.onActive()
+            value = startValue
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.github.panpf.liveevent.test
+
+import android.os.Looper
+import androidx.test.platform.app.InstrumentationRegistry
+import androidx.test.runner.AndroidJUnit4
+import com.github.panpf.liveevent.Listener
+import com.github.panpf.liveevent.LiveEvent
+import org.junit.Assert
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.util.Collections
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+@RunWith(AndroidJUnit4::class)
+class ParallelListenerTest {
+
+    @Test
+    fun testJoin() {
+        val values = Collections.synchronizedList(mutableListOf<String>())
+        val threads = Collections.synchronizedList(mutableListOf<Thread>())
+        InstrumentationRegistry.getInstrumentation().runOnMainSync {
+            val liveEvent = LiveEvent<Int>()
+            liveEvent.setParallelDispatch(null, true)
+            liveEvent.listenForeverParallel(Listener<Int> {
+                threads.add(Thread.currentThread())
+                values.add("index:$it")
+            })
+            liveEvent.listenForeverParallel(Listener<Int> {
+                threads.add(Thread.currentThread())
+                values.add("stats:$it")
+            })
+            liveEvent.listenForever(Listener<Int> {
+                Assert.assertEquals("ui thread error", Looper.getMainLooper(), Looper.myLooper())
+                values.add("ui:$it")
+            })
+
+            liveEvent.value = 1
+            Assert.assertEquals("join error", listOf("index:1", "stats:1", "ui:1"), values.sorted())
+        }
+        Assert.assertEquals("pool thread error", 2, threads.size)
+        Assert.assertFalse("pool thread error", threads.contains(Looper.getMainLooper().thread))
+    }
+
+    @Test
+    fun testJoinError() {
+        var error: Throwable? = null
+        InstrumentationRegistry.getInstrumentation().runOnMainSync {
+            val liveEvent = LiveEvent<Int>()
+            liveEvent.setParallelDispatch(null, true)
+            liveEvent.listenForeverParallel(Listener<Int> { throw AssertionError("listener") })
+            try {
+                liveEvent.value = 1
+            } catch (e: AssertionError) {
+                error = e
+            }
+        }
+        Assert.assertEquals("join error error", "listener", error?.message)
+    }
+
+    @Test
+    fun testNoJoin() {
+        val liveEvent = LiveEvent<Int>()
+        val threads = Collections.synchronizedList(mutableListOf<Thread>())
+        val latch = CountDownLatch(1)
+        InstrumentationRegistry.getInstrumentation().runOnMainSync {
+            liveEvent.listenForeverParallel(Listener {
+                threads.add(Thread.currentThread())
+                latch.countDown()
+            })
+            liveEvent.value = 1
+        }
+        Assert.assertTrue("delivery error", latch.await(5, TimeUnit.SECONDS))
+        Assert.assertEquals("delivery error", 1, threads.size)
+        Assert.assertNotEquals("pool thread error", Looper.getMainLooper().thread, threads[0])
+    }
+}
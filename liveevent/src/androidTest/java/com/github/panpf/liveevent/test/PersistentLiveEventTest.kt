@@ -0,0 +1,194 @@
+package com.github.panpf.liveevent.test
+
+import android.annotation.SuppressLint
+import android.os.Handler
+import android.os.Looper
+import androidx.arch.core.executor.ArchTaskExecutor
+import androidx.arch.core.executor.TaskExecutor
+import androidx.test.platform.app.InstrumentationRegistry
+import androidx.test.runner.AndroidJUnit4
+import com.github.panpf.liveevent.EventCodec
+import com.github.panpf.liveevent.Listener
+import com.github.panpf.liveevent.PersistentLiveEvent
+import org.junit.After
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.io.IOException
+import java.io.InputStream
+import java.io.OutputStream
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.LinkedBlockingQueue
+
+@SuppressLint("RestrictedApi")
+@RunWith(AndroidJUnit4::class)
+class PersistentLiveEventTest {
+
+    private val taskExecutor = TestTaskExecutor(4)
+    private val file = File(InstrumentationRegistry.getInstrumentation().targetContext.cacheDir,
+            "persistent_live_event_test")
+
+    @Before
+    fun setUp() {
+        ArchTaskExecutor.getInstance().setDelegate(taskExecutor)
+        file.delete()
+    }
+
+    @After
+    fun tearDown() {
+        ArchTaskExecutor.getInstance().setDelegate(null)
+        taskExecutor.shutdown()
+        file.delete()
+    }
+
+    @Test
+    fun testRestoreAfterRestart() {
+        val instrumentation = InstrumentationRegistry.getInstrumentation()
+        val liveEvent = PersistentLiveEvent(file, StringCodec())
+        instrumentation.runOnMainSync {
+            liveEvent.value = "a"
+            liveEvent.value = "b"
+        }
+        taskExecutor.drainDiskIO()
+        Assert.assertTrue("write error", file.exists())
+        Assert.assertFalse("temp file error", File(file.path + ".tmp").exists())
+
+        // a new instance on the same file, as after the process was killed
+        val restored = PersistentLiveEvent(file, StringCodec())
+        val values = mutableListOf<String?>()
+        instrumentation.runOnMainSync {
+            restored.listenForeverSticky(Listener<String> { values.add(it) })
+        }
+        taskExecutor.drainDiskIO()
+        instrumentation.waitForIdleSync()
+        instrumentation.runOnMainSync {
+            Assert.assertEquals("restore error", listOf<String?>("b"), values)
+            Assert.assertEquals("restore value error", "b", restored.value)
+            restored.value = null
+        }
+        taskExecutor.drainDiskIO()
+        Assert.assertFalse("delete error", file.exists())
+    }
+
+    @Test
+    fun testWriteOrder() {
+        val instrumentation = InstrumentationRegistry.getInstrumentation()
+        val liveEvent = PersistentLiveEvent(file, StringCodec())
+        // the disk IO threads may run the writes in any order, the last value must win
+        for (i in 1..200) {
+            instrumentation.runOnMainSync { liveEvent.value = i.toString() }
+        }
+        taskExecutor.drainDiskIO()
+
+        val restored = PersistentLiveEvent(file, StringCodec())
+        restored.value
+        taskExecutor.drainDiskIO()
+        instrumentation.waitForIdleSync()
+        instrumentation.runOnMainSync {
+            Assert.assertEquals("write order error", "200", restored.value)
+        }
+    }
+
+    @Test
+    fun testReadError() {
+        val instrumentation = InstrumentationRegistry.getInstrumentation()
+        file.writeBytes(byteArrayOf(0, 1, 'a'.toByte()))
+
+        // an error that is not about the data keeps the file
+        val liveEvent = PersistentLiveEvent(file, object : EventCodec<String> {
+            override fun encode(value: String, out: OutputStream) {
+            }
+
+            override fun decode(inputStream: InputStream): String? {
+                throw IOException("read error")
+            }
+        })
+        liveEvent.value
+        taskExecutor.drainDiskIO()
+        instrumentation.waitForIdleSync()
+        Assert.assertTrue("read error keep error", file.exists())
+
+        val restored = PersistentLiveEvent(file, StringCodec())
+        restored.value
+        taskExecutor.drainDiskIO()
+        instrumentation.waitForIdleSync()
+        instrumentation.runOnMainSync {
+            Assert.assertEquals("restore after read error error", "a", restored.value)
+        }
+    }
+
+    @Test
+    fun testCorruptFile() {
+        val instrumentation = InstrumentationRegistry.getInstrumentation()
+        // the length says more bytes than there are
+        file.writeBytes(byteArrayOf(0, 100, 'a'.toByte()))
+
+        val liveEvent = PersistentLiveEvent(file, StringCodec())
+        val values = mutableListOf<String?>()
+        instrumentation.runOnMainSync {
+            liveEvent.listenForeverSticky(Listener<String> { values.add(it) })
+        }
+        taskExecutor.drainDiskIO()
+        instrumentation.waitForIdleSync()
+        instrumentation.runOnMainSync {
+            Assert.assertEquals("corrupt restore error", emptyList<String?>(), values)
+            Assert.assertNull("corrupt value error", liveEvent.value)
+        }
+        Assert.assertFalse("corrupt file delete error", file.exists())
+
+        instrumentation.runOnMainSync { liveEvent.value = "c" }
+        taskExecutor.drainDiskIO()
+        val restored = PersistentLiveEvent(file, StringCodec())
+        restored.value
+        taskExecutor.drainDiskIO()
+        instrumentation.waitForIdleSync()
+        instrumentation.runOnMainSync {
+            Assert.assertEquals("write after corrupt error", "c", restored.value)
+        }
+    }
+
+    class StringCodec : EventCodec<String> {
+        override fun encode(value: String, out: OutputStream) {
+            DataOutputStream(out).writeUTF(value)
+        }
+
+        override fun decode(inputStream: InputStream): String? {
+            return DataInputStream(inputStream).readUTF()
+        }
+    }
+
+    /**
+     * Runs the disk IO on a pool of threads that the test can wait for.
+     */
+    class TestTaskExecutor(threads: Int) : TaskExecutor() {
+        private val diskIO = Executors.newFixedThreadPool(threads)
+        private val tasks = LinkedBlockingQueue<Future<*>>()
+        private val mainHandler = Handler(Looper.getMainLooper())
+
+        override fun executeOnDiskIO(runnable: Runnable) {
+            tasks.add(diskIO.submit(runnable))
+        }
+
+        override fun postToMainThread(runnable: Runnable) {
+            mainHandler.post(runnable)
+        }
+
+        override fun isMainThread(): Boolean = Looper.getMainLooper().thread == Thread.currentThread()
+
+        fun drainDiskIO() {
+            while (true) {
+                val task = tasks.poll() ?: return
+                task.get()
+            }
+        }
+
+        fun shutdown() {
+            diskIO.shutdown()
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.github.panpf.liveevent.test
+
+import android.os.Handler
+import android.os.Looper
+import androidx.test.platform.app.InstrumentationRegistry
+import androidx.test.runner.AndroidJUnit4
+import com.github.panpf.liveevent.Listener
+import com.github.panpf.liveevent.LiveEvent
+import com.github.panpf.liveevent.Reducer
+import org.junit.Assert
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.util.Collections
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+@RunWith(AndroidJUnit4::class)
+class PostValueReducerTest {
+
+    @Test
+    fun test() {
+        val deltaLiveEvent = LiveEvent<Int>()
+        val values = Collections.synchronizedList(mutableListOf<Int>())
+        InstrumentationRegistry.getInstrumentation().runOnMainSync {
+            deltaLiveEvent.listenForever(Listener { values.add(it) })
+        }
+
+        // the main thread is held until all values are posted, so they are merged into one
+        val blocked = CountDownLatch(1)
+        val release = CountDownLatch(1)
+        Handler(Looper.getMainLooper()).post {
+            blocked.countDown()
+            release.await()
+        }
+        Assert.assertTrue("block main thread error", blocked.await(5, TimeUnit.SECONDS))
+
+        val sum = Reducer<Int> { pending, incoming -> pending!! + incoming!! }
+        val threads = (1..4).map {
+            Thread { repeat(1000) { deltaLiveEvent.postValue(1, sum) } }
+        }
+        threads.forEach { it.start() }
+        threads.forEach { it.join() }
+        release.countDown()
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync()
+
+        Assert.assertEquals("reduce error", listOf(4000), values)
+    }
+}
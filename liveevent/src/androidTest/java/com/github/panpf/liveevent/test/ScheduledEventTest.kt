@@ -0,0 +1,182 @@
+package com.github.panpf.liveevent.test
+
+import androidx.test.platform.app.InstrumentationRegistry
+import androidx.test.runner.AndroidJUnit4
+import com.github.panpf.liveevent.EventClock
+import com.github.panpf.liveevent.Listener
+import com.github.panpf.liveevent.LiveEvent
+import com.github.panpf.liveevent.ScheduledEvent
+import org.junit.After
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@RunWith(AndroidJUnit4::class)
+class ScheduledEventTest {
+
+    private val clock = FakeEventClock()
+
+    @Before
+    fun setUp() {
+        ScheduledEvent.setClock(clock)
+    }
+
+    @After
+    fun tearDown() {
+        ScheduledEvent.setClock(null)
+    }
+
+    @Test
+    fun test() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync {
+            val liveEvent = LiveEvent<Int>()
+            val values = mutableListOf<Int>()
+            liveEvent.listenForever(Listener { values.add(it) })
+
+            liveEvent.postValueDelayed(3, 300)
+            liveEvent.postValueDelayed(1, 100)
+            val cancelled: ScheduledEvent = liveEvent.postValueDelayed(2, 200)
+            liveEvent.postValueDelayed(0, 0)
+            Assert.assertTrue("cancel error", cancelled.cancel())
+            Assert.assertFalse("isPending error", cancelled.isPending)
+            Assert.assertEquals("time error", clock.now + 200, cancelled.timeMillis)
+
+            clock.advance(0)
+            Assert.assertEquals("due error", listOf(0), values)
+
+            clock.advance(99)
+            Assert.assertEquals("early error", listOf(0), values)
+
+            clock.advance(1)
+            Assert.assertEquals("order error", listOf(0, 1), values)
+
+            clock.advance(300)
+            Assert.assertEquals("cancel error", listOf(0, 1, 3), values)
+            Assert.assertFalse("cancel after set error", cancelled.cancel())
+            Assert.assertFalse("wake after empty error", clock.hasWake())
+        }
+    }
+
+    @Test
+    fun testFarAway() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync {
+            val liveEvent = LiveEvent<Int>()
+            val values = mutableListOf<Int>()
+            liveEvent.listenForever(Listener { values.add(it) })
+
+            // in the overflow list and on the upper levels of the wheel
+            val day = 24 * 60 * 60 * 1000L
+            liveEvent.postValueDelayed(3, 20 * day)
+            liveEvent.postValueDelayed(2, day)
+            liveEvent.postValueDelayed(1, 5000)
+
+            clock.advance(5000)
+            Assert.assertEquals("level error", listOf(1), values)
+            clock.advance(day)
+            Assert.assertEquals("level error", listOf(1, 2), values)
+            clock.advance(20 * day)
+            Assert.assertEquals("overflow error", listOf(1, 2, 3), values)
+        }
+    }
+
+    @Test
+    fun testSameTime() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync {
+            val liveEvent = LiveEvent<String>()
+            val values = mutableListOf<String>()
+            liveEvent.listenForever(Listener<String> { values.add(it) })
+
+            liveEvent.postValueDelayed("z1", 0)
+            liveEvent.postValueDelayed("z2", 0)
+            clock.advance(0)
+            Assert.assertEquals("due order error", listOf("z1", "z2"), values)
+
+            // moved down from the upper levels of the wheel in the order they were scheduled
+            values.clear()
+            liveEvent.postValueDelayed("first", 10)
+            liveEvent.postValueDelayed("far first", 5000)
+            liveEvent.postValueDelayed("second", 10)
+            liveEvent.postValueDelayed("far second", 5000)
+            clock.advance(10)
+            Assert.assertEquals("same time order error", listOf("first", "second"), values)
+            Assert.assertEquals("last value error", "second", liveEvent.value)
+            clock.advance(5000)
+            Assert.assertEquals("cascade order error",
+                    listOf("first", "second", "far first", "far second"), values)
+        }
+    }
+
+    @Test
+    fun testOverflow() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync {
+            val liveEvent = LiveEvent<Int>()
+            val values = mutableListOf<Int>()
+            liveEvent.listenForever(Listener<Int> { values.add(it) })
+
+            val scheduled = liveEvent.postValueDelayed(1, Long.MAX_VALUE)
+            Assert.assertEquals("saturate error", Long.MAX_VALUE, scheduled.timeMillis)
+            clock.advance(1000)
+            Assert.assertEquals("overflow error", emptyList<Int>(), values)
+            Assert.assertTrue("cancel error", scheduled.cancel())
+        }
+    }
+
+    @Test
+    fun testCancelWhenInactive() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync {
+            val liveEvent = LiveEvent<Int>()
+            liveEvent.setCancelScheduledWhenInactive(true)
+            val values = mutableListOf<Int>()
+            val listener = Listener<Int> { values.add(it) }
+            liveEvent.listenForever(listener)
+            val scheduled = liveEvent.postValueDelayed(1, 100)
+            liveEvent.removeListener(listener)
+            Assert.assertFalse("isPending error", scheduled.isPending)
+
+            clock.advance(200)
+            Assert.assertEquals("cancel when inactive error", emptyList<Int>(), values)
+        }
+    }
+
+    @Test
+    fun testSetClockWhileScheduled() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync {
+            val scheduled = LiveEvent<Int>().postValueDelayed(1, 100)
+            try {
+                ScheduledEvent.setClock(FakeEventClock())
+                Assert.fail("set clock while scheduled error")
+            } catch (e: IllegalStateException) {
+            }
+            scheduled.cancel()
+        }
+    }
+
+    /**
+     * Runs the wheel on the calling thread, only when the test advances the time.
+     */
+    class FakeEventClock : EventClock {
+        var now = 1000L
+        private var wake: Runnable? = null
+        private var wakeTime = Long.MAX_VALUE
+
+        override fun uptimeMillis(): Long = now
+
+        override fun wakeAt(wake: Runnable, uptimeMillis: Long) {
+            this.wake = if (uptimeMillis != Long.MAX_VALUE) wake else null
+            this.wakeTime = uptimeMillis
+        }
+
+        fun hasWake(): Boolean = wake != null
+
+        fun advance(millis: Long) {
+            now += millis
+            while (wakeTime <= now) {
+                val wake = this.wake!!
+                this.wake = null
+                wakeTime = Long.MAX_VALUE
+                wake.run()
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.github.panpf.liveevent.test
+
+import android.content.ComponentName
+import android.content.Context
+import android.content.Intent
+import android.content.ServiceConnection
+import android.os.IBinder
+import androidx.test.platform.app.InstrumentationRegistry
+import androidx.test.runner.AndroidJUnit4
+import com.github.panpf.liveevent.Listener
+import com.github.panpf.liveevent.LiveEvent
+import com.github.panpf.liveevent.SharedEventCodecs
+import com.github.panpf.liveevent.SharedEventReader
+import com.github.panpf.liveevent.SharedEventWriter
+import org.junit.Assert
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.io.File
+import java.nio.ByteBuffer
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+@RunWith(AndroidJUnit4::class)
+class SharedEventChannelTest {
+
+    @Test
+    fun test() {
+        val instrumentation = InstrumentationRegistry.getInstrumentation()
+        val file = File(instrumentation.targetContext.cacheDir, "shared_event_test")
+        file.delete()
+        val liveEvent = LiveEvent<Int>()
+        val values = mutableListOf<Int?>()
+        val gaps = mutableListOf<LongRange>()
+        instrumentation.runOnMainSync {
+            liveEvent.listenForever(Listener { values.add(it) })
+        }
+
+        val writer = SharedEventWriter(file, 4, 32, SharedEventCodecs.INT)
+        val reader = SharedEventReader(file, SharedEventCodecs.INT, liveEvent)
+        reader.setGapListener(SharedEventReader.GapListener { from, to -> gaps.add(from..to) })
+
+        writer.write(1)
+        writer.write(2)
+        Assert.assertEquals("poll test error", 2, reader.poll())
+        instrumentation.waitForIdleSync()
+        Assert.assertEquals("values test error", listOf<Int?>(1, 2), values)
+
+        for (i in 3..9) {
+            writer.write(i)
+        }
+        writer.write(null)
+        Assert.assertEquals("poll test error", 4, reader.poll())
+        instrumentation.waitForIdleSync()
+        Assert.assertEquals("values test error", listOf(1, 2, 7, 8, 9, null), values)
+        Assert.assertEquals("gaps test error", listOf(3L..6L), gaps)
+
+        Assert.assertEquals("poll test error", 0, reader.poll())
+        reader.close()
+        writer.close()
+        file.delete()
+    }
+
+    @Test
+    fun testBytes() {
+        val instrumentation = InstrumentationRegistry.getInstrumentation()
+        val file = File(instrumentation.targetContext.cacheDir, "shared_event_bytes_test")
+        file.delete()
+        val liveEvent = LiveEvent<ByteBuffer>()
+        val values = mutableListOf<ByteBuffer?>()
+        instrumentation.runOnMainSync {
+            liveEvent.listenForever(Listener<ByteBuffer> { values.add(it) })
+        }
+
+        val writer = SharedEventWriter(file, 4, 32, SharedEventCodecs.BYTES)
+        val reader = SharedEventReader(file, SharedEventCodecs.BYTES, liveEvent)
+        val source = ByteBuffer.wrap(byteArrayOf(1, 2, 3))
+        writer.write(source)
+        Assert.assertEquals("position test error", 0, source.position())
+        Assert.assertEquals("poll test error", 1, reader.poll())
+
+        // the writer reuses the slot before the value is delivered, the value is a copy
+        for (i in 0 until 4) {
+            writer.write(ByteBuffer.wrap(byteArrayOf(9, 9, 9)))
+        }
+        instrumentation.waitForIdleSync()
+        Assert.assertEquals("bytes test error", 1, values.size)
+        val value = values[0]!!
+        Assert.assertEquals("bytes test error", 3, value.remaining())
+        Assert.assertEquals("bytes test error", listOf<Byte>(1, 2, 3),
+                listOf(value.get(0), value.get(1), value.get(2)))
+        reader.close()
+        writer.close()
+        file.delete()
+    }
+
+    @Test
+    fun testTwoProcesses() {
+        val instrumentation = InstrumentationRegistry.getInstrumentation()
+        val context = instrumentation.targetContext
+        val file = File(context.cacheDir, "shared_event_process_test")
+        file.delete()
+        // created here so that the reader can open it, the other process takes it over
+        SharedEventWriter(file, SharedEventWriterService.SLOT_COUNT,
+                SharedEventWriterService.SLOT_SIZE, SharedEventCodecs.INT).close()
+        val count = 100
+        val liveEvent = LiveEvent<Int>()
+        val values = mutableListOf<Int?>()
+        val latch = CountDownLatch(1)
+        instrumentation.runOnMainSync {
+            liveEvent.listenForever(Listener {
+                values.add(it)
+                if (it == count) {
+                    latch.countDown()
+                }
+            })
+        }
+        val reader = SharedEventReader(file, SharedEventCodecs.INT, liveEvent)
+        reader.start(5)
+
+        val connection = object : ServiceConnection {
+            override fun onServiceConnected(name: ComponentName, service: IBinder) {
+            }
+
+            override fun onServiceDisconnected(name: ComponentName) {
+            }
+        }
+        val intent = Intent(context, SharedEventWriterService::class.java)
+                .putExtra(SharedEventWriterService.EXTRA_FILE, file.path)
+                .putExtra(SharedEventWriterService.EXTRA_COUNT, count)
+        context.bindService(intent, connection, Context.BIND_AUTO_CREATE)
+        try {
+            Assert.assertTrue("timeout error", latch.await(10, TimeUnit.SECONDS))
+        } finally {
+            context.unbindService(connection)
+            reader.close()
+            file.delete()
+        }
+        instrumentation.runOnMainSync {
+            Assert.assertEquals("values test error", (1..count).toList(), values)
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.github.panpf.liveevent.test
+
+import android.app.Service
+import android.content.Intent
+import android.os.Binder
+import android.os.IBinder
+import com.github.panpf.liveevent.SharedEventCodecs
+import com.github.panpf.liveevent.SharedEventWriter
+import java.io.File
+
+/**
+ * Runs in its own process, see the test manifest, and writes the values 1 to count.
+ */
+class SharedEventWriterService : Service() {
+
+    override fun onBind(intent: Intent): IBinder {
+        val file = File(intent.getStringExtra(EXTRA_FILE)!!)
+        val count = intent.getIntExtra(EXTRA_COUNT, 0)
+        Thread {
+            SharedEventWriter(file, SLOT_COUNT, SLOT_SIZE, SharedEventCodecs.INT).use { writer ->
+                for (i in 1..count) {
+                    writer.write(i)
+                }
+            }
+        }.start()
+        return Binder()
+    }
+
+    companion object {
+        const val EXTRA_FILE = "file"
+        const val EXTRA_COUNT = "count"
+        const val SLOT_COUNT = 256
+        const val SLOT_SIZE = 32
+    }
+}
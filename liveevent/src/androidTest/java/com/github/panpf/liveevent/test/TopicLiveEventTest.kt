@@ -0,0 +1,48 @@
+package com.github.panpf.liveevent.test
+
+import androidx.test.platform.app.InstrumentationRegistry
+import androidx.test.runner.AndroidJUnit4
+import com.github.panpf.liveevent.Listener
+import com.github.panpf.liveevent.TopicLiveEvent
+import com.github.panpf.liveevent.TopicMessage
+import org.junit.Assert
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@RunWith(AndroidJUnit4::class)
+class TopicLiveEventTest {
+
+    @Test
+    fun test() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync {
+            val topicLiveEvent = TopicLiveEvent<Int>()
+            val exactTopics = mutableListOf<String>()
+            val singleTopics = mutableListOf<String>()
+            val multiTopics = mutableListOf<String>()
+            val exactListener = Listener<TopicMessage<Int>> { exactTopics.add(it!!.topic) }
+            val singleListener = Listener<TopicMessage<Int>> { singleTopics.add(it!!.topic) }
+            val multiListener = Listener<TopicMessage<Int>> { multiTopics.add(it!!.topic) }
+            topicLiveEvent.listenForever("download/1/progress", exactListener)
+            topicLiveEvent.listenForever("download/*/progress", singleListener)
+            topicLiveEvent.listenForever("download/**", multiListener)
+
+            topicLiveEvent.setValue("download/1/progress", 1)
+            topicLiveEvent.setValue("download/2/progress", 2)
+            topicLiveEvent.setValue("download/2/state", 3)
+            topicLiveEvent.setValue("download", 4)
+            topicLiveEvent.setValue("upload/1/progress", 5)
+            Assert.assertEquals("exact error", listOf("download/1/progress"), exactTopics)
+            Assert.assertEquals("single wildcard error",
+                    listOf("download/1/progress", "download/2/progress"), singleTopics)
+            Assert.assertEquals("multi wildcard error",
+                    listOf("download/1/progress", "download/2/progress", "download/2/state"),
+                    multiTopics)
+
+            topicLiveEvent.removeListener("download/1/progress", exactListener)
+            topicLiveEvent.removeListener("download/*/progress", singleListener)
+            Assert.assertTrue("remove error", topicLiveEvent.hasListeners("download/1/progress"))
+            topicLiveEvent.removeListener("download/**", multiListener)
+            Assert.assertFalse("remove error", topicLiveEvent.hasListeners("download/1/progress"))
+        }
+    }
+}
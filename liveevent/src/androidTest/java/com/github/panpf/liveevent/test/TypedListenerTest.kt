@@ -0,0 +1,97 @@
+package com.github.panpf.liveevent.test
+
+import androidx.test.platform.app.InstrumentationRegistry
+import androidx.test.runner.AndroidJUnit4
+import com.github.panpf.liveevent.Listener
+import com.github.panpf.liveevent.LiveEvent
+import org.junit.Assert
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@RunWith(AndroidJUnit4::class)
+class TypedListenerTest {
+
+    @Test
+    fun testRouting() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync {
+            val liveEvent = LiveEvent<UiEvent>()
+            val calls = mutableListOf<String>()
+            liveEvent.listenForever(Listener<UiEvent> { calls.add("all:$it") })
+            liveEvent.listenForever(Click::class.java, Listener<Click> { calls.add("click:$it") })
+            liveEvent.listenForever(LongClick::class.java,
+                    Listener<LongClick> { calls.add("longClick:$it") })
+            liveEvent.listenForever(Scroll::class.java, Listener<Scroll> { calls.add("scroll:$it") })
+
+            liveEvent.value = Click()
+            Assert.assertEquals("type error", listOf("all:Click", "click:Click"), calls)
+
+            // a subclass reaches the listeners of its superclasses too, in the order they were added
+            calls.clear()
+            liveEvent.value = LongClick()
+            Assert.assertEquals("subclass error",
+                    listOf("all:LongClick", "click:LongClick", "longClick:LongClick"), calls)
+
+            calls.clear()
+            liveEvent.value = Scroll()
+            Assert.assertEquals("other type error", listOf("all:Scroll", "scroll:Scroll"), calls)
+
+            // null is no instance of any type
+            calls.clear()
+            liveEvent.value = null
+            Assert.assertEquals("null error", listOf("all:null"), calls)
+
+            // the routes are cached per class, a repeated class routes the same way
+            calls.clear()
+            liveEvent.value = Click()
+            Assert.assertEquals("cached route error", listOf("all:Click", "click:Click"), calls)
+        }
+    }
+
+    @Test
+    fun testSticky() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync {
+            val liveEvent = LiveEvent<UiEvent>()
+            liveEvent.value = Scroll()
+            val clicks = mutableListOf<String>()
+            liveEvent.listenForeverSticky(Click::class.java, Listener<Click> { clicks.add("$it") })
+            Assert.assertEquals("sticky other type error", emptyList<String>(), clicks)
+
+            liveEvent.value = LongClick()
+            val stickyClicks = mutableListOf<String>()
+            liveEvent.listenForeverSticky(Click::class.java,
+                    Listener<Click> { stickyClicks.add("$it") })
+            Assert.assertEquals("sticky subclass error", listOf("LongClick"), stickyClicks)
+            Assert.assertEquals("dispatch after skip error", listOf("LongClick"), clicks)
+
+            liveEvent.value = null
+            val nullValues = mutableListOf<String>()
+            liveEvent.listenForeverSticky(Click::class.java, Listener<Click> { nullValues.add("$it") })
+            Assert.assertEquals("sticky null error", emptyList<String>(), nullValues)
+        }
+    }
+
+    @Test
+    fun testRemove() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync {
+            val liveEvent = LiveEvent<UiEvent>()
+            val clicks = mutableListOf<String>()
+            val listener = Listener<Click> { clicks.add("$it") }
+            liveEvent.listenForever(Click::class.java, listener)
+            liveEvent.value = Click()
+            liveEvent.removeListener(Click::class.java, listener)
+            liveEvent.value = Click()
+            Assert.assertEquals("remove error", listOf("Click"), clicks)
+            Assert.assertFalse("remove error", liveEvent.hasListeners())
+        }
+    }
+
+    abstract class UiEvent {
+        override fun toString(): String = javaClass.simpleName
+    }
+
+    open class Click : UiEvent()
+
+    class LongClick : Click()
+
+    class Scroll : UiEvent()
+}
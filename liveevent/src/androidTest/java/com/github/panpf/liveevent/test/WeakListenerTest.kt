@@ -0,0 +1,110 @@
+package com.github.panpf.liveevent.test
+
+import androidx.test.platform.app.InstrumentationRegistry
+import androidx.test.runner.AndroidJUnit4
+import com.github.panpf.liveevent.Listener
+import com.github.panpf.liveevent.LiveEvent
+import org.junit.Assert
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.lang.ref.WeakReference
+
+@RunWith(AndroidJUnit4::class)
+class WeakListenerTest {
+
+    @Test
+    fun testRemove() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync {
+            val liveEvent = CountingLiveEvent()
+            // equal but different listeners are different registrations
+            val listener1 = EqualListener()
+            val listener2 = EqualListener()
+            val strongListener = Listener<Int> { }
+            liveEvent.listenForeverWeak(listener1)
+            liveEvent.listenForeverWeak(listener2)
+            liveEvent.listenForeverWeak(listener1)
+            liveEvent.listenForever(strongListener)
+            Assert.assertEquals("active count error", 1, liveEvent.activeCount)
+
+            liveEvent.value = 1
+            Assert.assertEquals("dispatch error", 1, listener1.count)
+            Assert.assertEquals("dispatch error", 1, listener2.count)
+
+            liveEvent.removeListener(listener1)
+            liveEvent.value = 2
+            Assert.assertEquals("remove error", 1, listener1.count)
+            Assert.assertEquals("remove other error", 2, listener2.count)
+
+            liveEvent.removeListener(strongListener)
+            liveEvent.removeListener(listener2)
+            Assert.assertFalse("remove all error", liveEvent.hasListeners())
+            Assert.assertEquals("active count error", 0, liveEvent.activeCount)
+        }
+    }
+
+    @Test
+    fun testCollected() {
+        val liveEvent = CountingLiveEvent()
+        var reference: WeakReference<Listener<Int>>? = null
+        InstrumentationRegistry.getInstrumentation().runOnMainSync {
+            reference = listenWeak(liveEvent)
+            Assert.assertTrue("active error", liveEvent.hasActiveListeners())
+        }
+
+        val start = System.currentTimeMillis()
+        while (reference!!.get() != null && System.currentTimeMillis() - start < 5000) {
+            Runtime.getRuntime().gc()
+            System.runFinalization()
+        }
+        Assert.assertNull("collect error", reference!!.get())
+
+        InstrumentationRegistry.getInstrumentation().runOnMainSync {
+            // the collected listener is removed with the next dispatch
+            liveEvent.value = 1
+            Assert.assertFalse("expunge error", liveEvent.hasListeners())
+            Assert.assertFalse("active error", liveEvent.hasActiveListeners())
+            Assert.assertEquals("active count error", 0, liveEvent.activeCount)
+        }
+    }
+
+    /**
+     * In its own method, so no local variable keeps the listener reachable.
+     */
+    private fun listenWeak(liveEvent: LiveEvent<Int>): WeakReference<Listener<Int>> {
+        val listener = EqualListener()
+        liveEvent.listenForeverWeak(listener)
+        return WeakReference(listener)
+    }
+
+    /**
+     * Counts onActive and onInactive, which follow the number of active listeners.
+     */
+    class CountingLiveEvent : LiveEvent<Int>() {
+        var activeCount = 0
+
+        override fun onActive() {
+            super.onActive()
+            activeCount++
+        }
+
+        override fun onInactive() {
+            super.onInactive()
+            activeCount--
+        }
+    }
+
+    /**
+     * All instances are equal, the listeners must still be told apart by identity.
+     */
+    class EqualListener : Listener<Int> {
+        var count = 0
+
+        override fun onChanged(t: Int?) {
+            count++
+        }
+
+        override fun equals(other: Any?): Boolean = other is EqualListener
+
+        override fun hashCode(): Int = 1
+    }
+}
@@ -0,0 +1,73 @@
+package com.github.panpf.liveevent;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * The LiveEvent behind {@link ListLiveEvent} and {@link MapLiveEvent}, whose values are change
+ * sets. A change set only makes sense to a listener that has received the one before it, so a
+ * listener that missed one, like a lifecycle-bound listener that was stopped or a sticky listener
+ * that was just added, receives a reset with the whole collection instead.
+ * <p>
+ * A reset always contains the changes that were not dispatched yet, so that no copy of the
+ * collection has to be kept. A listener that receives such a reset skips the next change set,
+ * so while {@link #isResetAhead()} the subclass must dispatch the pending changes before it makes
+ * another one, and dispatch them even if they cancelled each other out.
+ *
+ * @param <C> The type of the change sets
+ */
+abstract class ChangeSetLiveEvent<C> extends LiveEvent<C> {
+    // whether a listener received a reset with the pending changes and waits for the next
+    // change set to be dispatched
+    private boolean mResetAhead;
+
+    /**
+     * Returns a change set that tells the listeners to rebuild from the whole collection.
+     */
+    @NonNull
+    abstract C createReset();
+
+    /**
+     * Returns true if the collection has changes that were not dispatched yet.
+     */
+    abstract boolean hasPendingChanges();
+
+    /**
+     * Returns true if a listener received a reset that contains the pending changes, the next
+     * change set must be dispatched then.
+     */
+    boolean isResetAhead() {
+        return mResetAhead;
+    }
+
+    @MainThread
+    @Override
+    public void setValue(C value) {
+        mResetAhead = false;
+        super.setValue(value);
+    }
+
+    @Nullable
+    @Override
+    Object valueFor(int lastVersion) {
+        if (isIncremental(lastVersion)) {
+            return super.valueFor(lastVersion);
+        }
+        return createReset();
+    }
+
+    @Override
+    int versionAfter(int lastVersion) {
+        if (isIncremental(lastVersion) || !hasPendingChanges()) {
+            return super.versionAfter(lastVersion);
+        }
+        // the reset contains the next change set already
+        mResetAhead = true;
+        return getVersion() + 1;
+    }
+
+    private boolean isIncremental(int lastVersion) {
+        return lastVersion != START_VERSION && lastVersion == getVersion() - 1;
+    }
+}
@@ -0,0 +1,23 @@
+package com.github.panpf.liveevent;
+
+import android.view.Choreographer;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+
+/**
+ * A {@link FrameClock} driven by the {@link Choreographer} of the main thread.
+ */
+public class ChoreographerFrameClock implements FrameClock {
+
+    @MainThread
+    @Override
+    public void postFrameCallback(@NonNull final Runnable callback) {
+        Choreographer.getInstance().postFrameCallback(new Choreographer.FrameCallback() {
+            @Override
+            public void doFrame(long frameTimeNanos) {
+                callback.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,215 @@
+package com.github.panpf.liveevent;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * An event for thread-safe listeners that do not touch the UI, such as analytics or cache
+ * invalidation. Unlike {@link LiveEvent} it is not bound to the main thread or to a lifecycle:
+ * {@link #setValue(Object)} can be called on any thread and dispatches on that thread, and large
+ * listener sets are split across the threads of an {@link Executor}.
+ * <p>
+ * Each listener receives a value at most once and never receives a value older than one it has
+ * already received, this is checked per listener without locking. When values are set
+ * concurrently a listener may be called concurrently too, and may skip a value that was
+ * overtaken by a newer one.
+ *
+ * @param <T> The type of the value
+ */
+public class ConcurrentLiveEvent<T> {
+    static final int START_VERSION = -1;
+
+    private final AtomicReference<Value<T>> mValue;
+    private final CopyOnWriteArrayList<ListenerEntry<T>> mListeners =
+            new CopyOnWriteArrayList<>();
+    @Nullable
+    private final Executor mExecutor;
+    private final int mParallelThreshold;
+    private final boolean mJoin;
+    private final int mParallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Creates a ConcurrentLiveEvent that calls all listeners on the thread calling
+     * {@link #setValue(Object)}.
+     */
+    public ConcurrentLiveEvent() {
+        this(null, Integer.MAX_VALUE, true);
+    }
+
+    /**
+     * Creates a ConcurrentLiveEvent that splits its listeners across the threads of
+     * {@code executor} once there are at least {@code parallelThreshold} of them.
+     *
+     * @param executor          The pool the listeners run on, null to use a shared pool with
+     *                          one thread per CPU core
+     * @param parallelThreshold The number of listeners from which on they are called in parallel
+     * @param join              Whether {@link #setValue(Object)} waits until all listeners have
+     *                          been called. Otherwise it returns once the calling thread has
+     *                          called its share of them
+     */
+    public ConcurrentLiveEvent(@Nullable Executor executor, int parallelThreshold, boolean join) {
+        mExecutor = executor;
+        mParallelThreshold = parallelThreshold;
+        mJoin = join;
+        mValue = new AtomicReference<>(new Value<T>(START_VERSION, null));
+    }
+
+    /**
+     * Sets the value and dispatches it to the listeners. Can be called on any thread.
+     *
+     * @param value The new value
+     */
+    @AnyThread
+    public void setValue(T value) {
+        Value<T> current;
+        Value<T> newValue;
+        do {
+            current = mValue.get();
+            newValue = new Value<>(current.mVersion + 1, value);
+        } while (!mValue.compareAndSet(current, newValue));
+        dispatch(newValue);
+    }
+
+    private void dispatch(@NonNull final Value<T> value) {
+        // one consistent snapshot, even if listeners are added or removed meanwhile
+        Object[] entries = mListeners.toArray();
+        int size = entries.length;
+        if (size == 0) {
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        List<ListenerEntry<T>> snapshot =
+                (List<ListenerEntry<T>>) (List<?>) Arrays.asList(entries);
+        if (size < mParallelThreshold) {
+            for (int i = 0; i < size; i++) {
+                snapshot.get(i).deliver(value);
+            }
+            return;
+        }
+        Executor executor = mExecutor != null ? mExecutor : ParallelFanOut.getDefaultExecutor();
+        int chunkSize = Math.max(1, (size + mParallelism - 1) / mParallelism);
+        ParallelFanOut.run(snapshot, executor, chunkSize, mJoin,
+                new ParallelFanOut.ItemTask<ListenerEntry<T>>() {
+                    @Override
+                    public void run(ListenerEntry<T> item) {
+                        item.deliver(value);
+                    }
+                });
+    }
+
+    /**
+     * Returns the current value, null if no value was set.
+     *
+     * @return the current value
+     */
+    @Nullable
+    public T getValue() {
+        return mValue.get().mData;
+    }
+
+    /**
+     * Adds the given listener, it receives the values set after this call. If the listener is
+     * already added the call is ignored.
+     *
+     * @param listener The listener that will receive the events
+     */
+    @AnyThread
+    public void listenForever(@NonNull Listener<? super T> listener) {
+        addListener(listener, false);
+    }
+
+    /**
+     * Adds the given listener, if a value was set it is delivered on the calling thread right
+     * away. If the listener is already added the call is ignored.
+     *
+     * @param listener The listener that will receive the events
+     */
+    @AnyThread
+    public void listenForeverSticky(@NonNull Listener<? super T> listener) {
+        addListener(listener, true);
+    }
+
+    private void addListener(@NonNull Listener<? super T> listener, boolean sticky) {
+        Value<T> current = mValue.get();
+        ListenerEntry<T> entry = new ListenerEntry<>(listener,
+                sticky ? START_VERSION : current.mVersion);
+        if (!mListeners.addIfAbsent(entry)) {
+            return;
+        }
+        if (sticky && current.mVersion != START_VERSION) {
+            // a newer value may have been dispatched already, deliver skips it then
+            entry.deliver(mValue.get());
+        }
+    }
+
+    /**
+     * Removes the given listener. A dispatch that is running may still deliver to it.
+     *
+     * @param listener The listener to remove
+     */
+    @AnyThread
+    public void removeListener(@NonNull Listener<? super T> listener) {
+        mListeners.remove(new ListenerEntry<T>(listener, START_VERSION));
+    }
+
+    /**
+     * Returns true if this ConcurrentLiveEvent has listeners.
+     *
+     * @return true if this ConcurrentLiveEvent has listeners
+     */
+    public boolean hasListeners() {
+        return !mListeners.isEmpty();
+    }
+
+    private static class Value<T> {
+        final int mVersion;
+        @Nullable
+        final T mData;
+
+        Value(int version, @Nullable T data) {
+            mVersion = version;
+            mData = data;
+        }
+    }
+
+    private static class ListenerEntry<T> {
+        @NonNull
+        final Listener<? super T> mListener;
+        final AtomicInteger mLastVersion;
+
+        ListenerEntry(@NonNull Listener<? super T> listener, int lastVersion) {
+            mListener = listener;
+            mLastVersion = new AtomicInteger(lastVersion);
+        }
+
+        void deliver(@NonNull Value<T> value) {
+            int lastVersion;
+            do {
+                lastVersion = mLastVersion.get();
+                if (lastVersion >= value.mVersion) {
+                    return;
+                }
+            } while (!mLastVersion.compareAndSet(lastVersion, value.mVersion));
+            mListener.onChanged(value.mData);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof ListenerEntry
+                    && ((ListenerEntry<?>) o).mListener.equals(mListener);
+        }
+
+        @Override
+        public int hashCode() {
+            return mListener.hashCode();
+        }
+    }
+}
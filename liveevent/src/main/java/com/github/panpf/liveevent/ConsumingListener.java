@@ -0,0 +1,31 @@
+package com.github.panpf.liveevent;
+
+import androidx.annotation.Nullable;
+
+/**
+ * A {@link Listener} that can consume an event, so that no listener after it in the dispatch order
+ * receives it, neither one with a lower priority nor one with the same priority that was added
+ * later. Mostly useful for events like back presses or deep links, which should be handled
+ * by one listener only.
+ * <p>
+ * A LiveEvent calls {@link #onConsume(Object)} instead of {@link #onChanged(Object)}.
+ *
+ * @param <T> The type of the parameter
+ *
+ * @see LiveEvent#listen(androidx.lifecycle.LifecycleOwner, int, Listener)
+ */
+public interface ConsumingListener<T> extends Listener<T> {
+
+    /**
+     * Called when the data is changed.
+     *
+     * @param t The new data
+     * @return true if the event was handled and must not reach the listeners after this one
+     */
+    boolean onConsume(@Nullable T t);
+
+    @Override
+    default void onChanged(@Nullable T t) {
+        onConsume(t);
+    }
+}
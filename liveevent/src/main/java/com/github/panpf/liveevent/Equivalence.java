@@ -0,0 +1,52 @@
+package com.github.panpf.liveevent;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Decides when two values count as the same, for example the inputs cached by
+ * {@link LiveEventTransformations#memoMap}.
+ *
+ * @param <T> The type of the values
+ */
+public interface Equivalence<T> {
+    /**
+     * Uses {@link Object#equals(Object)} and {@link Object#hashCode()}, null is equivalent to
+     * null only.
+     */
+    Equivalence<Object> EQUALS = new Equivalence<Object>() {
+        @Override
+        public boolean equivalent(@Nullable Object a, @Nullable Object b) {
+            return a == null ? b == null : a.equals(b);
+        }
+
+        @Override
+        public int hash(@Nullable Object value) {
+            return value != null ? value.hashCode() : 0;
+        }
+    };
+
+    /**
+     * Uses the identity of the values, for inputs that are compared by reference.
+     */
+    Equivalence<Object> IDENTITY = new Equivalence<Object>() {
+        @Override
+        public boolean equivalent(@Nullable Object a, @Nullable Object b) {
+            return a == b;
+        }
+
+        @Override
+        public int hash(@Nullable Object value) {
+            return System.identityHashCode(value);
+        }
+    };
+
+    /**
+     * @return true if {@code a} and {@code b} count as the same value
+     */
+    boolean equivalent(@Nullable T a, @Nullable T b);
+
+    /**
+     * @return a hash code that is equal for equivalent values
+     */
+    int hash(@Nullable T value);
+}
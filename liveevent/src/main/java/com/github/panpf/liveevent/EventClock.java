@@ -0,0 +1,33 @@
+package com.github.panpf.liveevent;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.NonNull;
+
+/**
+ * The clock and the main thread that drive the values scheduled with
+ * {@link LiveEvent#postValueDelayed(Object, long)}, see
+ * {@link ScheduledEvent#setClock(EventClock)}.
+ *
+ * @see MainThreadEventClock
+ */
+public interface EventClock {
+    /**
+     * Returns the current time in milliseconds, the time base of
+     * {@link LiveEvent#postValueAt(Object, long)}.
+     *
+     * @return the current time in milliseconds
+     */
+    @AnyThread
+    long uptimeMillis();
+
+    /**
+     * Runs {@code wake} on the main thread at {@code uptimeMillis}, replacing the previous request
+     * for it. {@code Long.MAX_VALUE} only cancels the previous request. Running it earlier or
+     * more than once is allowed.
+     *
+     * @param wake         The runnable to run
+     * @param uptimeMillis The time in the time base of {@link #uptimeMillis()}
+     */
+    @AnyThread
+    void wakeAt(@NonNull Runnable wake, long uptimeMillis);
+}
@@ -0,0 +1,43 @@
+package com.github.panpf.liveevent;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+
+/**
+ * Converts the values of a {@link LiveEvent} to and from bytes.
+ *
+ * @param <T> The type of the value
+ *
+ * @see PersistentLiveEvent
+ */
+public interface EventCodec<T> {
+    /**
+     * Writes the given value to {@code out}. The stream must not be closed.
+     *
+     * @param value The value to write, never null
+     * @param out   The stream to write to
+     * @throws IOException If writing fails
+     */
+    void encode(@NonNull T value, @NonNull OutputStream out) throws IOException;
+
+    /**
+     * Reads a value written by {@link #encode(Object, OutputStream)} from {@code in}. The stream
+     * must not be closed.
+     * <p>
+     * Invalid data must be reported with a {@link StreamCorruptedException}, data that ends too
+     * early with an {@link java.io.EOFException}. {@link PersistentLiveEvent} deletes the file
+     * then, other exceptions leave it alone so it can be read again after the next start.
+     *
+     * @param in The stream to read from
+     * @return The decoded value
+     * @throws StreamCorruptedException If the data is invalid
+     * @throws IOException              If reading fails
+     */
+    @Nullable
+    T decode(@NonNull InputStream in) throws IOException;
+}
@@ -0,0 +1,65 @@
+package com.github.panpf.liveevent;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The listeners registered by {@link LiveEventSubscribers#register(LifecycleOwner, Object)}.
+ * <p>
+ * The lifecycle-bound listeners are removed automatically when the owner is destroyed, call
+ * {@link #unregister()} to remove all of them earlier or to remove the forever listeners.
+ */
+public class EventSubscription {
+    private final List<LiveEvent<?>> mEvents = new ArrayList<>();
+    private final List<Listener<?>> mListeners = new ArrayList<>();
+
+    @MainThread
+    public <T> void listen(@NonNull LiveEvent<T> event, @NonNull LifecycleOwner owner,
+            @NonNull Listener<? super T> listener) {
+        event.listen(owner, listener);
+        add(event, listener);
+    }
+
+    @MainThread
+    public <T> void listenSticky(@NonNull LiveEvent<T> event, @NonNull LifecycleOwner owner,
+            @NonNull Listener<? super T> listener) {
+        event.listenSticky(owner, listener);
+        add(event, listener);
+    }
+
+    @MainThread
+    public <T> void listenForever(@NonNull LiveEvent<T> event,
+            @NonNull Listener<? super T> listener) {
+        event.listenForever(listener);
+        add(event, listener);
+    }
+
+    @MainThread
+    public <T> void listenForeverSticky(@NonNull LiveEvent<T> event,
+            @NonNull Listener<? super T> listener) {
+        event.listenForeverSticky(listener);
+        add(event, listener);
+    }
+
+    private void add(@NonNull LiveEvent<?> event, @NonNull Listener<?> listener) {
+        mEvents.add(event);
+        mListeners.add(listener);
+    }
+
+    /**
+     * Removes all listeners of this subscription.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    @MainThread
+    public void unregister() {
+        for (int i = 0; i < mEvents.size(); i++) {
+            ((LiveEvent) mEvents.get(i)).removeListener((Listener) mListeners.get(i));
+        }
+        mEvents.clear();
+        mListeners.clear();
+    }
+}
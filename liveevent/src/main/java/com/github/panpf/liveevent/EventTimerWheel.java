@@ -0,0 +1,406 @@
+package com.github.panpf.liveevent;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the values scheduled with {@link LiveEvent#postValueDelayed(Object, long)} in a
+ * hierarchical timer wheel that ticks once per millisecond. Level 0 has a slot per tick of the
+ * current 64 ticks, every further level has a slot per block of the level below, values are
+ * moved down a level when their block starts. Scheduling and cancelling are O(1), and the whole
+ * wheel posts only one message to the main thread at a time, for the next tick with work.
+ * <p>
+ * Values are appended to the tail of their slot, so values with the same time are set in the
+ * order they were scheduled and the last one wins.
+ */
+class EventTimerWheel {
+    private static final int SLOT_BITS = 6;
+    private static final int SLOT_COUNT = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOT_COUNT - 1;
+    // 2^30 ms, about 12 days, later values wait in the overflow list
+    private static final int LEVEL_COUNT = 5;
+    private static final int LEVEL_OVERFLOW = LEVEL_COUNT;
+    private static final int LEVEL_DUE = LEVEL_COUNT + 1;
+
+    private static EventTimerWheel sDefault;
+
+    @NonNull
+    private final EventClock mClock;
+    // the heads and tails of the doubly-linked slot lists, guarded by this
+    private final ScheduledEvent[][] mSlots = new ScheduledEvent[LEVEL_COUNT][SLOT_COUNT];
+    private final ScheduledEvent[][] mSlotTails = new ScheduledEvent[LEVEL_COUNT][SLOT_COUNT];
+    @Nullable
+    private ScheduledEvent mOverflow;
+    @Nullable
+    private ScheduledEvent mOverflowTail;
+    // values whose time had already come when they were scheduled
+    @Nullable
+    private ScheduledEvent mDue;
+    @Nullable
+    private ScheduledEvent mDueTail;
+    private int mSize;
+    private long mCurrentTick;
+    private long mWakeTick = Long.MAX_VALUE;
+    private final Runnable mWakeRunnable = new Runnable() {
+        @Override
+        public void run() {
+            onWake();
+        }
+    };
+
+    EventTimerWheel(@NonNull EventClock clock) {
+        mClock = clock;
+        mCurrentTick = clock.uptimeMillis();
+    }
+
+    @NonNull
+    static synchronized EventTimerWheel getDefault() {
+        if (sDefault == null) {
+            sDefault = new EventTimerWheel(new MainThreadEventClock());
+        }
+        return sDefault;
+    }
+
+    /**
+     * Replaces the default wheel with one on {@code clock}. The LiveEvents keep their scheduled
+     * values in one list for the wheel, so no value may be pending in the current one.
+     */
+    static synchronized void setDefaultClock(@NonNull EventClock clock) {
+        if (sDefault != null) {
+            synchronized (sDefault) {
+                if (sDefault.mSize != 0) {
+                    throw new IllegalStateException("Cannot change the clock while "
+                            + sDefault.mSize + " values are scheduled");
+                }
+            }
+        }
+        sDefault = new EventTimerWheel(clock);
+    }
+
+    long uptimeMillis() {
+        return mClock.uptimeMillis();
+    }
+
+    /**
+     * Returns the time {@code delayMillis} from now, Long.MAX_VALUE if that does not fit in a
+     * long. A negative delay counts as 0.
+     */
+    long timeAfter(long delayMillis) {
+        long now = mClock.uptimeMillis();
+        long delay = Math.max(0, delayMillis);
+        return delay > Long.MAX_VALUE - now ? Long.MAX_VALUE : now + delay;
+    }
+
+    @NonNull
+    ScheduledEvent schedule(@NonNull LiveEvent<?> target, @Nullable Object value, long time) {
+        ScheduledEvent event = new ScheduledEvent(this, target, value, time);
+        add(event);
+        return event;
+    }
+
+    /**
+     * Runs {@code action} on the main thread after {@code delayMillis}.
+     */
+    @NonNull
+    ScheduledEvent scheduleAction(@NonNull Runnable action, long delayMillis) {
+        ScheduledEvent event = new ScheduledEvent(this, action, timeAfter(delayMillis));
+        add(event);
+        return event;
+    }
+
+    private void add(@NonNull ScheduledEvent event) {
+        long time = event.mTime;
+        LiveEvent<?> target = event.mTarget;
+        synchronized (this) {
+            if (mSize == 0) {
+                // nothing to move down the levels, skip the idle ticks
+                mCurrentTick = Math.max(mCurrentTick, mClock.uptimeMillis());
+            }
+            if (time <= mCurrentTick) {
+                link(event, LEVEL_DUE, 0);
+            } else {
+                insert(event);
+            }
+            if (target != null) {
+                // the scheduled values of the target, to cancel them when it becomes inactive
+                event.mTargetNext = target.mScheduledEvents;
+                if (target.mScheduledEvents != null) {
+                    target.mScheduledEvents.mTargetPrev = event;
+                }
+                target.mScheduledEvents = event;
+            }
+            mSize++;
+            updateWake();
+        }
+    }
+
+    synchronized boolean cancel(@NonNull ScheduledEvent event) {
+        if (event.mState == ScheduledEvent.STATE_DUE) {
+            event.mState = ScheduledEvent.STATE_CANCELLED;
+            return true;
+        }
+        if (event.mState != ScheduledEvent.STATE_PENDING) {
+            return false;
+        }
+        unlinkSlot(event);
+        unlinkTarget(event);
+        mSize--;
+        event.mState = ScheduledEvent.STATE_CANCELLED;
+        return true;
+    }
+
+    /**
+     * Cancels all pending values of {@code target}.
+     */
+    synchronized void cancelAll(@NonNull LiveEvent<?> target) {
+        ScheduledEvent event = target.mScheduledEvents;
+        while (event != null) {
+            ScheduledEvent next = event.mTargetNext;
+            cancel(event);
+            event = next;
+        }
+    }
+
+    /**
+     * Returns false if the value was cancelled after it was taken from the wheel.
+     */
+    synchronized boolean markDone(@NonNull ScheduledEvent event) {
+        if (event.mState != ScheduledEvent.STATE_DUE) {
+            return false;
+        }
+        event.mState = ScheduledEvent.STATE_DONE;
+        return true;
+    }
+
+    @MainThread
+    @SuppressWarnings("WeakerAccess") /* synthetic access */
+    void onWake() {
+        List<ScheduledEvent> fired = new ArrayList<>();
+        synchronized (this) {
+            mWakeTick = Long.MAX_VALUE;
+            advance(mClock.uptimeMillis(), fired);
+            updateWake();
+        }
+        for (ScheduledEvent event : fired) {
+            event.fire();
+        }
+    }
+
+    /**
+     * Moves the wheel to {@code now} and takes the values that are due. Must hold this.
+     */
+    private void advance(long now, @NonNull List<ScheduledEvent> fired) {
+        takeAll(LEVEL_DUE, 0, fired);
+        while (mCurrentTick < now) {
+            long next = nextTick();
+            if (next > now) {
+                // no slot with values starts before now
+                mCurrentTick = now;
+                break;
+            }
+            mCurrentTick = next;
+            // from the top, values moved down may land in a slot that is moved down as well
+            for (int level = LEVEL_COUNT; level >= 1; level--) {
+                if ((mCurrentTick & ((1L << (SLOT_BITS * level)) - 1)) != 0) {
+                    continue;
+                }
+                int slot = level == LEVEL_COUNT
+                        ? 0 : (int) ((mCurrentTick >> (SLOT_BITS * level)) & SLOT_MASK);
+                cascade(level == LEVEL_COUNT ? LEVEL_OVERFLOW : level, slot);
+            }
+            takeAll(0, (int) (mCurrentTick & SLOT_MASK), fired);
+        }
+    }
+
+    /**
+     * Moves the values of a slot down the levels in their order. The list is detached first,
+     * values of the overflow list that are still too far away go back to the overflow list.
+     * Must hold this.
+     */
+    private void cascade(int level, int slot) {
+        ScheduledEvent event = head(level, slot);
+        setHead(level, slot, null);
+        setTail(level, slot, null);
+        while (event != null) {
+            ScheduledEvent next = event.mNext;
+            insert(event);
+            event = next;
+        }
+    }
+
+    /**
+     * Returns the next tick after the current one at which a slot with values expires or moves
+     * down, Long.MAX_VALUE if the wheel is empty. Must hold this.
+     */
+    private long nextTick() {
+        long next = Long.MAX_VALUE;
+        for (int level = 0; level < LEVEL_COUNT; level++) {
+            int shift = SLOT_BITS * level;
+            long block = mCurrentTick >> shift;
+            // values of a level are always in a later slot of the current block of the level
+            for (int slot = (int) (block & SLOT_MASK) + 1; slot < SLOT_COUNT; slot++) {
+                if (mSlots[level][slot] != null) {
+                    next = Math.min(next, ((block & ~SLOT_MASK) + slot) << shift);
+                    break;
+                }
+            }
+        }
+        if (mOverflow != null) {
+            int shift = SLOT_BITS * LEVEL_COUNT;
+            next = Math.min(next, ((mCurrentTick >> shift) + 1) << shift);
+        }
+        return next;
+    }
+
+    /**
+     * Must hold this.
+     */
+    private void insert(@NonNull ScheduledEvent event) {
+        long time = event.mTime;
+        if (time < mCurrentTick) {
+            link(event, LEVEL_DUE, 0);
+            return;
+        }
+        // the lowest level whose current block contains the time
+        int level = 0;
+        while (level < LEVEL_COUNT) {
+            int blockShift = SLOT_BITS * (level + 1);
+            if ((time >> blockShift) == (mCurrentTick >> blockShift)) {
+                break;
+            }
+            level++;
+        }
+        if (level == LEVEL_COUNT) {
+            link(event, LEVEL_OVERFLOW, 0);
+        } else {
+            link(event, level, (int) ((time >> (SLOT_BITS * level)) & SLOT_MASK));
+        }
+    }
+
+    /**
+     * Must hold this.
+     */
+    private void updateWake() {
+        long wakeTick = mDue != null ? mCurrentTick : nextTick();
+        if (wakeTick == mWakeTick) {
+            return;
+        }
+        mWakeTick = wakeTick;
+        mClock.wakeAt(mWakeRunnable, wakeTick);
+    }
+
+    @Nullable
+    private ScheduledEvent head(int level, int slot) {
+        if (level == LEVEL_DUE) {
+            return mDue;
+        } else if (level == LEVEL_OVERFLOW) {
+            return mOverflow;
+        } else {
+            return mSlots[level][slot];
+        }
+    }
+
+    private void setHead(int level, int slot, @Nullable ScheduledEvent event) {
+        if (level == LEVEL_DUE) {
+            mDue = event;
+        } else if (level == LEVEL_OVERFLOW) {
+            mOverflow = event;
+        } else {
+            mSlots[level][slot] = event;
+        }
+    }
+
+    @Nullable
+    private ScheduledEvent tail(int level, int slot) {
+        if (level == LEVEL_DUE) {
+            return mDueTail;
+        } else if (level == LEVEL_OVERFLOW) {
+            return mOverflowTail;
+        } else {
+            return mSlotTails[level][slot];
+        }
+    }
+
+    private void setTail(int level, int slot, @Nullable ScheduledEvent event) {
+        if (level == LEVEL_DUE) {
+            mDueTail = event;
+        } else if (level == LEVEL_OVERFLOW) {
+            mOverflowTail = event;
+        } else {
+            mSlotTails[level][slot] = event;
+        }
+    }
+
+    /**
+     * Appends the value to the tail of the slot. Must hold this.
+     */
+    private void link(@NonNull ScheduledEvent event, int level, int slot) {
+        ScheduledEvent tail = tail(level, slot);
+        event.mLevel = level;
+        event.mSlot = slot;
+        event.mPrev = tail;
+        event.mNext = null;
+        if (tail != null) {
+            tail.mNext = event;
+        } else {
+            setHead(level, slot, event);
+        }
+        setTail(level, slot, event);
+    }
+
+    /**
+     * O(1). Must hold this.
+     */
+    private void unlinkSlot(@NonNull ScheduledEvent event) {
+        if (event.mPrev != null) {
+            event.mPrev.mNext = event.mNext;
+        } else {
+            setHead(event.mLevel, event.mSlot, event.mNext);
+        }
+        if (event.mNext != null) {
+            event.mNext.mPrev = event.mPrev;
+        } else {
+            setTail(event.mLevel, event.mSlot, event.mPrev);
+        }
+        event.mPrev = null;
+        event.mNext = null;
+    }
+
+    /**
+     * O(1). Must hold this.
+     */
+    private void unlinkTarget(@NonNull ScheduledEvent event) {
+        LiveEvent<?> target = event.mTarget;
+        if (target == null) {
+            return;
+        }
+        if (event.mTargetPrev != null) {
+            event.mTargetPrev.mTargetNext = event.mTargetNext;
+        } else if (target.mScheduledEvents == event) {
+            target.mScheduledEvents = event.mTargetNext;
+        }
+        if (event.mTargetNext != null) {
+            event.mTargetNext.mTargetPrev = event.mTargetPrev;
+        }
+        event.mTargetPrev = null;
+        event.mTargetNext = null;
+    }
+
+    /**
+     * Removes all events of a slot from the head and marks them due. Must hold this.
+     */
+    private void takeAll(int level, int slot, @NonNull List<ScheduledEvent> out) {
+        ScheduledEvent event;
+        while ((event = head(level, slot)) != null) {
+            unlinkSlot(event);
+            unlinkTarget(event);
+            mSize--;
+            event.mState = ScheduledEvent.STATE_DUE;
+            out.add(event);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.github.panpf.liveevent;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Waits for the next value, or the next value that passes a {@link Predicate}, dispatched by a
+ * {@link LiveEvent}. Returned by {@link LiveEvent#nextAsFuture()} and used by
+ * {@link LiveEvent#awaitNext(long)} and {@link LiveEvent#awaitFirst(Predicate, long)}.
+ * <p>
+ * The waiter is completed directly by the dispatch on the main thread, so getting the result
+ * on the main thread before it is done would never return and throws instead.
+ */
+final class EventWaiter<T> implements Future<T> {
+    private static final int STATE_WAITING = 0;
+    private static final int STATE_DONE = 1;
+    private static final int STATE_FAILED = 2;
+    private static final int STATE_CANCELLED = 3;
+
+    @NonNull
+    private final LiveEvent<T> mLiveEvent;
+    @Nullable
+    private final Predicate<? super T> mPredicate;
+    // values up to this version were dispatched before the waiter was added, guarded by the
+    // waiters lock of mLiveEvent
+    int mStartVersion;
+    // guarded by this
+    private int mState = STATE_WAITING;
+    @Nullable
+    private Object mResult;
+
+    // the waiter list of mLiveEvent, guarded by its waiters lock
+    @Nullable
+    EventWaiter<T> mPrev;
+    @Nullable
+    EventWaiter<T> mNext;
+    boolean mLinked;
+
+    EventWaiter(@NonNull LiveEvent<T> liveEvent, @Nullable Predicate<? super T> predicate) {
+        mLiveEvent = liveEvent;
+        mPredicate = predicate;
+    }
+
+    /**
+     * Offers a dispatched value, called on the main thread.
+     *
+     * @return true if the waiter does not wait anymore and can be removed
+     */
+    @SuppressWarnings("unchecked")
+    boolean offer(int version, @Nullable Object value) {
+        if (version <= mStartVersion) {
+            return isDone();
+        }
+        if (mPredicate != null) {
+            try {
+                if (!mPredicate.test((T) value)) {
+                    return isDone();
+                }
+            } catch (RuntimeException e) {
+                complete(STATE_FAILED, e);
+                return true;
+            }
+        }
+        complete(STATE_DONE, value);
+        return true;
+    }
+
+    private synchronized void complete(int state, @Nullable Object result) {
+        if (mState == STATE_WAITING) {
+            mState = state;
+            mResult = result;
+            notifyAll();
+        }
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        synchronized (this) {
+            if (mState != STATE_WAITING) {
+                return false;
+            }
+            mState = STATE_CANCELLED;
+            notifyAll();
+        }
+        mLiveEvent.removeWaiter(this);
+        return true;
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return mState == STATE_CANCELLED;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        return mState != STATE_WAITING;
+    }
+
+    @Override
+    public T get() throws InterruptedException, ExecutionException {
+        try {
+            return get(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public T get(long timeout, @NonNull TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        synchronized (this) {
+            if (mState == STATE_WAITING) {
+                LiveEvent.assertNotMainThread("get");
+                long remaining = unit.toNanos(timeout);
+                long deadline = System.nanoTime() + remaining;
+                while (mState == STATE_WAITING && remaining > 0) {
+                    // wait(0) waits forever, wait at least one millisecond
+                    wait(Math.max(1, remaining / 1000000));
+                    remaining = deadline - System.nanoTime();
+                }
+            }
+            return getResult();
+        }
+    }
+
+    /**
+     * Waits like {@link #get(long, TimeUnit)} and removes the waiter from the LiveEvent if it
+     * timed out or the thread was interrupted.
+     */
+    T await(long timeoutMillis) throws InterruptedException, TimeoutException {
+        try {
+            get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            if (cancel(false)) {
+                throw e;
+            }
+        } catch (InterruptedException e) {
+            if (cancel(false)) {
+                throw e;
+            }
+            // completed in the meantime, keep the interrupt for the caller
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ignored) {
+        }
+        synchronized (this) {
+            try {
+                return getResult();
+            } catch (ExecutionException e) {
+                // only RuntimeExceptions of the predicate are caught
+                throw (RuntimeException) e.getCause();
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private T getResult() throws ExecutionException, TimeoutException {
+        switch (mState) {
+            case STATE_DONE:
+                return (T) mResult;
+            case STATE_FAILED:
+                throw new ExecutionException((Throwable) mResult);
+            case STATE_CANCELLED:
+                throw new CancellationException();
+            default:
+                throw new TimeoutException();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.github.panpf.liveevent;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+
+/**
+ * The source of display frames that drives a {@link FrameDispatcher}.
+ *
+ * @see ChoreographerFrameClock
+ */
+public interface FrameClock {
+    /**
+     * Posts a callback to run once on the main thread when the next frame starts.
+     *
+     * @param callback The callback to run
+     */
+    @MainThread
+    void postFrameCallback(@NonNull Runnable callback);
+}
@@ -0,0 +1,76 @@
+package com.github.panpf.liveevent;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Dispatches the values of {@link LiveEvent}s once per frame instead of on every
+ * {@link LiveEvent#setValue(Object)}.
+ * <p>
+ * A LiveEvent that uses a FrameDispatcher, see {@link LiveEvent#setFrameDispatcher}, only marks
+ * itself dirty when its value changes. When the next frame starts all dirty LiveEvents of the
+ * dispatcher are dispatched in the order they became dirty, so listeners receive only the latest
+ * value of each LiveEvent, once per frame.
+ */
+public class FrameDispatcher {
+    private static FrameDispatcher sDefault;
+
+    @NonNull
+    private final FrameClock mClock;
+    private List<LiveEvent<?>> mDirtyEvents = new ArrayList<>();
+    private List<LiveEvent<?>> mFlushingEvents = new ArrayList<>();
+    private boolean mFrameScheduled;
+    private final Runnable mFrameCallback = new Runnable() {
+        @Override
+        public void run() {
+            doFrame();
+        }
+    };
+
+    /**
+     * @param clock The source of frames, a fake clock can be used in tests
+     */
+    public FrameDispatcher(@NonNull FrameClock clock) {
+        mClock = clock;
+    }
+
+    /**
+     * Returns the shared FrameDispatcher driven by the {@link android.view.Choreographer}.
+     *
+     * @return the shared FrameDispatcher
+     */
+    @MainThread
+    @NonNull
+    public static FrameDispatcher getDefault() {
+        LiveEvent.assertMainThread("getDefault");
+        if (sDefault == null) {
+            sDefault = new FrameDispatcher(new ChoreographerFrameClock());
+        }
+        return sDefault;
+    }
+
+    @MainThread
+    void schedule(@NonNull LiveEvent<?> event) {
+        mDirtyEvents.add(event);
+        if (!mFrameScheduled) {
+            mFrameScheduled = true;
+            mClock.postFrameCallback(mFrameCallback);
+        }
+    }
+
+    @MainThread
+    private void doFrame() {
+        mFrameScheduled = false;
+        // swap the lists, events that become dirty while flushing wait for the next frame
+        List<LiveEvent<?>> events = mDirtyEvents;
+        mDirtyEvents = mFlushingEvents;
+        mFlushingEvents = events;
+        for (int i = 0, size = events.size(); i < size; i++) {
+            events.get(i).dispatchFrame();
+        }
+        events.clear();
+    }
+}
@@ -0,0 +1,267 @@
+package com.github.panpf.liveevent;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An event whose listeners subscribe to one key, for per-item updates such as the download
+ * progress of an item id. {@link #setValue(Object, Object)} only notifies the listeners of that
+ * key, no matter how many other keys have listeners.
+ * <p>
+ * Every key behaves like its own {@link LiveEvent}, with its own value and version, so sticky
+ * listeners receive the last value of their key. The state of a key only exists while the key
+ * has listeners: it is freed when the last listener of the key is removed, and values set for a
+ * key without listeners are dropped.
+ *
+ * @param <K> The type of the keys
+ * @param <V> The type of the values
+ */
+public class KeyedLiveEvent<K, V> {
+    private final Object mLock = new Object();
+    // guarded by mLock
+    private final Map<K, KeyEvent<K, V>> mEvents = new HashMap<>();
+
+    /**
+     * Same as {@link LiveEvent#listen(LifecycleOwner, Listener)}, for the values of {@code key}.
+     *
+     * @param owner    The LifecycleOwner which controls the listener
+     * @param key      The key the listener wants the values of
+     * @param listener The listener that will receive the events
+     */
+    @AnyThread
+    public void listen(@NonNull LifecycleOwner owner, @NonNull K key,
+            @NonNull Listener<? super V> listener) {
+        KeyEvent<K, V> event = acquireEvent(key);
+        try {
+            event.listen(owner, listener);
+        } finally {
+            // the owner may already be destroyed
+            releaseEvent(event);
+        }
+    }
+
+    /**
+     * Same as {@link LiveEvent#listenSticky(LifecycleOwner, Listener)}, for the values of
+     * {@code key}.
+     *
+     * @param owner    The LifecycleOwner which controls the listener
+     * @param key      The key the listener wants the values of
+     * @param listener The listener that will receive the events
+     */
+    @AnyThread
+    public void listenSticky(@NonNull LifecycleOwner owner, @NonNull K key,
+            @NonNull Listener<? super V> listener) {
+        KeyEvent<K, V> event = acquireEvent(key);
+        try {
+            event.listenSticky(owner, listener);
+        } finally {
+            // the owner may already be destroyed
+            releaseEvent(event);
+        }
+    }
+
+    /**
+     * Same as {@link LiveEvent#listenForever(Listener)}, for the values of {@code key}.
+     *
+     * @param key      The key the listener wants the values of
+     * @param listener The listener that will receive the events
+     */
+    @AnyThread
+    public void listenForever(@NonNull K key, @NonNull Listener<? super V> listener) {
+        KeyEvent<K, V> event = acquireEvent(key);
+        try {
+            event.listenForever(listener);
+        } finally {
+            releaseEvent(event);
+        }
+    }
+
+    /**
+     * Same as {@link LiveEvent#listenForeverSticky(Listener)}, for the values of {@code key}.
+     *
+     * @param key      The key the listener wants the values of
+     * @param listener The listener that will receive the events
+     */
+    @AnyThread
+    public void listenForeverSticky(@NonNull K key, @NonNull Listener<? super V> listener) {
+        KeyEvent<K, V> event = acquireEvent(key);
+        try {
+            event.listenForeverSticky(listener);
+        } finally {
+            releaseEvent(event);
+        }
+    }
+
+    /**
+     * Returns the event of {@code key}, created if needed, which is not released until
+     * {@link #releaseEvent(KeyEvent)}. The listener is added without holding mLock, a sticky
+     * listener is called right away on the main thread and may use this KeyedLiveEvent from any
+     * thread.
+     */
+    @NonNull
+    private KeyEvent<K, V> acquireEvent(@NonNull K key) {
+        synchronized (mLock) {
+            KeyEvent<K, V> event = mEvents.get(key);
+            if (event == null) {
+                event = new KeyEvent<>(this, key);
+                mEvents.put(key, event);
+            }
+            event.mAcquireCount++;
+            return event;
+        }
+    }
+
+    private void releaseEvent(@NonNull KeyEvent<K, V> event) {
+        synchronized (mLock) {
+            event.mAcquireCount--;
+            releaseIfUnused(event);
+        }
+    }
+
+    @Nullable
+    private KeyEvent<K, V> getEvent(@NonNull K key) {
+        synchronized (mLock) {
+            return mEvents.get(key);
+        }
+    }
+
+    @SuppressWarnings("WeakerAccess") /* synthetic access */
+    void releaseIfUnused(@NonNull KeyEvent<K, V> event) {
+        synchronized (mLock) {
+            // the key may have been released and listened to again meanwhile
+            if (event.mAcquireCount == 0 && !event.hasListeners()
+                    && mEvents.get(event.mKey) == event) {
+                mEvents.remove(event.mKey);
+            }
+        }
+    }
+
+    /**
+     * Removes the given listener of {@code key}, the state of the key is freed if it was the last
+     * one.
+     *
+     * @param key      The key the listener was added for
+     * @param listener The listener to remove
+     */
+    @AnyThread
+    public void removeListener(@NonNull K key, @NonNull Listener<? super V> listener) {
+        KeyEvent<K, V> event = getEvent(key);
+        if (event != null) {
+            event.removeListener(listener);
+        }
+    }
+
+    /**
+     * Removes all listeners that are tied to the given {@link LifecycleOwner}, for all keys.
+     *
+     * @param owner The {@code LifecycleOwner} scope for the listeners to be removed.
+     */
+    @AnyThread
+    public void removeListener(@NonNull LifecycleOwner owner) {
+        List<KeyEvent<K, V>> events;
+        synchronized (mLock) {
+            events = new ArrayList<>(mEvents.values());
+        }
+        for (KeyEvent<K, V> event : events) {
+            event.removeListener(owner);
+        }
+    }
+
+    /**
+     * Sets the value of {@code key} and dispatches it to the listeners of the key. If the key has
+     * no listeners the value is dropped.
+     * <p>
+     * This method must be called from the main thread. If you need set a value from a background
+     * thread, you can use {@link #postValue(Object, Object)}
+     *
+     * @param key   The key of the value
+     * @param value The new value
+     */
+    @MainThread
+    public void setValue(@NonNull K key, V value) {
+        LiveEvent.assertMainThread("setValue");
+        KeyEvent<K, V> event = getEvent(key);
+        if (event != null) {
+            event.setValue(value);
+        }
+    }
+
+    /**
+     * Posts a task to the main thread to set the value of {@code key}, see
+     * {@link LiveEvent#postValue(Object)}. If the key has no listeners the value is dropped.
+     *
+     * @param key   The key of the value
+     * @param value The new value
+     */
+    @AnyThread
+    public void postValue(@NonNull K key, V value) {
+        KeyEvent<K, V> event = getEvent(key);
+        if (event != null) {
+            event.postValue(value);
+        }
+    }
+
+    /**
+     * Returns the current value of {@code key}, null if the key has no value or no listeners.
+     *
+     * @param key The key of the value
+     * @return the current value of the key
+     */
+    @Nullable
+    public V getValue(@NonNull K key) {
+        KeyEvent<K, V> event = getEvent(key);
+        return event != null ? event.getValue() : null;
+    }
+
+    /**
+     * Returns true if {@code key} has listeners.
+     *
+     * @param key The key to check
+     * @return true if the key has listeners
+     */
+    public boolean hasListeners(@NonNull K key) {
+        KeyEvent<K, V> event = getEvent(key);
+        return event != null && event.hasListeners();
+    }
+
+    /**
+     * Returns the number of keys that have listeners.
+     *
+     * @return the number of keys that have listeners
+     */
+    public int getKeyCount() {
+        synchronized (mLock) {
+            return mEvents.size();
+        }
+    }
+
+    private static class KeyEvent<K, V> extends LiveEvent<V> {
+        @NonNull
+        private final KeyedLiveEvent<K, V> mParent;
+        @NonNull
+        final K mKey;
+        // the listen calls in progress, guarded by the mLock of the parent
+        int mAcquireCount;
+
+        KeyEvent(@NonNull KeyedLiveEvent<K, V> parent, @NonNull K key) {
+            mParent = parent;
+            mKey = key;
+        }
+
+        @Override
+        public void removeListener(@NonNull Listener<? super V> listener) {
+            super.removeListener(listener);
+            if (!hasListeners()) {
+                mParent.releaseIfUnused(this);
+            }
+        }
+    }
+}
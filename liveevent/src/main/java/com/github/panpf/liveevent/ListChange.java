@@ -0,0 +1,146 @@
+package com.github.panpf.liveevent;
+
+import androidx.annotation.NonNull;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The changes of a {@link ListLiveEvent} since the previous dispatch, as a list of operations to
+ * apply in order, for example to notify a RecyclerView adapter:
+ * <pre>
+ * if (change.isReset()) {
+ *     adapter.notifyDataSetChanged();
+ * } else {
+ *     for (ListChange.Op op : change.getOps()) {
+ *         switch (op.getType()) {
+ *             case ListChange.Op.INSERT:
+ *                 adapter.notifyItemRangeInserted(op.getPosition(), op.getCount());
+ *                 break;
+ *             ...
+ *         }
+ *     }
+ * }
+ * </pre>
+ *
+ * @param <E> The type of the elements
+ */
+public final class ListChange<E> {
+    @NonNull
+    private final List<E> mList;
+    @NonNull
+    private final List<Op> mOps;
+    private final boolean mReset;
+
+    ListChange(@NonNull List<E> list, @NonNull List<Op> ops, boolean reset) {
+        mList = list;
+        mOps = Collections.unmodifiableList(ops);
+        mReset = reset;
+    }
+
+    /**
+     * Returns a read-only view of the list after the changes. It is not a copy, it shows later
+     * changes as well, copy it to keep it.
+     */
+    @NonNull
+    public List<E> getList() {
+        return mList;
+    }
+
+    /**
+     * Returns true if the listener has to rebuild from {@link #getList()}, because it has not
+     * received the previous changes or because there were too many of them. The operations are
+     * empty then.
+     */
+    public boolean isReset() {
+        return mReset;
+    }
+
+    /**
+     * Returns the operations, in the order they have to be applied.
+     */
+    @NonNull
+    public List<Op> getOps() {
+        return mOps;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return mReset ? "ListChange{reset}" : "ListChange" + mOps;
+    }
+
+    /**
+     * One operation on a range of the list.
+     */
+    public static final class Op {
+        /**
+         * {@code count} elements were inserted at {@code position}.
+         */
+        public static final int INSERT = 1;
+        /**
+         * {@code count} elements were removed from {@code position}.
+         */
+        public static final int REMOVE = 2;
+        /**
+         * The element at {@code position} was moved to {@code toPosition}.
+         */
+        public static final int MOVE = 3;
+        /**
+         * {@code count} elements from {@code position} were replaced.
+         */
+        public static final int UPDATE = 4;
+
+        private final int mType;
+        private final int mPosition;
+        private final int mCount;
+        private final int mToPosition;
+
+        Op(int type, int position, int count, int toPosition) {
+            mType = type;
+            mPosition = position;
+            mCount = count;
+            mToPosition = toPosition;
+        }
+
+        /**
+         * Returns {@link #INSERT}, {@link #REMOVE}, {@link #MOVE} or {@link #UPDATE}.
+         */
+        public int getType() {
+            return mType;
+        }
+
+        public int getPosition() {
+            return mPosition;
+        }
+
+        /**
+         * Returns the number of elements, 1 for {@link #MOVE}.
+         */
+        public int getCount() {
+            return mCount;
+        }
+
+        /**
+         * Returns the new position of a {@link #MOVE}, -1 for the other types.
+         */
+        public int getToPosition() {
+            return mToPosition;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            switch (mType) {
+                case INSERT:
+                    return "insert(" + mPosition + ", " + mCount + ")";
+                case REMOVE:
+                    return "remove(" + mPosition + ", " + mCount + ")";
+                case MOVE:
+                    return "move(" + mPosition + ", " + mToPosition + ")";
+                default:
+                    return "update(" + mPosition + ", " + mCount + ")";
+            }
+        }
+    }
+}
@@ -0,0 +1,368 @@
+package com.github.panpf.liveevent;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.arch.core.executor.ArchTaskExecutor;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A list whose listeners receive {@link ListChange}s, the inserted, removed, moved and updated
+ * ranges, instead of the whole list. With thousands of elements the listeners do not have to
+ * diff the list on every change.
+ * <p>
+ * The changes made on the main thread are collected and dispatched together, once per main
+ * thread message, or right away with {@link #dispatchChanges()}. A listener that did not receive
+ * the previous change set, like a sticky listener that was just added or a lifecycle-bound
+ * listener that was stopped, receives a reset and rebuilds from {@link ListChange#getList()}.
+ *
+ * @param <E> The type of the elements
+ */
+public class ListLiveEvent<E> {
+    // more pending operations than this are dispatched as a reset
+    private static final int MAX_PENDING_OPS = 64;
+
+    private final ArrayList<E> mList = new ArrayList<>();
+    private final List<E> mReadOnlyList = Collections.unmodifiableList(mList);
+    // the operations since the last dispatch, merged where possible
+    private List<ListChange.Op> mPendingOps = new ArrayList<>();
+    private boolean mPendingReset;
+    private boolean mDispatchScheduled;
+    private final ChangeSetLiveEvent<ListChange<E>> mEvent =
+            new ChangeSetLiveEvent<ListChange<E>>() {
+                @NonNull
+                @Override
+                ListChange<E> createReset() {
+                    return new ListChange<>(mReadOnlyList,
+                            Collections.<ListChange.Op>emptyList(), true);
+                }
+
+                @Override
+                boolean hasPendingChanges() {
+                    return mPendingReset || !mPendingOps.isEmpty();
+                }
+            };
+    private final Runnable mDispatchRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (mDispatchScheduled) {
+                dispatchChanges();
+            }
+        }
+    };
+
+    /**
+     * Creates an empty ListLiveEvent.
+     */
+    public ListLiveEvent() {
+    }
+
+    /**
+     * Creates a ListLiveEvent with the given elements, without dispatching them.
+     *
+     * @param elements The initial elements
+     */
+    public ListLiveEvent(@NonNull Collection<? extends E> elements) {
+        mList.addAll(elements);
+    }
+
+    /**
+     * Same as {@link LiveEvent#listen(LifecycleOwner, Listener)}.
+     *
+     * @param owner    The LifecycleOwner which controls the listener
+     * @param listener The listener that will receive the changes
+     */
+    @AnyThread
+    public void listen(@NonNull LifecycleOwner owner,
+            @NonNull Listener<? super ListChange<E>> listener) {
+        mEvent.listen(owner, listener);
+    }
+
+    /**
+     * Same as {@link LiveEvent#listenSticky(LifecycleOwner, Listener)}, the listener receives a
+     * reset first.
+     *
+     * @param owner    The LifecycleOwner which controls the listener
+     * @param listener The listener that will receive the changes
+     */
+    @AnyThread
+    public void listenSticky(@NonNull LifecycleOwner owner,
+            @NonNull Listener<? super ListChange<E>> listener) {
+        mEvent.listenSticky(owner, listener);
+    }
+
+    /**
+     * Same as {@link LiveEvent#listenForever(Listener)}.
+     *
+     * @param listener The listener that will receive the changes
+     */
+    @AnyThread
+    public void listenForever(@NonNull Listener<? super ListChange<E>> listener) {
+        mEvent.listenForever(listener);
+    }
+
+    /**
+     * Same as {@link LiveEvent#listenForeverSticky(Listener)}, the listener receives a reset
+     * first.
+     *
+     * @param listener The listener that will receive the changes
+     */
+    @AnyThread
+    public void listenForeverSticky(@NonNull Listener<? super ListChange<E>> listener) {
+        mEvent.listenForeverSticky(listener);
+    }
+
+    /**
+     * Removes the given listener.
+     *
+     * @param listener The listener to remove
+     */
+    @AnyThread
+    public void removeListener(@NonNull Listener<? super ListChange<E>> listener) {
+        mEvent.removeListener(listener);
+    }
+
+    /**
+     * Removes all listeners that are tied to the given {@link LifecycleOwner}.
+     *
+     * @param owner The {@code LifecycleOwner} scope for the listeners to be removed.
+     */
+    @AnyThread
+    public void removeListener(@NonNull LifecycleOwner owner) {
+        mEvent.removeListener(owner);
+    }
+
+    /**
+     * Returns true if this ListLiveEvent has listeners.
+     *
+     * @return true if this ListLiveEvent has listeners
+     */
+    public boolean hasListeners() {
+        return mEvent.hasListeners();
+    }
+
+    /**
+     * Returns a read-only view of the elements, including the changes that were not dispatched
+     * yet.
+     *
+     * @return the elements
+     */
+    @MainThread
+    @NonNull
+    public List<E> getList() {
+        return mReadOnlyList;
+    }
+
+    @MainThread
+    public int size() {
+        return mList.size();
+    }
+
+    @MainThread
+    public E get(int index) {
+        return mList.get(index);
+    }
+
+    @MainThread
+    public void add(E element) {
+        add(mList.size(), element);
+    }
+
+    @MainThread
+    public void add(int index, E element) {
+        LiveEvent.assertMainThread("add");
+        beforeChange();
+        mList.add(index, element);
+        addOp(ListChange.Op.INSERT, index, 1, -1);
+    }
+
+    @MainThread
+    public void addAll(@NonNull Collection<? extends E> elements) {
+        addAll(mList.size(), elements);
+    }
+
+    @MainThread
+    public void addAll(int index, @NonNull Collection<? extends E> elements) {
+        LiveEvent.assertMainThread("addAll");
+        if (elements.isEmpty()) {
+            return;
+        }
+        beforeChange();
+        mList.addAll(index, elements);
+        addOp(ListChange.Op.INSERT, index, elements.size(), -1);
+    }
+
+    /**
+     * Replaces the element at {@code index}, reported as an update.
+     *
+     * @return the previous element
+     */
+    @MainThread
+    public E set(int index, E element) {
+        LiveEvent.assertMainThread("set");
+        beforeChange();
+        E previous = mList.set(index, element);
+        addOp(ListChange.Op.UPDATE, index, 1, -1);
+        return previous;
+    }
+
+    /**
+     * @return the removed element
+     */
+    @MainThread
+    public E remove(int index) {
+        LiveEvent.assertMainThread("remove");
+        beforeChange();
+        E removed = mList.remove(index);
+        addOp(ListChange.Op.REMOVE, index, 1, -1);
+        return removed;
+    }
+
+    /**
+     * Removes the elements from {@code fromIndex}, inclusive, to {@code toIndex}, exclusive.
+     */
+    @MainThread
+    public void removeRange(int fromIndex, int toIndex) {
+        LiveEvent.assertMainThread("removeRange");
+        if (fromIndex == toIndex) {
+            return;
+        }
+        beforeChange();
+        mList.subList(fromIndex, toIndex).clear();
+        addOp(ListChange.Op.REMOVE, fromIndex, toIndex - fromIndex, -1);
+    }
+
+    /**
+     * Moves the element at {@code fromIndex} so that it is at {@code toIndex} afterwards.
+     */
+    @MainThread
+    public void move(int fromIndex, int toIndex) {
+        LiveEvent.assertMainThread("move");
+        if (fromIndex == toIndex) {
+            return;
+        }
+        beforeChange();
+        mList.add(toIndex, mList.remove(fromIndex));
+        addOp(ListChange.Op.MOVE, fromIndex, 1, toIndex);
+    }
+
+    @MainThread
+    public void clear() {
+        removeRange(0, mList.size());
+    }
+
+    /**
+     * Replaces all elements, reported as a reset.
+     *
+     * @param elements The new elements
+     */
+    @MainThread
+    public void setAll(@NonNull Collection<? extends E> elements) {
+        LiveEvent.assertMainThread("setAll");
+        beforeChange();
+        mList.clear();
+        mList.addAll(elements);
+        mPendingReset = true;
+        mPendingOps = new ArrayList<>();
+        scheduleDispatch();
+    }
+
+    /**
+     * Dispatches the changes that were not dispatched yet right away.
+     */
+    @MainThread
+    public void dispatchChanges() {
+        LiveEvent.assertMainThread("dispatchChanges");
+        mDispatchScheduled = false;
+        if (!mPendingReset && mPendingOps.isEmpty()) {
+            return;
+        }
+        ListChange<E> change = mPendingReset ? mEvent.createReset()
+                : new ListChange<>(mReadOnlyList, mPendingOps, false);
+        mPendingOps = new ArrayList<>();
+        mPendingReset = false;
+        mEvent.setValue(change);
+    }
+
+    /**
+     * A listener that received a reset with the pending changes skips the next change set, so
+     * it must not contain any later change.
+     */
+    private void beforeChange() {
+        if (mEvent.isResetAhead()) {
+            dispatchChanges();
+        }
+    }
+
+    private void addOp(int type, int position, int count, int toPosition) {
+        if (!mPendingReset) {
+            int last = mPendingOps.size() - 1;
+            ListChange.Op merged = last >= 0
+                    ? merge(mPendingOps.get(last), type, position, count) : null;
+            if (merged != null) {
+                mPendingOps.set(last, merged);
+            } else if (mPendingOps.size() >= MAX_PENDING_OPS) {
+                mPendingReset = true;
+                mPendingOps = new ArrayList<>();
+            } else {
+                mPendingOps.add(new ListChange.Op(type, position, count, toPosition));
+            }
+        }
+        scheduleDispatch();
+    }
+
+    /**
+     * Returns one operation for {@code last} followed by the given one, null if they can not be
+     * merged.
+     */
+    @Nullable
+    private static ListChange.Op merge(@NonNull ListChange.Op last, int type, int position,
+            int count) {
+        int lastStart = last.getPosition();
+        int lastEnd = lastStart + last.getCount();
+        if (last.getType() == ListChange.Op.INSERT && type == ListChange.Op.UPDATE
+                && position >= lastStart && position + count <= lastEnd) {
+            // the inserted elements are new to the listeners anyway
+            return last;
+        }
+        if (last.getType() != type) {
+            return null;
+        }
+        switch (type) {
+            case ListChange.Op.INSERT:
+                if (position >= lastStart && position <= lastEnd) {
+                    return new ListChange.Op(type, lastStart, last.getCount() + count, -1);
+                }
+                return null;
+            case ListChange.Op.REMOVE:
+                if (position == lastStart) {
+                    return new ListChange.Op(type, lastStart, last.getCount() + count, -1);
+                } else if (position + count == lastStart) {
+                    return new ListChange.Op(type, position, last.getCount() + count, -1);
+                }
+                return null;
+            case ListChange.Op.UPDATE:
+                if (position <= lastEnd && position + count >= lastStart) {
+                    int start = Math.min(lastStart, position);
+                    int end = Math.max(lastEnd, position + count);
+                    return new ListChange.Op(type, start, end - start, -1);
+                }
+                return null;
+            default:
+                return null;
+        }
+    }
+
+    private void scheduleDispatch() {
+        if (!mDispatchScheduled) {
+            mDispatchScheduled = true;
+            ArchTaskExecutor.getInstance().postToMainThread(mDispatchRunnable);
+        }
+    }
+}
@@ -17,17 +17,31 @@
 package com.github.panpf.liveevent;
 
 import android.annotation.SuppressLint;
+import android.os.SystemClock;
 
+import androidx.annotation.AnyThread;
 import androidx.annotation.MainThread;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
 import androidx.arch.core.executor.ArchTaskExecutor;
-import androidx.arch.core.internal.SafeIterableMap;
 import androidx.lifecycle.Lifecycle;
 import androidx.lifecycle.LifecycleEventObserver;
 import androidx.lifecycle.LifecycleOwner;
-import java.util.Iterator;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static androidx.lifecycle.Lifecycle.State.DESTROYED;
 import static androidx.lifecycle.Lifecycle.State.STARTED;
@@ -37,11 +51,19 @@ public class LiveEvent<T> {
     @SuppressWarnings("WeakerAccess") /* synthetic access */
     final Object mDataLock = new Object();
     static final int START_VERSION = -1;
+    static final int DEFAULT_PRIORITY = 0;
     @SuppressWarnings("WeakerAccess") /* synthetic access */
     static final Object NOT_SET = new Object();
 
-    private SafeIterableMap<Listener<? super T>, ListenerWrapper> mListeners =
-            new SafeIterableMap<>();
+    // guards mListeners, listeners can be added and removed on any thread
+    private final Object mListenersLock = new Object();
+    // keyed by the listener, or by its WeakListenerReference for weak listeners
+    private final Map<Object, ListenerWrapper> mListeners = new LinkedHashMap<>();
+    // copy of the values of mListeners in dispatch order, so that dispatchingValue can iterate it
+    // without locking, replaced by getListenerSnapshot after mListeners changed
+    private volatile List<ListenerWrapper> mListenerSnapshot = Collections.emptyList();
+    // whether mListeners changed since mListenerSnapshot was made, set under mListenersLock
+    private volatile boolean mListenerSnapshotDirty;
 
     // how many listeners are in active state
     @SuppressWarnings("WeakerAccess") /* synthetic access */
@@ -51,11 +73,60 @@ public class LiveEvent<T> {
     // thread
     @SuppressWarnings("WeakerAccess") /* synthetic access */
     volatile Object mPendingData = NOT_SET;
-    private int mVersion;
+    private volatile int mVersion;
+    // the version of the last value dispatched to all listeners, behind mVersion while a value
+    // waits for a frame or the commit of a transaction
+    private volatile int mDispatchedVersion;
+    // the position in a graph of mediators, one more than the highest rank of the sources of a
+    // MediatorLiveEvent, see LiveEventPropagation
+    int mRank;
+
+    @Nullable
+    private FrameDispatcher mFrameDispatcher;
+    // whether a value is waiting for the next frame of mFrameDispatcher
+    private boolean mFrameDirty;
+    // whether a value is waiting for the commit of a LiveEventTransaction
+    private boolean mTransactionDirty;
+    @Nullable
+    private volatile LiveEventTracer mTracer;
+    // the head of the values scheduled in the EventTimerWheel, guarded by the wheel
+    @Nullable
+    ScheduledEvent mScheduledEvents;
+    volatile boolean mCancelScheduledWhenInactive;
+    // how many times a listener was called, for mTracer
+    private int mNotifiedCount;
+
+    // how many listeners have a priority other than DEFAULT_PRIORITY, guarded by mListenersLock
+    private int mPriorityListenerCount;
+    // how many listeners are weakly referenced, guarded by mListenersLock
+    private int mWeakListenerCount;
+    // how many listeners only want values of a given type, guarded by mListenersLock
+    private int mTypedListenerCount;
+    // the listeners per value type, made together with mListenerSnapshot, null if no
+    // listener wants a given type only
+    @Nullable
+    private volatile TypeRoutes mTypeRoutes;
+    // receives the references of weak listeners that were garbage collected
+    @Nullable
+    private volatile ReferenceQueue<Listener<? super T>> mWeakListenerQueue;
+    // the version that was consumed by a ConsumingListener
+    private int mConsumedVersion = START_VERSION;
 
     private boolean mDispatchingValue;
     @SuppressWarnings("FieldCanBeLocal")
     private boolean mDispatchInvalidated;
+    // the deliveries to the parallel listeners collected by the running dispatch
+    @Nullable
+    private List<ParallelDelivery> mParallelBatch;
+    @Nullable
+    private volatile Executor mParallelExecutor;
+    private volatile boolean mJoinParallel;
+    // guards the waiter list
+    private final Object mWaitersLock = new Object();
+    // the head of the waiters of awaitNext, awaitFirst and nextAsFuture, guarded by
+    // mWaitersLock, read without it by dispatchingValue
+    @Nullable
+    private volatile EventWaiter<T> mWaiters;
     private final Runnable mPostValueRunnable = new Runnable() {
         @SuppressWarnings("unchecked")
         @Override
@@ -77,6 +148,10 @@ public class LiveEvent<T> {
     public LiveEvent(T value) {
         mData = value;
         mVersion = START_VERSION + 1;
+        mDispatchedVersion = mVersion;
+        if (LiveEventAudit.isInstalled()) {
+            LiveEventAudit.track(this);
+        }
     }
 
     /**
@@ -85,11 +160,15 @@ public class LiveEvent<T> {
     public LiveEvent() {
         mData = NOT_SET;
         mVersion = START_VERSION;
+        mDispatchedVersion = mVersion;
+        if (LiveEventAudit.isInstalled()) {
+            LiveEventAudit.track(this);
+        }
     }
 
     @SuppressWarnings("unchecked")
     private void considerNotify(ListenerWrapper listener) {
-        if (!listener.mActive) {
+        if (!listener.mActive || listener.mRemoved) {
             return;
         }
         // Check latest state b4 dispatch. Maybe it changed state but we didn't get the event yet.
@@ -104,8 +183,58 @@ public class LiveEvent<T> {
         if (listener.mLastVersion >= mVersion) {
             return;
         }
-        listener.mLastVersion = mVersion;
-        listener.mListener.onChanged((T) mData);
+        if (listener.mType != null && !listener.mType.isInstance(mData)) {
+            // the listener wants values of another type only
+            listener.mLastVersion = mVersion;
+            return;
+        }
+        Listener<? super T> target = listener.getListener();
+        if (target == null) {
+            // a weak listener that was collected, it is expunged with the next dispatch
+            return;
+        }
+        int lastVersion = listener.mLastVersion;
+        Object value = valueFor(lastVersion);
+        listener.mLastVersion = versionAfter(lastVersion);
+        if (mConsumedVersion == mVersion) {
+            // a listener before this one has consumed it
+            return;
+        }
+        if (listener instanceof LiveEvent.ParallelListener) {
+            // called off the main thread once the dispatch loop is done
+            if (mParallelBatch == null) {
+                mParallelBatch = new ArrayList<>();
+            }
+            mParallelBatch.add(new ParallelDelivery((ParallelListener) listener, value, mVersion));
+            mNotifiedCount++;
+            return;
+        }
+        if (target instanceof ConsumingListener) {
+            if (((ConsumingListener<? super T>) target).onConsume((T) value)) {
+                mConsumedVersion = mVersion;
+            }
+        } else {
+            target.onChanged((T) value);
+        }
+        mNotifiedCount++;
+    }
+
+    /**
+     * Returns the value to dispatch to a listener that last received {@code lastVersion}, the
+     * current value by default. A LiveEvent whose values describe changes instead of a state can
+     * give a listener that missed some of them a different value, see ChangeSetLiveEvent.
+     */
+    @Nullable
+    Object valueFor(int lastVersion) {
+        return mData;
+    }
+
+    /**
+     * Returns the version a listener that last received {@code lastVersion} has after
+     * {@link #valueFor(int)} was dispatched to it, the current version by default.
+     */
+    int versionAfter(int lastVersion) {
+        return mVersion;
     }
 
     @SuppressWarnings("WeakerAccess") /* synthetic access */
@@ -115,22 +244,67 @@ public class LiveEvent<T> {
             return;
         }
         mDispatchingValue = true;
+        LiveEventTracer tracer = mTracer;
+        long startTime = tracer != null ? System.nanoTime() : 0;
+        int notifiedCount = mNotifiedCount;
+        expungeStaleListeners();
         do {
             mDispatchInvalidated = false;
             if (initiator != null) {
                 considerNotify(initiator);
                 initiator = null;
             } else {
-                for (Iterator<Map.Entry<Listener<? super T>, ListenerWrapper>> iterator =
-                     mListeners.iteratorWithAdditions(); iterator.hasNext(); ) {
-                    considerNotify(iterator.next().getValue());
-                    if (mDispatchInvalidated) {
+                // every value of a re-entrant dispatch is offered, not only the last one
+                mDispatchedVersion = mVersion;
+                if (mWaiters != null) {
+                    completeWaiters();
+                }
+                // listeners added while dispatching are not in the snapshot, but sticky ones
+                // invalidate the dispatch when they become active and non-sticky ones do not
+                // want the current value
+                List<ListenerWrapper> listeners = getListenerSnapshot();
+                TypeRoutes routes = mTypeRoutes;
+                if (routes != null) {
+                    listeners = routes.getListeners(mData);
+                }
+                for (int i = 0, size = listeners.size(); i < size; i++) {
+                    considerNotify(listeners.get(i));
+                    if (mDispatchInvalidated || mConsumedVersion == mVersion) {
                         break;
                     }
                 }
             }
         } while (mDispatchInvalidated);
         mDispatchingValue = false;
+        if (mParallelBatch != null) {
+            runParallelBatch();
+        }
+        if (tracer != null) {
+            tracer.onDispatch(mVersion, mNotifiedCount - notifiedCount,
+                    System.nanoTime() - startTime);
+        }
+    }
+
+    private void runParallelBatch() {
+        List<ParallelDelivery> batch = mParallelBatch;
+        mParallelBatch = null;
+        Executor executor = mParallelExecutor;
+        if (executor == null) {
+            executor = ParallelFanOut.getDefaultExecutor();
+        }
+        ParallelFanOut.ItemTask<ParallelDelivery> task =
+                new ParallelFanOut.ItemTask<ParallelDelivery>() {
+                    @Override
+                    public void run(ParallelDelivery item) {
+                        item.deliver();
+                    }
+                };
+        if (mJoinParallel) {
+            // the main thread only waits, the heavy work stays on the pool
+            ParallelFanOut.submitAndWait(batch, executor, task);
+        } else {
+            ParallelFanOut.submit(batch, executor, task);
+        }
     }
 
     /**
@@ -157,28 +331,33 @@ public class LiveEvent<T> {
      * If the given owner, listener tuple is already in the list, the call is ignored.
      * If the listener is already in the list with another owner, LiveEvent throws an
      * {@link IllegalArgumentException}.
+     * <p>
+     * This method can be called on any thread, the listener is attached to the lifecycle of the
+     * owner on the main thread.
      *
      * @param owner    The LifecycleOwner which controls the listener
      * @param listener The listener that will receive the events
      */
-    @MainThread
+    @AnyThread
     public void listen(@NonNull LifecycleOwner owner, @NonNull Listener<? super T> listener) {
-        assertMainThread("listen");
-        if (owner.getLifecycle().getCurrentState() == DESTROYED) {
-            // ignore
-            return;
-        }
-        LifecycleBoundListener wrapper = new LifecycleBoundListener(owner, listener);
-        wrapper.mLastVersion = mVersion;    // Prevent onChanged from being triggered immediately
-        ListenerWrapper existing = mListeners.putIfAbsent(listener, wrapper);
-        if (existing != null && !existing.isAttachedTo(owner)) {
-            throw new IllegalArgumentException("Cannot add the same listener"
-                    + " with different lifecycles");
-        }
-        if (existing != null) {
-            return;
-        }
-        owner.getLifecycle().addObserver(wrapper);
+        addLifecycleBoundListener(owner, listener, false, DEFAULT_PRIORITY);
+    }
+
+    /**
+     * Same as {@link #listen(LifecycleOwner, Listener)}, but listeners with a higher
+     * {@code priority} receive the events before listeners with a lower one. Listeners with the
+     * same priority receive the events in the order they were added.
+     * <p>
+     * A {@link ConsumingListener} can stop the event from reaching the listeners after it.
+     *
+     * @param owner    The LifecycleOwner which controls the listener
+     * @param priority The priority of the listener, the default is 0
+     * @param listener The listener that will receive the events
+     */
+    @AnyThread
+    public void listen(@NonNull LifecycleOwner owner, int priority,
+            @NonNull Listener<? super T> listener) {
+        addLifecycleBoundListener(owner, listener, false, priority);
     }
 
     /**
@@ -205,19 +384,87 @@ public class LiveEvent<T> {
      * If the given owner, listener tuple is already in the list, the call is ignored.
      * If the listener is already in the list with another owner, LiveEvent throws an
      * {@link IllegalArgumentException}.
+     * <p>
+     * This method can be called on any thread, the listener is attached to the lifecycle of the
+     * owner on the main thread.
      *
      * @param owner    The LifecycleOwner which controls the listener
      * @param listener The listener that will receive the events
      */
-    @MainThread
+    @AnyThread
     public void listenSticky(@NonNull LifecycleOwner owner, @NonNull Listener<? super T> listener) {
-        assertMainThread("listen");
+        addLifecycleBoundListener(owner, listener, true, DEFAULT_PRIORITY);
+    }
+
+    /**
+     * Same as {@link #listenSticky(LifecycleOwner, Listener)}, but with a priority, see
+     * {@link #listen(LifecycleOwner, int, Listener)}.
+     *
+     * @param owner    The LifecycleOwner which controls the listener
+     * @param priority The priority of the listener, the default is 0
+     * @param listener The listener that will receive the events
+     */
+    @AnyThread
+    public void listenSticky(@NonNull LifecycleOwner owner, int priority,
+            @NonNull Listener<? super T> listener) {
+        addLifecycleBoundListener(owner, listener, true, priority);
+    }
+
+    /**
+     * Same as {@link #listen(LifecycleOwner, Listener)}, but the listener only receives the values
+     * that are instances of {@code type}. Values of other types do not call the listener at all,
+     * LiveEvent keeps the listeners per value class so that a dispatch only visits the listeners
+     * that want it.
+     *
+     * @param owner    The LifecycleOwner which controls the listener
+     * @param type     The type of the values the listener wants, including its subtypes
+     * @param listener The listener that will receive the events
+     * @param <S>      The type of the values the listener wants
+     */
+    @AnyThread
+    public <S extends T> void listen(@NonNull LifecycleOwner owner, @NonNull Class<S> type,
+            @NonNull Listener<? super S> listener) {
+        addLifecycleBoundListener(owner, typedListener(listener), false, DEFAULT_PRIORITY, type);
+    }
+
+    /**
+     * Same as {@link #listenSticky(LifecycleOwner, Listener)}, but the listener only receives the
+     * values that are instances of {@code type}, see {@link #listen(LifecycleOwner, Class,
+     * Listener)}. If the current value is of another type it is not delivered.
+     *
+     * @param owner    The LifecycleOwner which controls the listener
+     * @param type     The type of the values the listener wants, including its subtypes
+     * @param listener The listener that will receive the events
+     * @param <S>      The type of the values the listener wants
+     */
+    @AnyThread
+    public <S extends T> void listenSticky(@NonNull LifecycleOwner owner, @NonNull Class<S> type,
+            @NonNull Listener<? super S> listener) {
+        addLifecycleBoundListener(owner, typedListener(listener), true, DEFAULT_PRIORITY, type);
+    }
+
+    private void addLifecycleBoundListener(@NonNull LifecycleOwner owner,
+            @NonNull Listener<? super T> listener, boolean sticky, int priority) {
+        addLifecycleBoundListener(owner, listener, sticky, priority, null);
+    }
+
+    private void addLifecycleBoundListener(@NonNull LifecycleOwner owner,
+            @NonNull Listener<? super T> listener, boolean sticky, int priority,
+            @Nullable Class<?> type) {
         if (owner.getLifecycle().getCurrentState() == DESTROYED) {
             // ignore
             return;
         }
-        LifecycleBoundListener wrapper = new LifecycleBoundListener(owner, listener);
-        ListenerWrapper existing = mListeners.putIfAbsent(listener, wrapper);
+        expungeStaleListeners();
+        final LifecycleBoundListener wrapper = new LifecycleBoundListener(owner, listener);
+        wrapper.mSticky = sticky;
+        wrapper.mPriority = priority;
+        wrapper.mType = type;
+        if (!sticky) {
+            // Prevent onChanged from being triggered immediately
+            wrapper.mLastVersion = mVersion;
+        }
+        ListenerWrapper existing = putListener(listener, wrapper);
         if (existing != null && !existing.isAttachedTo(owner)) {
             throw new IllegalArgumentException("Cannot add the same listener"
                     + " with different lifecycles");
@@ -225,7 +472,12 @@ public class LiveEvent<T> {
         if (existing != null) {
             return;
         }
-        owner.getLifecycle().addObserver(wrapper);
+        runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                wrapper.attachListener();
+            }
+        });
     }
 
     /**
@@ -239,23 +491,27 @@ public class LiveEvent<T> {
      * <p>
      * If the listener was already added with an owner to this LiveEvent, LiveEvent throws an
      * {@link IllegalArgumentException}.
+     * <p>
+     * This method can be called on any thread, if it is not the main thread the listener becomes
+     * active on the main thread shortly after.
      *
      * @param listener The listener that will receive the events
      */
-    @MainThread
+    @AnyThread
     public void listenForever(@NonNull Listener<? super T> listener) {
-        assertMainThread("listenForever");
-        AlwaysActiveListener wrapper = new AlwaysActiveListener(listener);
-        wrapper.mLastVersion = mVersion;    // Prevent onChanged from being triggered immediately
-        ListenerWrapper existing = mListeners.putIfAbsent(listener, wrapper);
-        if (existing instanceof LiveEvent.LifecycleBoundListener) {
-            throw new IllegalArgumentException("Cannot add the same listener"
-                    + " with different lifecycles");
-        }
-        if (existing != null) {
-            return;
-        }
-        wrapper.activeStateChanged(true);
+        addAlwaysActiveListener(listener, false, DEFAULT_PRIORITY);
+    }
+
+    /**
+     * Same as {@link #listenForever(Listener)}, but with a priority, see
+     * {@link #listen(LifecycleOwner, int, Listener)}.
+     *
+     * @param priority The priority of the listener, the default is 0
+     * @param listener The listener that will receive the events
+     */
+    @AnyThread
+    public void listenForever(int priority, @NonNull Listener<? super T> listener) {
+        addAlwaysActiveListener(listener, false, priority);
     }
 
     /**
@@ -269,14 +525,158 @@ public class LiveEvent<T> {
      * <p>
      * If the listener was already added with an owner to this LiveEvent, LiveEvent throws an
      * {@link IllegalArgumentException}.
+     * <p>
+     * This method can be called on any thread, if it is not the main thread the listener becomes
+     * active on the main thread shortly after.
      *
      * @param listener The listener that will receive the events
      */
-    @MainThread
+    @AnyThread
     public void listenForeverSticky(@NonNull Listener<? super T> listener) {
-        assertMainThread("listenForever");
-        AlwaysActiveListener wrapper = new AlwaysActiveListener(listener);
-        ListenerWrapper existing = mListeners.putIfAbsent(listener, wrapper);
+        addAlwaysActiveListener(listener, true, DEFAULT_PRIORITY);
+    }
+
+    /**
+     * Same as {@link #listenForeverSticky(Listener)}, but with a priority, see
+     * {@link #listen(LifecycleOwner, int, Listener)}.
+     *
+     * @param priority The priority of the listener, the default is 0
+     * @param listener The listener that will receive the events
+     */
+    @AnyThread
+    public void listenForeverSticky(int priority, @NonNull Listener<? super T> listener) {
+        addAlwaysActiveListener(listener, true, priority);
+    }
+
+    /**
+     * Same as {@link #listenForever(Listener)}, but the listener only receives the values that
+     * are instances of {@code type}, see {@link #listen(LifecycleOwner, Class, Listener)}.
+     *
+     * @param type     The type of the values the listener wants, including its subtypes
+     * @param listener The listener that will receive the events
+     * @param <S>      The type of the values the listener wants
+     */
+    @AnyThread
+    public <S extends T> void listenForever(@NonNull Class<S> type,
+            @NonNull Listener<? super S> listener) {
+        addAlwaysActiveListener(typedListener(listener), false, DEFAULT_PRIORITY, false, type);
+    }
+
+    /**
+     * Same as {@link #listenForeverSticky(Listener)}, but the listener only receives the values
+     * that are instances of {@code type}, see {@link #listen(LifecycleOwner, Class, Listener)}.
+     *
+     * @param type     The type of the values the listener wants, including its subtypes
+     * @param listener The listener that will receive the events
+     * @param <S>      The type of the values the listener wants
+     */
+    @AnyThread
+    public <S extends T> void listenForeverSticky(@NonNull Class<S> type,
+            @NonNull Listener<? super S> listener) {
+        addAlwaysActiveListener(typedListener(listener), true, DEFAULT_PRIORITY, false, type);
+    }
+
+    /**
+     * The listener is only called with instances of its type, see considerNotify.
+     */
+    @SuppressWarnings("unchecked")
+    @NonNull
+    private static <T> Listener<? super T> typedListener(@NonNull Listener<?> listener) {
+        return (Listener<? super T>) listener;
+    }
+
+    /**
+     * Same as {@link #listenForever(Listener)}, but LiveEvent only keeps a weak reference to the
+     * listener. Once the listener is garbage collected it is removed automatically, the next time
+     * a value is dispatched or a listener is added.
+     * <p>
+     * The caller must keep a strong reference to the listener for as long as it should receive
+     * events, a listener that is only referenced by this LiveEvent can be collected at any time.
+     *
+     * @param listener The listener that will receive the events
+     */
+    @AnyThread
+    public void listenForeverWeak(@NonNull Listener<? super T> listener) {
+        addAlwaysActiveListener(listener, false, DEFAULT_PRIORITY, true, null);
+    }
+
+    /**
+     * Same as {@link #listenForeverSticky(Listener)}, but LiveEvent only keeps a weak reference to
+     * the listener, see {@link #listenForeverWeak(Listener)}.
+     *
+     * @param listener The listener that will receive the events
+     */
+    @AnyThread
+    public void listenForeverStickyWeak(@NonNull Listener<? super T> listener) {
+        addAlwaysActiveListener(listener, true, DEFAULT_PRIORITY, true, null);
+    }
+
+    private void addAlwaysActiveListener(@NonNull Listener<? super T> listener, boolean sticky,
+            int priority) {
+        addAlwaysActiveListener(listener, sticky, priority, false, null);
+    }
+
+    /**
+     * Same as {@link #listenForever(Listener)}, but for a thread-safe listener that does
+     * CPU-heavy work without touching the UI, such as indexing or prefetching. After a value was
+     * dispatched to the other listeners on the main thread, it is handed to the parallel listeners
+     * on a thread pool, where they run in parallel. See
+     * {@link #setParallelDispatch(Executor, boolean)} for the pool and whether
+     * {@link #setValue(Object)} waits for them.
+     * <p>
+     * A parallel listener never receives a value older than one it has already received, but
+     * unless {@code setValue} waits for the parallel listeners it can be called again, with a
+     * newer value, while it is still running.
+     *
+     * @param listener The listener that will receive the events on a pool thread
+     * @throws IllegalArgumentException If the listener is a {@link ConsumingListener}, which can
+     *                                  not consume a value that was already dispatched
+     */
+    @AnyThread
+    public void listenForeverParallel(@NonNull Listener<? super T> listener) {
+        if (listener instanceof ConsumingListener) {
+            throw new IllegalArgumentException("A ConsumingListener can not be parallel");
+        }
+        addAlwaysActiveListener(listener, new ParallelListener(listener), false, DEFAULT_PRIORITY,
+                null);
+    }
+
+    /**
+     * Sets where the listeners added with {@link #listenForeverParallel(Listener)} run.
+     *
+     * @param executor The pool the parallel listeners run on, null to use a shared pool with one
+     *                 thread per CPU core
+     * @param join     Whether {@link #setValue(Object)} waits until the parallel listeners
+     *                 have been called. The main thread only waits, it never runs a parallel
+     *                 listener itself, so a parallel listener must not wait for the main thread.
+     *                 The default is false
+     */
+    @AnyThread
+    public void setParallelDispatch(@Nullable Executor executor, boolean join) {
+        mParallelExecutor = executor;
+        mJoinParallel = join;
+    }
+
+    private void addAlwaysActiveListener(@NonNull Listener<? super T> listener, boolean sticky,
+            int priority, boolean weak, @Nullable Class<?> type) {
+        AlwaysActiveListener wrapper = weak
+                ? new WeakAlwaysActiveListener(listener, getWeakListenerQueue())
+                : new AlwaysActiveListener(listener);
+        addAlwaysActiveListener(listener, wrapper, sticky, priority, type);
+    }
+
+    private void addAlwaysActiveListener(@NonNull Listener<? super T> listener,
+            @NonNull final AlwaysActiveListener wrapper, boolean sticky, int priority,
+            @Nullable Class<?> type) {
+        expungeStaleListeners();
+        wrapper.mSticky = sticky;
+        wrapper.mPriority = priority;
+        wrapper.mType = type;
+        if (!sticky) {
+            // Prevent onChanged from being triggered immediately
+            wrapper.mLastVersion = mVersion;
+        }
+        ListenerWrapper existing = putListener(listener, wrapper);
         if (existing instanceof LiveEvent.LifecycleBoundListener) {
             throw new IllegalArgumentException("Cannot add the same listener"
                     + " with different lifecycles");
@@ -284,7 +684,161 @@ public class LiveEvent<T> {
         if (existing != null) {
             return;
         }
-        wrapper.activeStateChanged(true);
+        runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                wrapper.attachListener();
+            }
+        });
+    }
+
+    /**
+     * Adds the wrapper unless the listener is already added.
+     *
+     * @return the existing wrapper of the listener, null if the wrapper was added
+     */
+    @Nullable
+    private ListenerWrapper putListener(@NonNull Listener<? super T> listener,
+            @NonNull ListenerWrapper wrapper) {
+        synchronized (mListenersLock) {
+            ListenerWrapper existing = findListener(listener);
+            if (existing != null) {
+                return existing;
+            }
+            mListeners.put(wrapper.getKey(), wrapper);
+            if (wrapper.mPriority != DEFAULT_PRIORITY) {
+                mPriorityListenerCount++;
+            }
+            if (wrapper instanceof LiveEvent.WeakAlwaysActiveListener) {
+                mWeakListenerCount++;
+            }
+            if (wrapper.mType != null) {
+                mTypedListenerCount++;
+            }
+            mListenerSnapshotDirty = true;
+            return null;
+        }
+    }
+
+    /**
+     * Must hold mListenersLock.
+     */
+    @Nullable
+    private ListenerWrapper findListener(@NonNull Listener<? super T> listener) {
+        ListenerWrapper wrapper = mListeners.get(listener);
+        if (wrapper == null && mWeakListenerCount > 0) {
+            // the weak wrappers are keyed by their reference, which hashes by identity
+            wrapper = mListeners.get(new WeakListenerKey(listener));
+        }
+        return wrapper;
+    }
+
+    @Nullable
+    private ListenerWrapper takeListener(@NonNull Listener<? super T> listener) {
+        synchronized (mListenersLock) {
+            ListenerWrapper removed = findListener(listener);
+            if (removed == null) {
+                return null;
+            }
+            removeWrapperLocked(removed);
+            return removed;
+        }
+    }
+
+    /**
+     * Must hold mListenersLock.
+     */
+    private void removeWrapperLocked(@NonNull ListenerWrapper wrapper) {
+        mListeners.remove(wrapper.getKey());
+        wrapper.mRemoved = true;
+        if (wrapper.mPriority != DEFAULT_PRIORITY) {
+            mPriorityListenerCount--;
+        }
+        if (wrapper instanceof LiveEvent.WeakAlwaysActiveListener) {
+            mWeakListenerCount--;
+        }
+        if (wrapper.mType != null) {
+            mTypedListenerCount--;
+        }
+        mListenerSnapshotDirty = true;
+    }
+
+    @NonNull
+    private ReferenceQueue<Listener<? super T>> getWeakListenerQueue() {
+        ReferenceQueue<Listener<? super T>> queue = mWeakListenerQueue;
+        if (queue == null) {
+            synchronized (mListenersLock) {
+                queue = mWeakListenerQueue;
+                if (queue == null) {
+                    queue = new ReferenceQueue<>();
+                    mWeakListenerQueue = queue;
+                }
+            }
+        }
+        return queue;
+    }
+
+    /**
+     * Removes the weak listeners that were garbage collected, so that they no longer count as
+     * active.
+     */
+    @SuppressWarnings("unchecked")
+    private void expungeStaleListeners() {
+        ReferenceQueue<Listener<? super T>> queue = mWeakListenerQueue;
+        if (queue == null) {
+            return;
+        }
+        Reference<? extends Listener<? super T>> reference;
+        while ((reference = queue.poll()) != null) {
+            final ListenerWrapper wrapper = ((WeakListenerReference) reference).mWrapper;
+            synchronized (mListenersLock) {
+                if (wrapper.mRemoved) {
+                    continue;
+                }
+                removeWrapperLocked(wrapper);
+            }
+            detachRemovedListener(wrapper);
+        }
+    }
+
+    /**
+     * Returns the listeners in dispatch order. The snapshot is made again only when it is needed
+     * after the listeners changed, so adding or removing many listeners does not copy and sort
+     * them every time. mTypeRoutes is up to date after this returns.
+     */
+    @NonNull
+    private List<ListenerWrapper> getListenerSnapshot() {
+        if (mListenerSnapshotDirty) {
+            synchronized (mListenersLock) {
+                if (mListenerSnapshotDirty) {
+                    updateListenerSnapshot();
+                }
+            }
+        }
+        return mListenerSnapshot;
+    }
+
+    /**
+     * Copies the listeners in dispatch order, sorted by descending priority, listeners with the
+     * same priority keep the order they were added in. Must hold mListenersLock.
+     */
+    private void updateListenerSnapshot() {
+        List<ListenerWrapper> snapshot = new ArrayList<>(mListeners.values());
+        if (mPriorityListenerCount > 0) {
+            // Collections.sort is stable
+            Collections.sort(snapshot, new Comparator<ListenerWrapper>() {
+                @Override
+                public int compare(ListenerWrapper o1, ListenerWrapper o2) {
+                    // descending
+                    return o2.mPriority < o1.mPriority ? -1
+                            : (o2.mPriority == o1.mPriority ? 0 : 1);
+                }
+            });
+        }
+        mListenerSnapshot = Collections.unmodifiableList(snapshot);
+        mTypeRoutes = mTypedListenerCount > 0 ? new TypeRoutes(snapshot) : null;
+        // cleared last, a reader that sees it cleared sees the new snapshot
+        mListenerSnapshotDirty = false;
     }
 
     /**
@@ -292,15 +846,36 @@ public class LiveEvent<T> {
      *
      * @param listener The Listener to receive events.
      */
-    @MainThread
+    @AnyThread
     public void removeListener(@NonNull final Listener<? super T> listener) {
-        assertMainThread("removeListener");
-        ListenerWrapper removed = mListeners.remove(listener);
-        if (removed == null) {
-            return;
+        ListenerWrapper removed = takeListener(listener);
+        if (removed != null) {
+            detachRemovedListener(removed);
         }
-        removed.detachListener();
-        removed.activeStateChanged(false);
+    }
+
+    /**
+     * Removes a listener that was added with a type, for example with
+     * {@link #listenForever(Class, Listener)}, whose type parameter is narrower than {@code T}.
+     *
+     * @param type     The type the listener was added with
+     * @param listener The Listener to receive events.
+     * @param <S>      The type of the values the listener wants
+     */
+    @AnyThread
+    public <S extends T> void removeListener(@NonNull Class<S> type,
+            @NonNull Listener<? super S> listener) {
+        removeListener(LiveEvent.<T>typedListener(listener));
+    }
+
+    private void detachRemovedListener(@NonNull final ListenerWrapper removed) {
+        runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                removed.detachListener();
+                removed.activeStateChanged(false);
+            }
+        });
     }
 
     /**
@@ -308,12 +883,11 @@ public class LiveEvent<T> {
      *
      * @param owner The {@code LifecycleOwner} scope for the listeners to be removed.
      */
-    @MainThread
+    @AnyThread
     public void removeListener(@NonNull final LifecycleOwner owner) {
-        assertMainThread("removeListener");
-        for (Map.Entry<Listener<? super T>, ListenerWrapper> entry : mListeners) {
-            if (entry.getValue().isAttachedTo(owner)) {
-                removeListener(entry.getKey());
+        for (ListenerWrapper wrapper : getListenerSnapshot()) {
+            if (wrapper.isAttachedTo(owner)) {
+                removeListener(wrapper.getListener());
             }
         }
     }
@@ -334,6 +908,10 @@ public class LiveEvent<T> {
      * @param value The new value
      */
     public void postValue(T value) {
+        LiveEventTracer tracer = mTracer;
+        if (tracer != null) {
+            tracer.onPostValue(value);
+        }
         boolean postTask;
         synchronized (mDataLock) {
             postTask = mPendingData == NOT_SET;
@@ -345,6 +923,195 @@ public class LiveEvent<T> {
         ArchTaskExecutor.getInstance().postToMainThread(mPostValueRunnable);
     }
 
+    /**
+     * Posts a task to a main thread to set the given value like {@link #postValue(Object)}, but
+     * if a posted value is still waiting for the main thread, {@code reducer} merges the two
+     * instead of the new value replacing the old one. The main thread then dispatches one value
+     * for everything posted since the last dispatch, for example the sum of counter deltas:
+     * <pre>
+     * unreadCountDeltaLiveEvent.postValue(1, new Reducer&lt;Integer&gt;() {
+     *     public Integer reduce(Integer pending, Integer incoming) {
+     *         return pending + incoming;
+     *     }
+     * });
+     * </pre>
+     * The first value posted since the last dispatch waits as is, without calling the reducer. A
+     * reducer may modify the pending value and return it, as long as the first value was not
+     * shared with other code, for example by posting a new set for every batch of IDs.
+     * {@link #postValue(Object)} still replaces the pending value.
+     *
+     * @param value   The new value
+     * @param reducer Merges {@code value} into the pending value
+     */
+    @SuppressWarnings("unchecked")
+    @AnyThread
+    public void postValue(T value, @NonNull Reducer<T> reducer) {
+        LiveEventTracer tracer = mTracer;
+        if (tracer != null) {
+            tracer.onPostValue(value);
+        }
+        boolean postTask;
+        synchronized (mDataLock) {
+            postTask = mPendingData == NOT_SET;
+            mPendingData = postTask ? value : reducer.reduce((T) mPendingData, value);
+        }
+        if (!postTask) {
+            return;
+        }
+        ArchTaskExecutor.getInstance().postToMainThread(mPostValueRunnable);
+    }
+
+    /**
+     * Sets the given value on the main thread after {@code delayMillis}. Unlike
+     * {@link #postValue(Object)} every scheduled value is set, in the order of their times.
+     * <p>
+     * All scheduled values of all LiveEvents share one timer wheel that posts one message to the
+     * main thread at a time, so scheduling thousands of timeouts is cheap.
+     *
+     * @param value       The new value
+     * @param delayMillis The delay in milliseconds
+     * @return a handle to cancel the value
+     * @see #setCancelScheduledWhenInactive(boolean)
+     */
+    @AnyThread
+    @NonNull
+    public ScheduledEvent postValueDelayed(T value, long delayMillis) {
+        EventTimerWheel wheel = EventTimerWheel.getDefault();
+        return wheel.schedule(this, value, wheel.timeAfter(delayMillis));
+    }
+
+    /**
+     * Sets the given value on the main thread at {@code uptimeMillis}, see
+     * {@link #postValueDelayed(Object, long)}.
+     *
+     * @param value        The new value
+     * @param uptimeMillis The time in the time base of the {@link EventClock},
+     *                     {@link SystemClock#uptimeMillis()} by default
+     * @return a handle to cancel the value
+     */
+    @AnyThread
+    @NonNull
+    public ScheduledEvent postValueAt(T value, long uptimeMillis) {
+        return EventTimerWheel.getDefault().schedule(this, value, uptimeMillis);
+    }
+
+    /**
+     * Sets whether the values scheduled with {@link #postValueDelayed(Object, long)} are cancelled
+     * when this LiveEvent has no active listeners anymore, and dropped when they are due while it
+     * has none. The default is false.
+     *
+     * @param cancel Whether to cancel the scheduled values when inactive
+     */
+    @AnyThread
+    public void setCancelScheduledWhenInactive(boolean cancel) {
+        mCancelScheduledWhenInactive = cancel;
+    }
+
+    /**
+     * Blocks until the next value is dispatched and returns it, without adding a listener. The
+     * value counts once it is dispatched on the main thread, a value that is set or posted but
+     * not dispatched yet when this is called is returned too.
+     * <p>
+     * Must not be called on the main thread, which dispatches the value.
+     *
+     * @param timeoutMillis The maximum time to wait in milliseconds
+     * @return the next value
+     * @throws TimeoutException     if no value was dispatched in time
+     * @throws InterruptedException if the thread was interrupted while waiting
+     */
+    @WorkerThread
+    public T awaitNext(long timeoutMillis) throws InterruptedException, TimeoutException {
+        assertNotMainThread("awaitNext");
+        return addWaiter(null).await(timeoutMillis);
+    }
+
+    /**
+     * Blocks until a value that passes {@code predicate} is dispatched and returns it, see
+     * {@link #awaitNext(long)}. The current value is not tested, only the values dispatched
+     * afterwards.
+     *
+     * @param predicate     Selects the value, called on the main thread while dispatching
+     * @param timeoutMillis The maximum time to wait in milliseconds
+     * @return the first value that passed {@code predicate}
+     * @throws TimeoutException     if no such value was dispatched in time
+     * @throws InterruptedException if the thread was interrupted while waiting
+     */
+    @WorkerThread
+    public T awaitFirst(@NonNull Predicate<? super T> predicate, long timeoutMillis)
+            throws InterruptedException, TimeoutException {
+        assertNotMainThread("awaitFirst");
+        return addWaiter(predicate).await(timeoutMillis);
+    }
+
+    /**
+     * Returns a {@link Future} that completes with the next dispatched value, see
+     * {@link #awaitNext(long)}. Cancel it to stop waiting. Getting the result on the main thread
+     * before it is done throws an {@link IllegalStateException}.
+     *
+     * @return the next value
+     */
+    @AnyThread
+    @NonNull
+    public Future<T> nextAsFuture() {
+        return addWaiter(null);
+    }
+
+    @NonNull
+    private EventWaiter<T> addWaiter(@Nullable Predicate<? super T> predicate) {
+        EventWaiter<T> waiter = new EventWaiter<>(this, predicate);
+        synchronized (mWaitersLock) {
+            EventWaiter<T> head = mWaiters;
+            waiter.mNext = head;
+            if (head != null) {
+                head.mPrev = waiter;
+            }
+            waiter.mLinked = true;
+            mWaiters = waiter;
+            // read after publishing the waiter, dispatchingValue writes the version before it
+            // looks for waiters, so a value is either offered to the waiter or already counted
+            waiter.mStartVersion = mDispatchedVersion;
+        }
+        return waiter;
+    }
+
+    void removeWaiter(@NonNull EventWaiter<T> waiter) {
+        synchronized (mWaitersLock) {
+            unlinkWaiter(waiter);
+        }
+    }
+
+    private void unlinkWaiter(@NonNull EventWaiter<T> waiter) {
+        if (!waiter.mLinked) {
+            return;
+        }
+        if (waiter.mPrev != null) {
+            waiter.mPrev.mNext = waiter.mNext;
+        } else {
+            mWaiters = waiter.mNext;
+        }
+        if (waiter.mNext != null) {
+            waiter.mNext.mPrev = waiter.mPrev;
+        }
+        waiter.mPrev = null;
+        waiter.mNext = null;
+        waiter.mLinked = false;
+    }
+
+    private void completeWaiters() {
+        int version = mVersion;
+        Object value = mData;
+        synchronized (mWaitersLock) {
+            EventWaiter<T> waiter = mWaiters;
+            while (waiter != null) {
+                EventWaiter<T> next = waiter.mNext;
+                if (waiter.offer(version, value)) {
+                    unlinkWaiter(waiter);
+                }
+                waiter = next;
+            }
+        }
+    }
+
     /**
      * Sets the value. If there are active listeners, the value will be dispatched to them.
      * <p>
@@ -358,9 +1125,130 @@ public class LiveEvent<T> {
         assertMainThread("setValue");
         mVersion++;
         mData = value;
+        LiveEventTracer tracer = mTracer;
+        if (tracer != null) {
+            tracer.onSetValue(value, mVersion);
+        }
+        if (mFrameDispatcher != null) {
+            if (!mFrameDirty) {
+                mFrameDirty = true;
+                mFrameDispatcher.schedule(this);
+            }
+            return;
+        }
+        if (LiveEventTransaction.isInTransaction()) {
+            if (!mTransactionDirty) {
+                mTransactionDirty = true;
+                LiveEventTransaction.markDirty(this);
+            }
+            return;
+        }
+        if (deferDispatch()) {
+            return;
+        }
+        dispatchValue();
+    }
+
+    /**
+     * Dispatches the value recorded within a {@link LiveEventTransaction}, called within the
+     * propagation of the commit.
+     */
+    @MainThread
+    void dispatchTransaction() {
+        if (!mTransactionDirty) {
+            return;
+        }
+        mTransactionDirty = false;
+        if (deferDispatch()) {
+            return;
+        }
         dispatchingValue(null);
     }
 
+    /**
+     * Forgets that the value changed within a {@link LiveEventTransaction}, for a commit that
+     * did not get to dispatch it.
+     */
+    @MainThread
+    void clearTransactionDirty() {
+        mTransactionDirty = false;
+    }
+
+    /**
+     * Returns true if the value that was just set must not be dispatched now, because a subclass
+     * dispatches it later.
+     */
+    @MainThread
+    boolean deferDispatch() {
+        return false;
+    }
+
+    /**
+     * Dispatches the current value to all listeners as one propagation, see
+     * {@link LiveEventPropagation}.
+     */
+    @MainThread
+    void dispatchValue() {
+        LiveEventPropagation.enter();
+        try {
+            dispatchingValue(null);
+        } finally {
+            LiveEventPropagation.exit();
+        }
+    }
+
+    /**
+     * Sets the {@link FrameDispatcher} that dispatches the values of this LiveEvent. With a
+     * FrameDispatcher {@link #setValue(Object)} only records the value, it is dispatched to the
+     * listeners when the next frame starts, so several values set within one frame cause one
+     * dispatch of the latest value.
+     * <p>
+     * A value that is waiting for the next frame is dispatched immediately when the dispatcher is
+     * changed.
+     *
+     * @param frameDispatcher The dispatcher, null to dispatch values immediately again
+     */
+    @MainThread
+    public void setFrameDispatcher(@Nullable FrameDispatcher frameDispatcher) {
+        assertMainThread("setFrameDispatcher");
+        if (mFrameDispatcher == frameDispatcher) {
+            return;
+        }
+        mFrameDispatcher = frameDispatcher;
+        if (mFrameDirty) {
+            mFrameDirty = false;
+            dispatchValue();
+        }
+    }
+
+    @MainThread
+    void dispatchFrame() {
+        if (!mFrameDirty) {
+            return;
+        }
+        mFrameDirty = false;
+        dispatchValue();
+    }
+
+    /**
+     * Sets a value that is older than the listeners, such as one restored from disk. Only sticky
+     * listeners will receive it, as if it had been set before any listener was added.
+     *
+     * @param value The restored value
+     */
+    @MainThread
+    void setStickyValue(T value) {
+        assertMainThread("setStickyValue");
+        mVersion++;
+        mData = value;
+        for (ListenerWrapper wrapper : getListenerSnapshot()) {
+            if (!wrapper.mSticky) {
+                wrapper.mLastVersion = mVersion;
+            }
+        }
+        dispatchValue();
+    }
+
     /**
      * Returns the current value.
      * Note that calling this method on a background thread does not guarantee that the latest
@@ -378,6 +1266,15 @@ public class LiveEvent<T> {
         return null;
     }
 
+    void setTracer(@Nullable LiveEventTracer tracer) {
+        mTracer = tracer;
+    }
+
+    @Nullable
+    LiveEventTracer getTracer() {
+        return mTracer;
+    }
+
     int getVersion() {
         return mVersion;
     }
@@ -411,7 +1308,9 @@ public class LiveEvent<T> {
      * @return true if this LiveEvent has listeners
      */
     public boolean hasListeners() {
-        return mListeners.size() > 0;
+        synchronized (mListenersLock) {
+            return !mListeners.isEmpty();
+        }
     }
 
     /**
@@ -423,6 +1322,82 @@ public class LiveEvent<T> {
         return mActiveCount > 0;
     }
 
+    /**
+     * Collects the state of this LiveEvent for {@link LiveEventAudit}.
+     */
+    @MainThread
+    @NonNull
+    LiveEventAudit.EventInfo audit(long now, long foreverThresholdMillis,
+            @NonNull LiveEventAudit.SizeEstimator sizeEstimator) {
+        int lifecycleCount = 0;
+        int foreverCount = 0;
+        List<LifecycleOwner> owners = new ArrayList<>();
+        List<ListenerWrapper> stale = new ArrayList<>();
+        for (ListenerWrapper wrapper : getListenerSnapshot()) {
+            if (wrapper instanceof LiveEvent.LifecycleBoundListener) {
+                lifecycleCount++;
+                LifecycleOwner owner = ((LifecycleBoundListener) wrapper).mOwner;
+                if (!owners.contains(owner)) {
+                    owners.add(owner);
+                }
+            } else {
+                foreverCount++;
+                if (wrapper.mAddTime != 0 && now - wrapper.mAddTime > foreverThresholdMillis
+                        && wrapper.getListener() != null) {
+                    stale.add(wrapper);
+                }
+            }
+        }
+        Collections.sort(stale, new Comparator<ListenerWrapper>() {
+            @Override
+            public int compare(ListenerWrapper o1, ListenerWrapper o2) {
+                return o1.mAddTime < o2.mAddTime ? -1 : (o1.mAddTime == o2.mAddTime ? 0 : 1);
+            }
+        });
+        List<LiveEventAudit.ForeverListenerInfo> staleInfos = new ArrayList<>(stale.size());
+        for (ListenerWrapper wrapper : stale) {
+            Listener<? super T> listener = wrapper.getListener();
+            if (listener != null) {
+                staleInfos.add(new LiveEventAudit.ForeverListenerInfo(listener,
+                        now - wrapper.mAddTime));
+            }
+        }
+        Object data = mData;
+        long stickySize = data == NOT_SET ? -1 : (data == null ? 0
+                : sizeEstimator.estimateSize(data));
+        return new LiveEventAudit.EventInfo(this, lifecycleCount, foreverCount, mActiveCount,
+                owners, staleInfos, stickySize);
+    }
+
+    /**
+     * Collects the state of this LiveEvent for {@link LiveEventGraph}.
+     */
+    @MainThread
+    @NonNull
+    LiveEventGraph.Node graphNode(int id) {
+        Object data = mData;
+        String stickyValueType = data == NOT_SET ? null
+                : (data == null ? "null" : data.getClass().getName());
+        String operator = this instanceof MediatorLiveEvent
+                ? ((MediatorLiveEvent<?>) this).mOperator : null;
+        return new LiveEventGraph.Node(id, this, operator, mVersion, getListenerSnapshot().size(),
+                mActiveCount, mPendingData != NOT_SET, stickyValueType);
+    }
+
+    /**
+     * Adds the mediators that currently listen to this LiveEvent to {@code out}, for
+     * {@link LiveEventGraph}.
+     */
+    @MainThread
+    void collectDownstream(@NonNull List<MediatorLiveEvent<?>> out) {
+        for (ListenerWrapper wrapper : getListenerSnapshot()) {
+            MediatorLiveEvent<?> mediator = MediatorLiveEvent.mediatorOf(wrapper.getListener());
+            if (mediator != null && !out.contains(mediator)) {
+                out.add(mediator);
+            }
+        }
+    }
+
     class LifecycleBoundListener extends ListenerWrapper implements LifecycleEventObserver {
         @NonNull
         final LifecycleOwner mOwner;
@@ -452,6 +1427,19 @@ public class LiveEvent<T> {
             return mOwner == owner;
         }
 
+        @Override
+        void attachListener() {
+            if (mRemoved) {
+                return;
+            }
+            if (mOwner.getLifecycle().getCurrentState() == DESTROYED) {
+                // destroyed before we got to the main thread
+                removeListener(mListener);
+                return;
+            }
+            mOwner.getLifecycle().addObserver(this);
+        }
+
         @Override
         void detachListener() {
             mOwner.getLifecycle().removeObserver(this);
@@ -461,7 +1449,17 @@ public class LiveEvent<T> {
     private abstract class ListenerWrapper {
         final Listener<? super T> mListener;
         boolean mActive;
+        // whether the listener wants values that were set before it was added
+        boolean mSticky;
         int mLastVersion = START_VERSION;
+        int mPriority = DEFAULT_PRIORITY;
+        // the type of the values the listener wants, null for all values
+        @Nullable
+        Class<?> mType;
+        // set when the listener is removed, possibly on another thread
+        volatile boolean mRemoved;
+        // when the listener was added, 0 if LiveEventAudit was not installed then
+        final long mAddTime = LiveEventAudit.now();
 
         ListenerWrapper(Listener<? super T> listener) {
             mListener = listener;
@@ -469,10 +1467,35 @@ public class LiveEvent<T> {
 
         abstract boolean shouldBeActive();
 
+        /**
+         * Returns the listener, null if it is weakly referenced and was garbage collected.
+         */
+        @Nullable
+        Listener<? super T> getListener() {
+            return mListener;
+        }
+
+        /**
+         * Returns the key of this wrapper in mListeners.
+         */
+        @NonNull
+        Object getKey() {
+            return mListener;
+        }
+
         boolean isAttachedTo(LifecycleOwner owner) {
             return false;
         }
 
+        /**
+         * Called on the main thread after the listener was added.
+         */
+        void attachListener() {
+            if (!mRemoved) {
+                activeStateChanged(shouldBeActive());
+            }
+        }
+
         void detachListener() {
         }
 
@@ -490,6 +1513,9 @@ public class LiveEvent<T> {
             }
             if (LiveEvent.this.mActiveCount == 0 && !mActive) {
                 onInactive();
+                if (mCancelScheduledWhenInactive) {
+                    EventTimerWheel.getDefault().cancelAll(LiveEvent.this);
+                }
             }
             if (mActive) {
                 dispatchingValue(this);
@@ -509,6 +1535,157 @@ public class LiveEvent<T> {
         }
     }
 
+    private class ParallelListener extends AlwaysActiveListener {
+        // the pool threads may run deliveries of several dispatches at once
+        final AtomicInteger mDeliveredVersion = new AtomicInteger(START_VERSION);
+
+        ParallelListener(Listener<? super T> listener) {
+            super(listener);
+        }
+    }
+
+    private class ParallelDelivery {
+        @NonNull
+        final ParallelListener mListener;
+        @Nullable
+        final Object mValue;
+        final int mVersion;
+
+        ParallelDelivery(@NonNull ParallelListener listener, @Nullable Object value, int version) {
+            mListener = listener;
+            mValue = value;
+            mVersion = version;
+        }
+
+        @SuppressWarnings("unchecked")
+        void deliver() {
+            if (mListener.mRemoved) {
+                return;
+            }
+            int deliveredVersion;
+            do {
+                deliveredVersion = mListener.mDeliveredVersion.get();
+                if (deliveredVersion >= mVersion) {
+                    return;
+                }
+            } while (!mListener.mDeliveredVersion.compareAndSet(deliveredVersion, mVersion));
+            mListener.mListener.onChanged((T) mValue);
+        }
+    }
+
+    private class WeakAlwaysActiveListener extends AlwaysActiveListener {
+        @NonNull
+        final WeakListenerReference mReference;
+
+        WeakAlwaysActiveListener(@NonNull Listener<? super T> listener,
+                @NonNull ReferenceQueue<Listener<? super T>> queue) {
+            super(null);
+            mReference = new WeakListenerReference(listener, queue, this);
+        }
+
+        @Nullable
+        @Override
+        Listener<? super T> getListener() {
+            return mReference.get();
+        }
+
+        @NonNull
+        @Override
+        Object getKey() {
+            return mReference;
+        }
+    }
+
+    private class WeakListenerReference extends WeakReference<Listener<? super T>> {
+        @NonNull
+        final ListenerWrapper mWrapper;
+        // the identity hash of the listener, it must not change when the listener is collected
+        private final int mHash;
+
+        WeakListenerReference(@NonNull Listener<? super T> listener,
+                @NonNull ReferenceQueue<Listener<? super T>> queue,
+                @NonNull ListenerWrapper wrapper) {
+            super(listener, queue);
+            mWrapper = wrapper;
+            mHash = System.identityHashCode(listener);
+        }
+
+        @Override
+        public int hashCode() {
+            return mHash;
+        }
+    }
+
+    /**
+     * Looks up the {@link WeakListenerReference} of a listener in mListeners, equal to the
+     * reference that still refers to the same listener instance.
+     */
+    private static final class WeakListenerKey {
+        @NonNull
+        private final Listener<?> mListener;
+
+        WeakListenerKey(@NonNull Listener<?> listener) {
+            mListener = listener;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(mListener);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof LiveEvent.WeakListenerReference
+                    && ((LiveEvent<?>.WeakListenerReference) o).get() == mListener;
+        }
+    }
+
+    /**
+     * The listeners that want the values of a class, in dispatch order. Created for a snapshot on
+     * any thread, but only queried on the main thread.
+     */
+    private class TypeRoutes {
+        @NonNull
+        private final List<ListenerWrapper> mListeners;
+        private final Map<Class<?>, List<ListenerWrapper>> mRoutes = new HashMap<>();
+
+        TypeRoutes(@NonNull List<ListenerWrapper> listeners) {
+            mListeners = listeners;
+        }
+
+        @NonNull
+        List<ListenerWrapper> getListeners(@Nullable Object value) {
+            Class<?> valueClass = value != null ? value.getClass() : null;
+            List<ListenerWrapper> routed = mRoutes.get(valueClass);
+            if (routed == null) {
+                routed = new ArrayList<>();
+                for (ListenerWrapper listener : mListeners) {
+                    if (listener.mType == null || (valueClass != null
+                            && listener.mType.isAssignableFrom(valueClass))) {
+                        routed.add(listener);
+                    }
+                }
+                mRoutes.put(valueClass, routed);
+            }
+            return routed;
+        }
+    }
+
+    static void runOnMainThread(@NonNull Runnable runnable) {
+        if (ArchTaskExecutor.getInstance().isMainThread()) {
+            runnable.run();
+        } else {
+            ArchTaskExecutor.getInstance().postToMainThread(runnable);
+        }
+    }
+
+    static void assertNotMainThread(String methodName) {
+        if (ArchTaskExecutor.getInstance().isMainThread()) {
+            throw new IllegalStateException("Cannot invoke " + methodName + " on the main"
+                    + " thread, it would never return");
+        }
+    }
+
     static void assertMainThread(String methodName) {
         if (!ArchTaskExecutor.getInstance().isMainThread()) {
             throw new IllegalStateException("Cannot invoke " + methodName + " on a background"
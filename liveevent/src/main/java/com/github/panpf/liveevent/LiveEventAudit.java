@@ -0,0 +1,352 @@
+package com.github.panpf.liveevent;
+
+import android.graphics.Bitmap;
+import android.os.SystemClock;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Reports the listeners of all live {@link LiveEvent} and {@link MediatorLiveEvent} instances,
+ * to find forgotten {@code listenForever} calls without taking a heap dump.
+ * <p>
+ * Tracking is off by default. Call {@link #install()} as early as possible, for example in
+ * {@code Application.onCreate()} of a debug build, only the LiveEvents created after that are
+ * reported and only the forever listeners added after that have an age:
+ * <pre>
+ * LiveEventAudit.install();
+ * ...
+ * for (LiveEventAudit.EventInfo info : LiveEventAudit.findLeakSuspects(60 * 1000)) {
+ *     Log.w("LiveEventAudit", info.toString());
+ * }
+ * </pre>
+ * The instances are held weakly, auditing does not keep a LiveEvent alive. The returned
+ * {@link EventInfo}s however reference the events, owners and listeners, do not keep them.
+ */
+public final class LiveEventAudit {
+    private static final WeakHashMap<LiveEvent<?>, Boolean> sEvents = new WeakHashMap<>();
+    private static volatile boolean sInstalled;
+    @NonNull
+    private static volatile SizeEstimator sSizeEstimator = new DefaultSizeEstimator();
+
+    private LiveEventAudit() {
+    }
+
+    /**
+     * Starts tracking the LiveEvents created from now on.
+     */
+    public static void install() {
+        sInstalled = true;
+    }
+
+    /**
+     * Stops tracking and forgets the LiveEvents tracked so far, for example between tests that
+     * share a process.
+     */
+    public static void uninstall() {
+        sInstalled = false;
+        synchronized (sEvents) {
+            sEvents.clear();
+        }
+    }
+
+    /**
+     * Returns true if {@link #install()} was called and {@link #uninstall()} was not called
+     * since.
+     *
+     * @return true if tracking is on
+     */
+    public static boolean isInstalled() {
+        return sInstalled;
+    }
+
+    /**
+     * Sets how the retained size of sticky values is estimated, null to restore the default,
+     * which knows strings, arrays, bitmaps, collections and maps and counts any other object as
+     * a small constant.
+     *
+     * @param estimator The estimator to use
+     */
+    public static void setSizeEstimator(@Nullable SizeEstimator estimator) {
+        sSizeEstimator = estimator != null ? estimator : new DefaultSizeEstimator();
+    }
+
+    static void track(@NonNull LiveEvent<?> event) {
+        synchronized (sEvents) {
+            sEvents.put(event, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Returns the current time in the clock used for the ages of forever listeners, 0 if
+     * tracking is off.
+     */
+    static long now() {
+        return sInstalled ? SystemClock.elapsedRealtime() : 0;
+    }
+
+    /**
+     * Reports all tracked LiveEvents that are still alive.
+     *
+     * @param foreverThresholdMillis Forever listeners added longer ago than this are listed in
+     *                               {@link EventInfo#getStaleForeverListeners()}
+     * @return the reports, in no particular order
+     */
+    @MainThread
+    @NonNull
+    public static List<EventInfo> audit(long foreverThresholdMillis) {
+        LiveEvent.assertMainThread("audit");
+        List<LiveEvent<?>> events;
+        synchronized (sEvents) {
+            events = new ArrayList<>(sEvents.keySet());
+        }
+        long now = now();
+        SizeEstimator estimator = sSizeEstimator;
+        List<EventInfo> infos = new ArrayList<>(events.size());
+        for (LiveEvent<?> event : events) {
+            if (event != null) {
+                infos.add(event.audit(now, foreverThresholdMillis, estimator));
+            }
+        }
+        return infos;
+    }
+
+    /**
+     * Reports only the LiveEvents that have forever listeners added longer ago than
+     * {@code foreverThresholdMillis}, the usual suspects for leaks.
+     *
+     * @param foreverThresholdMillis The age from which on a forever listener is suspicious
+     * @return the reports, in no particular order
+     */
+    @MainThread
+    @NonNull
+    public static List<EventInfo> findLeakSuspects(long foreverThresholdMillis) {
+        List<EventInfo> suspects = new ArrayList<>();
+        for (EventInfo info : audit(foreverThresholdMillis)) {
+            if (!info.getStaleForeverListeners().isEmpty()) {
+                suspects.add(info);
+            }
+        }
+        return suspects;
+    }
+
+    /**
+     * Formats {@link #audit(long)} as text, one LiveEvent per line, for logs or a debug menu.
+     *
+     * @param foreverThresholdMillis See {@link #audit(long)}
+     * @return the report
+     */
+    @MainThread
+    @NonNull
+    public static String dump(long foreverThresholdMillis) {
+        StringBuilder builder = new StringBuilder();
+        for (EventInfo info : audit(foreverThresholdMillis)) {
+            builder.append(info).append('\n');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Estimates how many bytes a sticky value retains.
+     */
+    public interface SizeEstimator {
+        /**
+         * @param value A non-null value held by a LiveEvent
+         * @return the estimated size in bytes
+         */
+        long estimateSize(@NonNull Object value);
+    }
+
+    /**
+     * The state of one LiveEvent at the time of {@link #audit(long)}.
+     */
+    public static final class EventInfo {
+        @NonNull
+        private final LiveEvent<?> mEvent;
+        private final int mLifecycleListenerCount;
+        private final int mForeverListenerCount;
+        private final int mActiveCount;
+        @NonNull
+        private final List<LifecycleOwner> mOwners;
+        @NonNull
+        private final List<ForeverListenerInfo> mStaleForeverListeners;
+        private final long mStickyValueSize;
+
+        EventInfo(@NonNull LiveEvent<?> event, int lifecycleListenerCount,
+                int foreverListenerCount, int activeCount, @NonNull List<LifecycleOwner> owners,
+                @NonNull List<ForeverListenerInfo> staleForeverListeners, long stickyValueSize) {
+            mEvent = event;
+            mLifecycleListenerCount = lifecycleListenerCount;
+            mForeverListenerCount = foreverListenerCount;
+            mActiveCount = activeCount;
+            mOwners = Collections.unmodifiableList(owners);
+            mStaleForeverListeners = Collections.unmodifiableList(staleForeverListeners);
+            mStickyValueSize = stickyValueSize;
+        }
+
+        @NonNull
+        public LiveEvent<?> getEvent() {
+            return mEvent;
+        }
+
+        public boolean isMediator() {
+            return mEvent instanceof MediatorLiveEvent;
+        }
+
+        /**
+         * Returns the number of listeners added with {@code listen} or {@code listenSticky}.
+         */
+        public int getLifecycleListenerCount() {
+            return mLifecycleListenerCount;
+        }
+
+        /**
+         * Returns the number of listeners added with one of the {@code listenForever} methods.
+         */
+        public int getForeverListenerCount() {
+            return mForeverListenerCount;
+        }
+
+        /**
+         * Returns the number of listeners in active state.
+         */
+        public int getActiveCount() {
+            return mActiveCount;
+        }
+
+        /**
+         * Returns the distinct owners of the lifecycle-bound listeners.
+         */
+        @NonNull
+        public List<LifecycleOwner> getOwners() {
+            return mOwners;
+        }
+
+        /**
+         * Returns the forever listeners that were added longer ago than the threshold passed to
+         * {@link #audit(long)}, oldest first.
+         */
+        @NonNull
+        public List<ForeverListenerInfo> getStaleForeverListeners() {
+            return mStaleForeverListeners;
+        }
+
+        /**
+         * Returns the estimated size of the value in bytes, -1 if no value is set.
+         */
+        public long getStickyValueSize() {
+            return mStickyValueSize;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            builder.append(mEvent.getClass().getName())
+                    .append('@').append(Integer.toHexString(System.identityHashCode(mEvent)))
+                    .append(" lifecycle=").append(mLifecycleListenerCount)
+                    .append(" forever=").append(mForeverListenerCount)
+                    .append(" active=").append(mActiveCount)
+                    .append(" owners=").append(mOwners)
+                    .append(" stickySize=").append(mStickyValueSize);
+            if (!mStaleForeverListeners.isEmpty()) {
+                builder.append(" staleForever=").append(mStaleForeverListeners);
+            }
+            return builder.toString();
+        }
+    }
+
+    /**
+     * A listener added with one of the {@code listenForever} methods.
+     */
+    public static final class ForeverListenerInfo {
+        @NonNull
+        private final Listener<?> mListener;
+        private final long mAgeMillis;
+
+        ForeverListenerInfo(@NonNull Listener<?> listener, long ageMillis) {
+            mListener = listener;
+            mAgeMillis = ageMillis;
+        }
+
+        @NonNull
+        public Listener<?> getListener() {
+            return mListener;
+        }
+
+        /**
+         * Returns how long ago the listener was added.
+         */
+        public long getAgeMillis() {
+            return mAgeMillis;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return mListener.getClass().getName() + "(" + mAgeMillis + "ms)";
+        }
+    }
+
+    private static class DefaultSizeEstimator implements SizeEstimator {
+        private static final int OBJECT_SIZE = 16;
+        private static final int MAX_DEPTH = 4;
+
+        @Override
+        public long estimateSize(@NonNull Object value) {
+            return estimate(value, 0);
+        }
+
+        private long estimate(@Nullable Object value, int depth) {
+            if (value == null) {
+                return 0;
+            }
+            if (value instanceof CharSequence) {
+                return OBJECT_SIZE + 2L * ((CharSequence) value).length();
+            }
+            if (value instanceof Bitmap) {
+                return OBJECT_SIZE + ((Bitmap) value).getByteCount();
+            }
+            if (value instanceof byte[] || value instanceof boolean[]) {
+                return OBJECT_SIZE + java.lang.reflect.Array.getLength(value);
+            }
+            if (value instanceof char[] || value instanceof short[]) {
+                return OBJECT_SIZE + 2L * java.lang.reflect.Array.getLength(value);
+            }
+            if (value instanceof int[] || value instanceof float[]) {
+                return OBJECT_SIZE + 4L * java.lang.reflect.Array.getLength(value);
+            }
+            if (value instanceof long[] || value instanceof double[]) {
+                return OBJECT_SIZE + 8L * java.lang.reflect.Array.getLength(value);
+            }
+            if (depth >= MAX_DEPTH) {
+                return OBJECT_SIZE;
+            }
+            long size = OBJECT_SIZE;
+            if (value instanceof Object[]) {
+                for (Object element : (Object[]) value) {
+                    size += 4 + estimate(element, depth + 1);
+                }
+            } else if (value instanceof Collection) {
+                for (Object element : (Collection<?>) value) {
+                    size += 4 + estimate(element, depth + 1);
+                }
+            } else if (value instanceof Map) {
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                    size += OBJECT_SIZE + estimate(entry.getKey(), depth + 1)
+                            + estimate(entry.getValue(), depth + 1);
+                }
+            }
+            return size;
+        }
+    }
+}
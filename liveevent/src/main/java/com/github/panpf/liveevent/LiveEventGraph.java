@@ -0,0 +1,463 @@
+package com.github.panpf.liveevent;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A snapshot of the graph of LiveEvents connected through {@link MediatorLiveEvent} sources,
+ * including the results of {@link LiveEventTransformations}, to see how deep derived events are
+ * nested and which events fan out to many mediators:
+ * <pre>
+ * LiveEventGraph graph = LiveEventGraph.snapshot(userLiveEvent);
+ * Log.d("LiveEventGraph", graph.toDot());
+ * </pre>
+ * Starting from the given roots the snapshot follows the sources of mediators upstream and the
+ * mediators that listen to an event downstream. A mediator only listens to its sources while it
+ * has active listeners, so an inactive mediator is found only from itself or from the events
+ * downstream of it, and its edges are reported as not plugged.
+ * <p>
+ * Like {@link LiveEventAudit.EventInfo}, the nodes reference the events, do not keep them.
+ */
+public final class LiveEventGraph {
+    @NonNull
+    private final List<Node> mNodes;
+    @NonNull
+    private final List<Edge> mEdges;
+
+    private LiveEventGraph(@NonNull List<Node> nodes, @NonNull List<Edge> edges) {
+        mNodes = Collections.unmodifiableList(nodes);
+        mEdges = Collections.unmodifiableList(edges);
+    }
+
+    /**
+     * Takes a snapshot of the graph around the given LiveEvents.
+     *
+     * @param roots The LiveEvents to start from
+     * @return the snapshot
+     */
+    @MainThread
+    @NonNull
+    public static LiveEventGraph snapshot(@NonNull LiveEvent<?>... roots) {
+        List<LiveEvent<?>> list = new ArrayList<>(roots.length);
+        Collections.addAll(list, roots);
+        return snapshot(list);
+    }
+
+    /**
+     * Takes a snapshot of the graph around the given LiveEvents, for example all events reported
+     * by {@link LiveEventAudit#audit(long)}.
+     *
+     * @param roots The LiveEvents to start from
+     * @return the snapshot
+     */
+    @MainThread
+    @NonNull
+    public static LiveEventGraph snapshot(@NonNull Collection<? extends LiveEvent<?>> roots) {
+        LiveEvent.assertMainThread("snapshot");
+        Map<LiveEvent<?>, Node> nodes = new IdentityHashMap<>();
+        List<Node> order = new ArrayList<>();
+        List<LiveEvent<?>> queue = new ArrayList<>(roots);
+        for (int i = 0; i < queue.size(); i++) {
+            LiveEvent<?> event = queue.get(i);
+            if (!nodes.containsKey(event)) {
+                Node node = event.graphNode(order.size());
+                nodes.put(event, node);
+                order.add(node);
+                queue.addAll(neighbours(event));
+            }
+        }
+
+        List<Edge> edges = new ArrayList<>();
+        List<MediatorLiveEvent<?>> plugged = new ArrayList<>();
+        for (Node node : order) {
+            if (!(node.mEvent instanceof MediatorLiveEvent)) {
+                continue;
+            }
+            for (LiveEvent<?> source : ((MediatorLiveEvent<?>) node.mEvent).getSources()) {
+                Node from = nodes.get(source);
+                plugged.clear();
+                source.collectDownstream(plugged);
+                Edge edge = new Edge(from, node, plugged.contains(node.mEvent));
+                edges.add(edge);
+                from.mDownstream.add(edge);
+                node.mUpstream.add(edge);
+            }
+        }
+        for (Node node : order) {
+            computeDepth(node);
+        }
+        return new LiveEventGraph(order, edges);
+    }
+
+    @NonNull
+    private static List<LiveEvent<?>> neighbours(@NonNull LiveEvent<?> event) {
+        List<MediatorLiveEvent<?>> downstream = new ArrayList<>();
+        event.collectDownstream(downstream);
+        List<LiveEvent<?>> neighbours = new ArrayList<LiveEvent<?>>(downstream);
+        if (event instanceof MediatorLiveEvent) {
+            neighbours.addAll(((MediatorLiveEvent<?>) event).getSources());
+        }
+        return neighbours;
+    }
+
+    /**
+     * The longest path from a node without sources, a source that is still being computed closes
+     * a cycle and is ignored.
+     */
+    private static int computeDepth(@NonNull Node node) {
+        if (node.mDepth >= 0) {
+            return node.mDepth;
+        }
+        if (node.mDepth == Node.DEPTH_COMPUTING) {
+            return -1;
+        }
+        node.mDepth = Node.DEPTH_COMPUTING;
+        int depth = 0;
+        for (Edge edge : node.mUpstream) {
+            depth = Math.max(depth, computeDepth(edge.mFrom) + 1);
+        }
+        node.mDepth = depth;
+        return depth;
+    }
+
+    /**
+     * Returns the LiveEvents found, the roots first.
+     */
+    @NonNull
+    public List<Node> getNodes() {
+        return mNodes;
+    }
+
+    /**
+     * Returns the source relations between the nodes.
+     */
+    @NonNull
+    public List<Edge> getEdges() {
+        return mEdges;
+    }
+
+    /**
+     * Returns the largest {@link Node#getDepth()} of all nodes, 0 if no node has sources.
+     */
+    public int getMaxDepth() {
+        int depth = 0;
+        for (Node node : mNodes) {
+            depth = Math.max(depth, node.mDepth);
+        }
+        return depth;
+    }
+
+    /**
+     * Formats the snapshot as JSON, an object with a {@code nodes} and an {@code edges} array,
+     * the edges refer to the {@code id}s of the nodes.
+     *
+     * @return the JSON text
+     */
+    @NonNull
+    public String toJson() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("{\"nodes\":[");
+        for (int i = 0; i < mNodes.size(); i++) {
+            Node node = mNodes.get(i);
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append("{\"id\":").append(node.mId);
+            builder.append(",\"name\":");
+            appendJsonString(builder, node.getName());
+            builder.append(",\"type\":");
+            appendJsonString(builder, node.mEvent.getClass().getName());
+            builder.append(",\"operator\":");
+            appendJsonString(builder, node.mOperator);
+            builder.append(",\"version\":").append(node.mVersion);
+            builder.append(",\"listenerCount\":").append(node.mListenerCount);
+            builder.append(",\"activeCount\":").append(node.mActiveCount);
+            builder.append(",\"pendingPost\":").append(node.mPendingPost);
+            builder.append(",\"stickyValueType\":");
+            appendJsonString(builder, node.mStickyValueType);
+            builder.append(",\"depth\":").append(node.mDepth);
+            builder.append(",\"fanOut\":").append(node.getFanOut());
+            builder.append('}');
+        }
+        builder.append("],\"edges\":[");
+        for (int i = 0; i < mEdges.size(); i++) {
+            Edge edge = mEdges.get(i);
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append("{\"from\":").append(edge.mFrom.mId)
+                    .append(",\"to\":").append(edge.mTo.mId)
+                    .append(",\"plugged\":").append(edge.mPlugged)
+                    .append('}');
+        }
+        builder.append("]}");
+        return builder.toString();
+    }
+
+    /**
+     * Formats the snapshot as a Graphviz DOT digraph, edges point from a source to the mediator,
+     * edges that are not plugged are dashed.
+     *
+     * @return the DOT text
+     */
+    @NonNull
+    public String toDot() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("digraph LiveEvents {\n");
+        builder.append("  rankdir=LR;\n");
+        builder.append("  node [shape=box];\n");
+        for (Node node : mNodes) {
+            StringBuilder label = new StringBuilder(node.getName());
+            if (node.mOperator != null) {
+                label.append(" (").append(node.mOperator).append(')');
+            }
+            label.append("\nversion=").append(node.mVersion)
+                    .append(" listeners=").append(node.mListenerCount)
+                    .append(" active=").append(node.mActiveCount);
+            if (node.mPendingPost) {
+                label.append(" pendingPost");
+            }
+            if (node.mStickyValueType != null) {
+                label.append("\nsticky=").append(node.mStickyValueType);
+            }
+            builder.append("  n").append(node.mId).append(" [label=");
+            appendDotString(builder, label.toString());
+            builder.append("];\n");
+        }
+        for (Edge edge : mEdges) {
+            builder.append("  n").append(edge.mFrom.mId).append(" -> n").append(edge.mTo.mId);
+            if (!edge.mPlugged) {
+                builder.append(" [style=dashed]");
+            }
+            builder.append(";\n");
+        }
+        builder.append("}\n");
+        return builder.toString();
+    }
+
+    private static void appendJsonString(@NonNull StringBuilder builder, @Nullable String value) {
+        if (value == null) {
+            builder.append("null");
+            return;
+        }
+        builder.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                builder.append('\\').append(c);
+            } else if (c == '\n') {
+                builder.append("\\n");
+            } else if (c < 0x20) {
+                builder.append(c < 0x10 ? "\\u000" : "\\u00").append(Integer.toHexString(c));
+            } else {
+                builder.append(c);
+            }
+        }
+        builder.append('"');
+    }
+
+    private static void appendDotString(@NonNull StringBuilder builder, @NonNull String value) {
+        builder.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                builder.append('\\').append(c);
+            } else if (c == '\n') {
+                builder.append("\\n");
+            } else {
+                builder.append(c);
+            }
+        }
+        builder.append('"');
+    }
+
+    /**
+     * The state of one LiveEvent at the time of the snapshot.
+     */
+    public static final class Node {
+        static final int DEPTH_UNKNOWN = -1;
+        static final int DEPTH_COMPUTING = -2;
+
+        private final int mId;
+        @NonNull
+        final LiveEvent<?> mEvent;
+        @Nullable
+        private final String mOperator;
+        private final int mVersion;
+        private final int mListenerCount;
+        private final int mActiveCount;
+        private final boolean mPendingPost;
+        @Nullable
+        private final String mStickyValueType;
+        // filled by snapshot()
+        final List<Edge> mUpstream = new ArrayList<>();
+        final List<Edge> mDownstream = new ArrayList<>();
+        int mDepth = DEPTH_UNKNOWN;
+
+        Node(int id, @NonNull LiveEvent<?> event, @Nullable String operator, int version,
+                int listenerCount, int activeCount, boolean pendingPost,
+                @Nullable String stickyValueType) {
+            mId = id;
+            mEvent = event;
+            mOperator = operator;
+            mVersion = version;
+            mListenerCount = listenerCount;
+            mActiveCount = activeCount;
+            mPendingPost = pendingPost;
+            mStickyValueType = stickyValueType;
+        }
+
+        /**
+         * Returns the index of this node in {@link LiveEventGraph#getNodes()}.
+         */
+        public int getId() {
+            return mId;
+        }
+
+        @NonNull
+        public LiveEvent<?> getEvent() {
+            return mEvent;
+        }
+
+        /**
+         * Returns the simple class name and the identity hash code of the event.
+         */
+        @NonNull
+        public String getName() {
+            return mEvent.getClass().getSimpleName()
+                    + '@' + Integer.toHexString(System.identityHashCode(mEvent));
+        }
+
+        /**
+         * Returns the {@link LiveEventTransformations} method that created the event, like
+         * {@code "map"} or {@code "switchMap"}, null for other events.
+         */
+        @Nullable
+        public String getOperator() {
+            return mOperator;
+        }
+
+        public int getVersion() {
+            return mVersion;
+        }
+
+        /**
+         * Returns the number of listeners, including the internal listeners of mediators.
+         */
+        public int getListenerCount() {
+            return mListenerCount;
+        }
+
+        /**
+         * Returns the number of listeners in active state.
+         */
+        public int getActiveCount() {
+            return mActiveCount;
+        }
+
+        /**
+         * Returns true if a value was posted with {@link LiveEvent#postValue(Object)} and not set
+         * on the main thread yet.
+         */
+        public boolean hasPendingPost() {
+            return mPendingPost;
+        }
+
+        /**
+         * Returns the class name of the current value, "null" for a null value and null if no
+         * value was set.
+         */
+        @Nullable
+        public String getStickyValueType() {
+            return mStickyValueType;
+        }
+
+        /**
+         * Returns the number of mediators between this event and the farthest event upstream
+         * without sources, 0 if the event has no sources.
+         */
+        public int getDepth() {
+            return mDepth;
+        }
+
+        /**
+         * Returns the number of mediators that have this event as a source.
+         */
+        public int getFanOut() {
+            return mDownstream.size();
+        }
+
+        /**
+         * Returns the edges from the sources of this event.
+         */
+        @NonNull
+        public List<Edge> getUpstream() {
+            return Collections.unmodifiableList(mUpstream);
+        }
+
+        /**
+         * Returns the edges to the mediators that have this event as a source.
+         */
+        @NonNull
+        public List<Edge> getDownstream() {
+            return Collections.unmodifiableList(mDownstream);
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return getName() + (mOperator != null ? " (" + mOperator + ")" : "")
+                    + " version=" + mVersion + " listeners=" + mListenerCount
+                    + " active=" + mActiveCount + " depth=" + mDepth + " fanOut=" + getFanOut();
+        }
+    }
+
+    /**
+     * A source of a mediator.
+     */
+    public static final class Edge {
+        @NonNull
+        final Node mFrom;
+        @NonNull
+        final Node mTo;
+        final boolean mPlugged;
+
+        Edge(@NonNull Node from, @NonNull Node to, boolean plugged) {
+            mFrom = from;
+            mTo = to;
+            mPlugged = plugged;
+        }
+
+        /**
+         * Returns the source.
+         */
+        @NonNull
+        public Node getFrom() {
+            return mFrom;
+        }
+
+        /**
+         * Returns the mediator.
+         */
+        @NonNull
+        public Node getTo() {
+            return mTo;
+        }
+
+        /**
+         * Returns true if the mediator was listening to the source, which it does while it has
+         * active listeners.
+         */
+        public boolean isPlugged() {
+            return mPlugged;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.github.panpf.liveevent;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * Orders the recomputations of glitch-free {@link MediatorLiveEvent}s, see
+ * {@link MediatorLiveEvent#setGlitchFree(boolean)}.
+ * <p>
+ * A dispatch started by {@link LiveEvent#setValue(Object)} opens a propagation. Glitch-free
+ * mediators that are notified by a source during the propagation do not run their source
+ * listeners right away, they are queued by rank instead. The rank of a mediator is one more than
+ * the highest rank of its sources, plain LiveEvents have rank 0. When the outermost dispatch is
+ * done the queue is drained lowest rank first, so every mediator recomputes once, after all of its
+ * upstream nodes have their new values. Only used on the main thread.
+ */
+class LiveEventPropagation {
+    // the nesting depth of dispatches
+    private static int sDepth;
+    private static boolean sDraining;
+    // the rank of the mediator that is recomputing, -1 if none
+    private static int sCurrentRank = -1;
+    private static long sNextSequence;
+    private static final PriorityQueue<MediatorLiveEvent<?>> sQueue = new PriorityQueue<>(11,
+            new Comparator<MediatorLiveEvent<?>>() {
+                @Override
+                public int compare(MediatorLiveEvent<?> o1, MediatorLiveEvent<?> o2) {
+                    if (o1.mRank != o2.mRank) {
+                        return o1.mRank < o2.mRank ? -1 : 1;
+                    }
+                    // first come, first served within a rank
+                    return o1.mQueueSequence < o2.mQueueSequence ? -1
+                            : (o1.mQueueSequence == o2.mQueueSequence ? 0 : 1);
+                }
+            });
+
+    private LiveEventPropagation() {
+    }
+
+    /**
+     * Returns true while a dispatch or the recomputation of a mediator is running, so that a
+     * notified glitch-free mediator must be queued instead of recomputing right away.
+     */
+    @MainThread
+    static boolean isPropagating() {
+        return sDepth > 0 || sDraining;
+    }
+
+    @MainThread
+    static void enter() {
+        sDepth++;
+    }
+
+    /**
+     * Closes a dispatch, the outermost one drains the queued mediators.
+     */
+    @MainThread
+    static void exit() {
+        sDepth--;
+        if (sDepth == 0 && !sDraining && !sQueue.isEmpty()) {
+            drain();
+        }
+    }
+
+    /**
+     * Queues the mediator for recomputation unless it is queued already.
+     */
+    @MainThread
+    static void schedule(@NonNull MediatorLiveEvent<?> mediator) {
+        if (mediator.mRank <= sCurrentRank) {
+            // the graph changed since the rank was computed, it must run after the current node
+            boolean queued = mediator.mQueued && sQueue.remove(mediator);
+            mediator.mRank = sCurrentRank + 1;
+            if (queued) {
+                sQueue.add(mediator);
+            }
+        }
+        if (!mediator.mQueued) {
+            mediator.mQueued = true;
+            mediator.mQueueSequence = sNextSequence++;
+            sQueue.add(mediator);
+        }
+    }
+
+    private static void drain() {
+        sDraining = true;
+        try {
+            MediatorLiveEvent<?> mediator;
+            while ((mediator = sQueue.poll()) != null) {
+                mediator.mQueued = false;
+                sCurrentRank = mediator.mRank;
+                mediator.recompute();
+            }
+        } finally {
+            sCurrentRank = -1;
+            sDraining = false;
+            if (!sQueue.isEmpty()) {
+                // a listener threw, do not leave the remaining mediators queued forever
+                for (MediatorLiveEvent<?> mediator : sQueue) {
+                    mediator.mQueued = false;
+                    mediator.discardPendingChanges();
+                }
+                sQueue.clear();
+            }
+        }
+    }
+}
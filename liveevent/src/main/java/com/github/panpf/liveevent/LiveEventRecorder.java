@@ -0,0 +1,216 @@
+package com.github.panpf.liveevent;
+
+import android.util.Log;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Records the traffic of a {@link LiveEvent} into a compact, append-only binary file: every
+ * {@code setValue} and {@code postValue} with its time, thread and value, and every dispatch with
+ * the number of listeners it called and its duration. A {@link LiveEventReplayer} can emit the
+ * recorded values again, for example into a benchmark:
+ * <pre>
+ * LiveEventRecorder&lt;Integer&gt; recorder = new LiveEventRecorder&lt;&gt;(file, codec);
+ * recorder.attach(syncProgressLiveEvent);
+ * ...
+ * recorder.close();
+ * </pre>
+ * The values are written with the given {@link EventCodec}. Writing happens on the thread of the
+ * recorded call, through a buffer; if it fails the error is logged and recording stops. A value
+ * the codec fails to encode is logged and recorded as a placeholder without a payload, so the
+ * recording keeps the number and timing of the calls, the recorded call is not affected.
+ *
+ * @param <T> The type of the value
+ */
+public class LiveEventRecorder<T> implements Closeable {
+    private static final String TAG = "LiveEventRecorder";
+
+    static final int MAGIC = 0x4c455643; // "LEVC"
+    // 2 added UNENCODED_LENGTH
+    static final int FORMAT_VERSION = 2;
+    static final byte RECORD_THREAD = 1;
+    static final byte RECORD_SET_VALUE = 2;
+    static final byte RECORD_POST_VALUE = 3;
+    static final byte RECORD_DISPATCH = 4;
+    static final int NULL_LENGTH = -1;
+    // the codec failed to encode the value
+    static final int UNENCODED_LENGTH = -2;
+
+    @NonNull
+    private final EventCodec<T> mCodec;
+    @NonNull
+    private final DataOutputStream mOut;
+    private final long mStartTime = System.nanoTime();
+    private final ByteArrayOutputStream mPayload = new ByteArrayOutputStream();
+    // the index written for every thread that was seen, guarded by this
+    private final Map<Thread, Integer> mThreads = new HashMap<>();
+    @Nullable
+    private LiveEvent<T> mEvent;
+    private boolean mFailed;
+    private final LiveEventTracer mTracer = new LiveEventTracer() {
+        @Override
+        public void onPostValue(@Nullable Object value) {
+            writeValue(RECORD_POST_VALUE, value, 0);
+        }
+
+        @Override
+        public void onSetValue(@Nullable Object value, int version) {
+            writeValue(RECORD_SET_VALUE, value, version);
+        }
+
+        @Override
+        public void onDispatch(int version, int notifiedCount, long durationNanos) {
+            writeDispatch(version, notifiedCount, durationNanos);
+        }
+    };
+
+    /**
+     * Creates the recording file, an existing file is truncated.
+     *
+     * @param file  The file to record into
+     * @param codec Converts the values to bytes
+     * @throws IOException If the file can not be created
+     */
+    public LiveEventRecorder(@NonNull File file, @NonNull EventCodec<T> codec)
+            throws IOException {
+        mCodec = codec;
+        mOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        mOut.writeInt(MAGIC);
+        mOut.writeInt(FORMAT_VERSION);
+        mOut.writeLong(System.currentTimeMillis());
+    }
+
+    /**
+     * Starts recording the given LiveEvent. A recorder records one LiveEvent, and a LiveEvent can
+     * be recorded by one recorder at a time.
+     *
+     * @param event The LiveEvent to record
+     * @throws IllegalStateException If the recorder or the LiveEvent is already attached
+     */
+    @MainThread
+    public void attach(@NonNull LiveEvent<T> event) {
+        LiveEvent.assertMainThread("attach");
+        if (mEvent != null) {
+            throw new IllegalStateException("The recorder is already attached");
+        }
+        if (event.getTracer() != null) {
+            throw new IllegalStateException("The LiveEvent is already recorded");
+        }
+        mEvent = event;
+        event.setTracer(mTracer);
+    }
+
+    /**
+     * Stops recording, the file stays open until {@link #close()}.
+     */
+    @MainThread
+    public void detach() {
+        LiveEvent.assertMainThread("detach");
+        if (mEvent != null) {
+            mEvent.setTracer(null);
+            mEvent = null;
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "WeakerAccess"}) /* synthetic access */
+    synchronized void writeValue(byte type, @Nullable Object value, int version) {
+        if (mFailed) {
+            return;
+        }
+        long time = System.nanoTime() - mStartTime;
+        // encoded first, a failing codec must not leave a record with half its payload
+        mPayload.reset();
+        boolean encoded = true;
+        if (value != null) {
+            try {
+                mCodec.encode((T) value, mPayload);
+            } catch (IOException e) {
+                Log.w(TAG, "Unable to encode " + value + ", recorded as placeholder", e);
+                encoded = false;
+            } catch (RuntimeException e) {
+                Log.w(TAG, "Unable to encode " + value + ", recorded as placeholder", e);
+                encoded = false;
+            }
+        }
+        try {
+            int thread = threadIndex(Thread.currentThread());
+            mOut.writeByte(type);
+            mOut.writeLong(time);
+            mOut.writeInt(thread);
+            mOut.writeInt(version);
+            if (value == null) {
+                mOut.writeInt(NULL_LENGTH);
+            } else if (!encoded) {
+                mOut.writeInt(UNENCODED_LENGTH);
+            } else {
+                mOut.writeInt(mPayload.size());
+                mPayload.writeTo(mOut);
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    @SuppressWarnings("WeakerAccess") /* synthetic access */
+    synchronized void writeDispatch(int version, int notifiedCount, long durationNanos) {
+        if (mFailed) {
+            return;
+        }
+        try {
+            mOut.writeByte(RECORD_DISPATCH);
+            mOut.writeLong(System.nanoTime() - mStartTime);
+            mOut.writeInt(version);
+            mOut.writeInt(notifiedCount);
+            mOut.writeLong(durationNanos);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Must hold this.
+     */
+    private int threadIndex(@NonNull Thread thread) throws IOException {
+        Integer index = mThreads.get(thread);
+        if (index == null) {
+            index = mThreads.size();
+            mThreads.put(thread, index);
+            mOut.writeByte(RECORD_THREAD);
+            mOut.writeInt(index);
+            mOut.writeUTF(thread.getName());
+        }
+        return index;
+    }
+
+    private void fail(@NonNull IOException e) {
+        mFailed = true;
+        Log.w(TAG, "Unable to record, recording stopped", e);
+    }
+
+    /**
+     * Stops recording and closes the file. Must be called on the main thread if the recorder is
+     * still attached.
+     */
+    @Override
+    public void close() throws IOException {
+        if (mEvent != null) {
+            detach();
+        }
+        synchronized (this) {
+            mFailed = true;
+            mOut.close();
+        }
+    }
+}
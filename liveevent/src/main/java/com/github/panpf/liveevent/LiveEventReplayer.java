@@ -0,0 +1,322 @@
+package com.github.panpf.liveevent;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Emits the values recorded by a {@link LiveEventRecorder} into a LiveEvent again, to run real
+ * event traffic through a fresh event graph, for example in a benchmark.
+ * <p>
+ * The recording is read and decoded completely when the replayer is created, so replaying only
+ * measures the dispatch. Only the {@code setValue} records are replayed, a recorded
+ * {@code postValue} reached the LiveEvent as a {@code setValue} on the main thread as well.
+ * A value the recorder could not encode is replayed as the value before it, or null if there
+ * is none, so that the replay keeps the recorded number and timing of the values.
+ *
+ * @param <T> The type of the value
+ */
+public class LiveEventReplayer<T> {
+    /**
+     * Replays with the recorded timing.
+     */
+    public static final double REAL_TIME = 1;
+    /**
+     * Replays without waiting between the values.
+     */
+    public static final double MAX_SPEED = Double.POSITIVE_INFINITY;
+
+    private final long mStartTimeMillis;
+    private final List<RecordedValue<T>> mValues = new ArrayList<>();
+    private int mPlaceholderCount;
+    private int mDispatchCount;
+    private long mNotifiedCount;
+    private long mDispatchNanos;
+    @Nullable
+    private Replay mReplay;
+
+    /**
+     * Reads the recording.
+     *
+     * @param file  The file written by a {@link LiveEventRecorder}
+     * @param codec Converts the bytes to values, like the codec of the recorder
+     * @throws IOException If the file can not be read or is not a recording
+     */
+    public LiveEventReplayer(@NonNull File file, @NonNull EventCodec<T> codec) throws IOException {
+        DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (in.readInt() != LiveEventRecorder.MAGIC) {
+                throw new IOException("Not a LiveEvent recording: " + file);
+            }
+            int version = in.readInt();
+            // version 1 only lacks the placeholders
+            if (version != 1 && version != LiveEventRecorder.FORMAT_VERSION) {
+                throw new IOException("Unsupported recording version " + version + ": " + file);
+            }
+            mStartTimeMillis = in.readLong();
+            readRecords(in, codec);
+        } finally {
+            in.close();
+        }
+    }
+
+    private void readRecords(@NonNull DataInputStream in, @NonNull EventCodec<T> codec)
+            throws IOException {
+        while (true) {
+            int type = in.read();
+            if (type == -1) {
+                return;
+            }
+            try {
+                readRecord(in, (byte) type, codec);
+            } catch (EOFException e) {
+                // the recording was not closed, the last record is incomplete
+                return;
+            }
+        }
+    }
+
+    private void readRecord(@NonNull DataInputStream in, byte type,
+            @NonNull EventCodec<T> codec) throws IOException {
+        switch (type) {
+            case LiveEventRecorder.RECORD_THREAD:
+                in.readInt();
+                in.readUTF();
+                break;
+            case LiveEventRecorder.RECORD_SET_VALUE:
+            case LiveEventRecorder.RECORD_POST_VALUE:
+                long time = in.readLong();
+                in.readInt();
+                in.readInt();
+                int length = in.readInt();
+                T value = null;
+                if (length == LiveEventRecorder.UNENCODED_LENGTH) {
+                    if (type == LiveEventRecorder.RECORD_SET_VALUE) {
+                        value = mValues.isEmpty() ? null : mValues.get(mValues.size() - 1).mValue;
+                        mPlaceholderCount++;
+                    }
+                } else if (length != LiveEventRecorder.NULL_LENGTH) {
+                    byte[] payload = new byte[length];
+                    in.readFully(payload);
+                    if (type == LiveEventRecorder.RECORD_SET_VALUE) {
+                        value = codec.decode(new ByteArrayInputStream(payload));
+                    }
+                }
+                if (type == LiveEventRecorder.RECORD_SET_VALUE) {
+                    mValues.add(new RecordedValue<>(time, value));
+                }
+                break;
+            case LiveEventRecorder.RECORD_DISPATCH:
+                in.readLong();
+                in.readInt();
+                mNotifiedCount += in.readInt();
+                mDispatchNanos += in.readLong();
+                mDispatchCount++;
+                break;
+            default:
+                throw new IOException("Unknown record type " + type);
+        }
+    }
+
+    /**
+     * Returns the wall clock time at which the recording started.
+     */
+    public long getStartTimeMillis() {
+        return mStartTimeMillis;
+    }
+
+    /**
+     * Returns how many values will be replayed.
+     */
+    public int getValueCount() {
+        return mValues.size();
+    }
+
+    /**
+     * Returns how many of the values to replay are placeholders for values the recorder could
+     * not encode, see {@link LiveEventReplayer}.
+     */
+    public int getPlaceholderCount() {
+        return mPlaceholderCount;
+    }
+
+    /**
+     * Returns the time between the start of the recording and the last recorded value.
+     */
+    public long getDurationNanos() {
+        return mValues.isEmpty() ? 0 : mValues.get(mValues.size() - 1).mTime;
+    }
+
+    /**
+     * Returns how many dispatches were recorded.
+     */
+    public int getRecordedDispatchCount() {
+        return mDispatchCount;
+    }
+
+    /**
+     * Returns how many listener calls the recorded dispatches made in total.
+     */
+    public long getRecordedNotifiedCount() {
+        return mNotifiedCount;
+    }
+
+    /**
+     * Returns how long the recorded dispatches took in total.
+     */
+    public long getRecordedDispatchNanos() {
+        return mDispatchNanos;
+    }
+
+    /**
+     * Sets the recorded values on {@code target}, see
+     * {@link #replay(LiveEvent, double, Runnable)}.
+     */
+    @MainThread
+    public void replay(@NonNull LiveEvent<? super T> target, double speed) {
+        replay(target, speed, null);
+    }
+
+    /**
+     * Sets the recorded values on {@code target}. With {@link #MAX_SPEED} all values are set
+     * before this returns. Otherwise the values are scheduled with their recorded timing on the
+     * {@link EventClock} of {@link ScheduledEvent}, this returns right away and
+     * {@code onComplete} runs after the last value.
+     * <p>
+     * In a JVM benchmark set an {@link androidx.arch.core.executor.TaskExecutor} whose main thread
+     * is the benchmark thread. A replay that is not at {@link #MAX_SPEED} also needs an
+     * {@link EventClock} that works without the Android main looper, set with
+     * {@link ScheduledEvent#setClock(EventClock)} before the replay starts.
+     *
+     * @param target     The LiveEvent to set the values on
+     * @param speed      {@link #REAL_TIME}, {@link #MAX_SPEED} or a factor, 2 replays twice as
+     *                   fast as recorded
+     * @param onComplete Runs on the main thread after the last value was set, may be null
+     * @throws IllegalArgumentException If speed is not positive
+     * @throws IllegalStateException    If a replay is still running
+     */
+    @MainThread
+    public void replay(@NonNull LiveEvent<? super T> target, double speed,
+            @Nullable Runnable onComplete) {
+        LiveEvent.assertMainThread("replay");
+        if (!(speed > 0)) {
+            throw new IllegalArgumentException("speed must be positive: " + speed);
+        }
+        if (mReplay != null) {
+            throw new IllegalStateException("A replay is still running");
+        }
+        if (speed == MAX_SPEED) {
+            for (RecordedValue<T> value : mValues) {
+                target.setValue(value.mValue);
+            }
+            if (onComplete != null) {
+                onComplete.run();
+            }
+            return;
+        }
+        mReplay = new Replay(target, speed, onComplete);
+        mReplay.run();
+    }
+
+    /**
+     * Stops the running replay, the remaining values are not set and the {@code onComplete} of
+     * the replay does not run.
+     */
+    @MainThread
+    public void cancel() {
+        LiveEvent.assertMainThread("cancel");
+        if (mReplay != null) {
+            mReplay.cancel();
+            mReplay = null;
+        }
+    }
+
+    /**
+     * Returns true if a replay is running.
+     *
+     * @return true if a replay is running
+     */
+    @MainThread
+    public boolean isReplaying() {
+        return mReplay != null;
+    }
+
+    /**
+     * Sets the values that are due and schedules itself in the {@link EventTimerWheel} for the
+     * next one, so only one value of a replay is scheduled at a time.
+     */
+    private class Replay implements Runnable {
+        @NonNull
+        private final EventTimerWheel mWheel = EventTimerWheel.getDefault();
+        @NonNull
+        private final LiveEvent<? super T> mTarget;
+        private final double mSpeed;
+        @Nullable
+        private final Runnable mOnComplete;
+        private final long mStartMillis = mWheel.uptimeMillis();
+        private int mNextIndex;
+        @Nullable
+        private ScheduledEvent mNext;
+
+        Replay(@NonNull LiveEvent<? super T> target, double speed,
+                @Nullable Runnable onComplete) {
+            mTarget = target;
+            mSpeed = speed;
+            mOnComplete = onComplete;
+        }
+
+        @Override
+        public void run() {
+            mNext = null;
+            while (mNextIndex < mValues.size()) {
+                RecordedValue<T> value = mValues.get(mNextIndex);
+                long delay = mStartMillis + (long) (value.mTime / mSpeed / 1000000)
+                        - mWheel.uptimeMillis();
+                if (delay > 0) {
+                    mNext = mWheel.scheduleAction(this, delay);
+                    return;
+                }
+                mNextIndex++;
+                mTarget.setValue(value.mValue);
+                if (mReplay != this) {
+                    // cancelled by a listener
+                    return;
+                }
+            }
+            mReplay = null;
+            if (mOnComplete != null) {
+                mOnComplete.run();
+            }
+        }
+
+        void cancel() {
+            if (mNext != null) {
+                mNext.cancel();
+                mNext = null;
+            }
+        }
+    }
+
+    private static class RecordedValue<T> {
+        // nanoseconds since the start of the recording
+        final long mTime;
+        @Nullable
+        final T mValue;
+
+        RecordedValue(long time, @Nullable T value) {
+            mTime = time;
+            mValue = value;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.github.panpf.liveevent;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registers all {@link OnEvent} methods of an object with one call.
+ * <p>
+ * The bindings are generated at compile time by the {@code liveevent-compiler} annotation
+ * processor, add the generated index of every module once, for example in
+ * {@code Application.onCreate()}:
+ * <pre>
+ * // build.gradle: kapt { arguments { arg("liveEventIndex", "com.example.AppLiveEventIndex") } }
+ * LiveEventSubscribers.addIndex(new AppLiveEventIndex());
+ *
+ * // in a Fragment
+ * LiveEventSubscribers.register(getViewLifecycleOwner(), this);
+ * </pre>
+ */
+public class LiveEventSubscribers {
+
+    private static final List<SubscriberIndex> sIndexes = new ArrayList<>();
+    private static final Map<Class<?>, List<SubscriberBinder<Object>>> sBinderCache =
+            new HashMap<>();
+
+    private LiveEventSubscribers() {
+    }
+
+    /**
+     * Adds a generated index.
+     *
+     * @param index The index generated for a module
+     */
+    @MainThread
+    public static void addIndex(@NonNull SubscriberIndex index) {
+        LiveEvent.assertMainThread("addIndex");
+        sIndexes.add(index);
+        sBinderCache.clear();
+    }
+
+    /**
+     * Registers all {@link OnEvent} methods of the given subscriber and of its superclasses.
+     *
+     * @param owner      The LifecycleOwner which controls the non-forever listeners
+     * @param subscriber The object declaring the {@link OnEvent} methods
+     * @return The registered listeners
+     * @throws IllegalArgumentException If no index knows the class of the subscriber
+     */
+    @MainThread
+    @NonNull
+    public static EventSubscription register(@NonNull LifecycleOwner owner,
+            @NonNull Object subscriber) {
+        LiveEvent.assertMainThread("register");
+        List<SubscriberBinder<Object>> binders = findBinders(subscriber.getClass());
+        EventSubscription subscription = new EventSubscription();
+        for (SubscriberBinder<Object> binder : binders) {
+            binder.bind(subscriber, owner, subscription);
+        }
+        return subscription;
+    }
+
+    @SuppressWarnings("unchecked")
+    @NonNull
+    private static List<SubscriberBinder<Object>> findBinders(@NonNull Class<?> subscriberClass) {
+        List<SubscriberBinder<Object>> binders = sBinderCache.get(subscriberClass);
+        if (binders != null) {
+            return binders;
+        }
+        binders = new ArrayList<>();
+        for (Class<?> clazz = subscriberClass; clazz != null; clazz = clazz.getSuperclass()) {
+            for (SubscriberIndex index : sIndexes) {
+                SubscriberBinder<?> binder = index.getBinder(clazz);
+                if (binder != null) {
+                    binders.add((SubscriberBinder<Object>) binder);
+                    break;
+                }
+            }
+        }
+        if (binders.isEmpty()) {
+            throw new IllegalArgumentException("No @OnEvent methods found for "
+                    + subscriberClass.getName() + ", is the index of its module added?");
+        }
+        sBinderCache.put(subscriberClass, binders);
+        return binders;
+    }
+}
@@ -0,0 +1,27 @@
+package com.github.panpf.liveevent;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Receives the activity of a {@link LiveEvent}, see {@link LiveEventRecorder}.
+ */
+interface LiveEventTracer {
+    /**
+     * Called on the calling thread when {@link LiveEvent#postValue(Object)} is called.
+     */
+    void onPostValue(@Nullable Object value);
+
+    /**
+     * Called on the main thread when {@link LiveEvent#setValue(Object)} is called.
+     */
+    void onSetValue(@Nullable Object value, int version);
+
+    /**
+     * Called on the main thread after a dispatch.
+     *
+     * @param version       The version that was dispatched
+     * @param notifiedCount How many listeners were called
+     * @param durationNanos How long the dispatch took
+     */
+    void onDispatch(int version, int notifiedCount, long durationNanos);
+}
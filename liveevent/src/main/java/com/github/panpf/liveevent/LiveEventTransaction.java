@@ -0,0 +1,129 @@
+package com.github.panpf.liveevent;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Groups the updates of several LiveEvents, so that listeners are notified once with the final
+ * state instead of once per {@link LiveEvent#setValue(Object)}.
+ * <p>
+ * Within a transaction {@code setValue} only records the new value, {@link LiveEvent#getValue()}
+ * already returns it. When the transaction is committed every changed LiveEvent dispatches its
+ * latest value once, in the order they were first changed, so a listener is called at most once
+ * per LiveEvent even if the value was set several times:
+ * <pre>
+ * LiveEventTransaction.run(new Runnable() {
+ *     public void run() {
+ *         userLiveEvent.setValue(user);
+ *         settingsLiveEvent.setValue(settings);
+ *         permissionsLiveEvent.setValue(permissions);
+ *     }
+ * });
+ * </pre>
+ * The dispatch at commit is one propagation, a glitch-free {@link MediatorLiveEvent} with
+ * several of the changed LiveEvents as sources recomputes once, see
+ * {@link MediatorLiveEvent#setGlitchFree(boolean)}.
+ * <p>
+ * Transactions can be nested, only the outermost commit dispatches. Transactions only apply to the
+ * main thread, {@link LiveEvent#postValue(Object)} sets the value after the transaction.
+ */
+public final class LiveEventTransaction {
+    private static int sDepth;
+    private static List<LiveEvent<?>> sDirtyEvents = new ArrayList<>();
+
+    private LiveEventTransaction() {
+    }
+
+    /**
+     * Starts a transaction, it must be followed by {@link #commit()}.
+     */
+    @MainThread
+    public static void begin() {
+        LiveEvent.assertMainThread("begin");
+        sDepth++;
+    }
+
+    /**
+     * Ends the transaction started by the last {@link #begin()}. If it is the outermost one the
+     * LiveEvents changed within the transaction dispatch their values. If a listener throws the
+     * other LiveEvents still dispatch, the first exception is rethrown afterwards.
+     *
+     * @throws IllegalStateException If there is no transaction
+     */
+    @MainThread
+    public static void commit() {
+        LiveEvent.assertMainThread("commit");
+        if (sDepth == 0) {
+            throw new IllegalStateException("commit() without begin()");
+        }
+        sDepth--;
+        if (sDepth > 0 || sDirtyEvents.isEmpty()) {
+            return;
+        }
+        List<LiveEvent<?>> events = sDirtyEvents;
+        sDirtyEvents = new ArrayList<>();
+        RuntimeException failure = null;
+        int next = 0;
+        LiveEventPropagation.enter();
+        try {
+            while (next < events.size()) {
+                LiveEvent<?> event = events.get(next++);
+                try {
+                    event.dispatchTransaction();
+                } catch (RuntimeException e) {
+                    // a throwing listener must not keep the other LiveEvents from dispatching
+                    if (failure == null) {
+                        failure = e;
+                    }
+                }
+            }
+        } finally {
+            // after an Error the remaining LiveEvents are not in sDirtyEvents anymore, they must
+            // be recorded again the next time they are set within a transaction
+            for (int i = next; i < events.size(); i++) {
+                events.get(i).clearTransactionDirty();
+            }
+            LiveEventPropagation.exit();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Runs {@code block} within a transaction. The changed LiveEvents dispatch their values even
+     * if {@code block} throws, they already hold the new values.
+     *
+     * @param block The updates
+     */
+    @MainThread
+    public static void run(@NonNull Runnable block) {
+        begin();
+        try {
+            block.run();
+        } finally {
+            commit();
+        }
+    }
+
+    /**
+     * Returns true if a transaction is running.
+     *
+     * @return true if a transaction is running
+     */
+    @MainThread
+    public static boolean isInTransaction() {
+        return sDepth > 0;
+    }
+
+    /**
+     * Records that the value of {@code event} changed within the transaction.
+     */
+    @MainThread
+    static void markDirty(@NonNull LiveEvent<?> event) {
+        sDirtyEvents.add(event);
+    }
+}
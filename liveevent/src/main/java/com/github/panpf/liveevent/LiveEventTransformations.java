@@ -21,6 +21,10 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.arch.core.util.Function;
 
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * Transformation methods for {@link LiveEvent}.
  * <p>
@@ -69,6 +73,7 @@ public class LiveEventTransformations {
             @NonNull LiveEvent<X> source,
             @NonNull final Function<X, Y> mapFunction) {
         final MediatorLiveEvent<Y> result = new MediatorLiveEvent<>();
+        result.mOperator = "map";
         result.addSource(source, new Listener<X>() {
             @Override
             public void onChanged(@Nullable X x) {
@@ -134,6 +139,7 @@ public class LiveEventTransformations {
             @NonNull LiveEvent<X> source,
             @NonNull final Function<X, LiveEvent<Y>> switchMapFunction) {
         final MediatorLiveEvent<Y> result = new MediatorLiveEvent<>();
+        result.mOperator = "switchMap";
         result.addSource(source, new Listener<X>() {
             LiveEvent<Y> mSource;
 
@@ -159,4 +165,253 @@ public class LiveEventTransformations {
         });
         return result;
     }
+
+    /**
+     * Same as {@link #switchMap(LiveEvent, Function)}, but keeps the {@code LiveEvent}s created
+     * for the {@code cacheSize} most recently used values of {@code source}. When a recent value
+     * comes back, as with tab switching or paging back and forth, the cached {@code LiveEvent} is
+     * used again instead of calling {@code switchMapFunction}. Whether cached or just created, the
+     * current value of the {@code LiveEvent} switched to is set on the returned {@code LiveEvent}
+     * right away.
+     * <p>
+     * The values of {@code source} are the keys of the cache, they must implement
+     * {@code equals} and {@code hashCode}. The cached {@code LiveEvent}s are not listened to
+     * while they are not the current one.
+     *
+     * @param source            the {@code LiveEvent} to map from
+     * @param switchMapFunction a function to apply to each value set on {@code source} that is not
+     *                          in the cache
+     * @param cacheSize         how many {@code LiveEvent}s to keep, including the current one
+     * @param <X>               the generic type parameter of {@code source}
+     * @param <Y>               the generic type parameter of the returned {@code LiveEvent}
+     * @return a LiveEvent mapped from {@code source} to type {@code <Y>}
+     * @throws IllegalArgumentException If cacheSize is less than 1
+     */
+    @MainThread
+    public static <X, Y> LiveEvent<Y> switchMap(
+            @NonNull LiveEvent<X> source,
+            @NonNull Function<X, LiveEvent<Y>> switchMapFunction,
+            int cacheSize) {
+        return switchMap(source, switchMapFunction, cacheSize, 0);
+    }
+
+    /**
+     * Same as {@link #switchMap(LiveEvent, Function, int)}, but a cached {@code LiveEvent} that
+     * was not the current one for {@code expireAfterMillis} is dropped. Expired
+     * {@code LiveEvent}s are dropped when {@code source} changes, not by a timer. The time is
+     * taken from the {@link EventClock}, see {@link ScheduledEvent#setClock(EventClock)}.
+     *
+     * @param source            the {@code LiveEvent} to map from
+     * @param switchMapFunction a function to apply to each value set on {@code source} that is not
+     *                          in the cache
+     * @param cacheSize         how many {@code LiveEvent}s to keep, including the current one
+     * @param expireAfterMillis how long an unused {@code LiveEvent} is kept, 0 to keep it until it
+     *                          is the least recently used one of a full cache
+     * @param <X>               the generic type parameter of {@code source}
+     * @param <Y>               the generic type parameter of the returned {@code LiveEvent}
+     * @return a LiveEvent mapped from {@code source} to type {@code <Y>}
+     * @throws IllegalArgumentException If cacheSize is less than 1
+     */
+    @MainThread
+    public static <X, Y> LiveEvent<Y> switchMap(
+            @NonNull LiveEvent<X> source,
+            @NonNull final Function<X, LiveEvent<Y>> switchMapFunction,
+            final int cacheSize, final long expireAfterMillis) {
+        if (cacheSize < 1) {
+            throw new IllegalArgumentException("cacheSize must be at least 1: " + cacheSize);
+        }
+        final MediatorLiveEvent<Y> result = new MediatorLiveEvent<>();
+        result.mOperator = "switchMap";
+        result.addSource(source, new Listener<X>() {
+            // in access order, the least recently used first
+            final LinkedHashMap<X, CachedSource<Y>> mCache =
+                    new LinkedHashMap<X, CachedSource<Y>>(16, 0.75f, true) {
+                        @Override
+                        protected boolean removeEldestEntry(
+                                Map.Entry<X, CachedSource<Y>> eldest) {
+                            return size() > cacheSize;
+                        }
+                    };
+            LiveEvent<Y> mSource;
+            @Nullable
+            CachedSource<Y> mCurrent;
+
+            @Override
+            public void onChanged(@Nullable X x) {
+                long now = EventTimerWheel.getDefault().uptimeMillis();
+                if (mCurrent != null) {
+                    // used until now
+                    mCurrent.mLastUsedTime = now;
+                }
+                if (expireAfterMillis > 0) {
+                    Iterator<CachedSource<Y>> iterator = mCache.values().iterator();
+                    while (iterator.hasNext()) {
+                        CachedSource<Y> cached = iterator.next();
+                        if (cached.mLiveEvent != mSource
+                                && now - cached.mLastUsedTime > expireAfterMillis) {
+                            iterator.remove();
+                        }
+                    }
+                }
+                CachedSource<Y> cached = mCache.get(x);
+                if (cached == null) {
+                    LiveEvent<Y> newLiveEvent = switchMapFunction.apply(x);
+                    if (newLiveEvent != null) {
+                        cached = new CachedSource<>(newLiveEvent);
+                        mCache.put(x, cached);
+                    }
+                }
+                if (cached != null) {
+                    cached.mLastUsedTime = now;
+                }
+                mCurrent = cached;
+                LiveEvent<Y> newLiveEvent = cached != null ? cached.mLiveEvent : null;
+                if (mSource == newLiveEvent) {
+                    return;
+                }
+                if (mSource != null) {
+                    result.removeSource(mSource);
+                }
+                mSource = newLiveEvent;
+                if (mSource != null) {
+                    result.addSource(mSource, new Listener<Y>() {
+                        @Override
+                        public void onChanged(@Nullable Y y) {
+                            result.setValue(y);
+                        }
+                    });
+                    if (mSource.getVersion() != LiveEvent.START_VERSION) {
+                        // the plugged source does not dispatch its current value, whether it
+                        // was cached or just created
+                        result.setValue(mSource.getValue());
+                    }
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Same as {@link #map(LiveEvent, Function)}, but remembers the results of the
+     * {@code cacheSize} most recently used values of {@code source}, so a value that comes again
+     * does not run {@code mapFunction} again. Useful when {@code mapFunction} is expensive, like
+     * formatting or layout, and {@code source} cycles through a few values.
+     * <p>
+     * The values of {@code source} are compared with {@code equals}, see
+     * {@link #memoMap(LiveEvent, Function, int, Equivalence, boolean)} to compare them otherwise.
+     * {@code mapFunction} must return the same result for the same value.
+     *
+     * @param source      the {@code LiveEvent} to map from
+     * @param mapFunction a function to apply to each value set on {@code source} that is not in
+     *                    the cache
+     * @param cacheSize   how many results to keep
+     * @param <X>         the generic type parameter of {@code source}
+     * @param <Y>         the generic type parameter of the returned {@code LiveEvent}
+     * @return a LiveEvent mapped from {@code source} to type {@code <Y>}
+     * @throws IllegalArgumentException If cacheSize is less than 1
+     */
+    @MainThread
+    public static <X, Y> LiveEvent<Y> memoMap(
+            @NonNull LiveEvent<X> source,
+            @NonNull Function<X, Y> mapFunction,
+            int cacheSize) {
+        return memoMap(source, mapFunction, cacheSize, Equivalence.EQUALS, false);
+    }
+
+    /**
+     * Same as {@link #memoMap(LiveEvent, Function, int)}, with a custom comparison of the values
+     * of {@code source}.
+     *
+     * @param source         the {@code LiveEvent} to map from
+     * @param mapFunction    a function to apply to each value set on {@code source} that is not
+     *                       in the cache
+     * @param cacheSize      how many results to keep
+     * @param keyEquivalence decides which values of {@code source} share a result, for example
+     *                       {@link Equivalence#IDENTITY}
+     * @param skipRepeats    whether to skip a result that equals the previous one, so that the
+     *                       listeners are not called again for the same result
+     * @param <X>            the generic type parameter of {@code source}
+     * @param <Y>            the generic type parameter of the returned {@code LiveEvent}
+     * @return a LiveEvent mapped from {@code source} to type {@code <Y>}
+     * @throws IllegalArgumentException If cacheSize is less than 1
+     */
+    @MainThread
+    public static <X, Y> LiveEvent<Y> memoMap(
+            @NonNull LiveEvent<X> source,
+            @NonNull final Function<X, Y> mapFunction,
+            final int cacheSize,
+            @NonNull final Equivalence<? super X> keyEquivalence,
+            final boolean skipRepeats) {
+        if (cacheSize < 1) {
+            throw new IllegalArgumentException("cacheSize must be at least 1: " + cacheSize);
+        }
+        final MediatorLiveEvent<Y> result = new MediatorLiveEvent<>();
+        result.mOperator = "memoMap";
+        result.addSource(source, new Listener<X>() {
+            // in access order, the least recently used first
+            final LinkedHashMap<MemoKey<X>, Y> mCache =
+                    new LinkedHashMap<MemoKey<X>, Y>(16, 0.75f, true) {
+                        @Override
+                        protected boolean removeEldestEntry(Map.Entry<MemoKey<X>, Y> eldest) {
+                            return size() > cacheSize;
+                        }
+                    };
+            boolean mEmitted;
+            Y mLastResult;
+
+            @Override
+            public void onChanged(@Nullable X x) {
+                MemoKey<X> key = new MemoKey<>(x, keyEquivalence);
+                Y y = mCache.get(key);
+                if (y == null && !mCache.containsKey(key)) {
+                    y = mapFunction.apply(x);
+                    mCache.put(key, y);
+                }
+                if (skipRepeats && mEmitted
+                        && (y == null ? mLastResult == null : y.equals(mLastResult))) {
+                    return;
+                }
+                mEmitted = true;
+                mLastResult = y;
+                result.setValue(y);
+            }
+        });
+        return result;
+    }
+
+    private static class MemoKey<X> {
+        @Nullable
+        final X mValue;
+        @NonNull
+        final Equivalence<? super X> mEquivalence;
+        final int mHash;
+
+        MemoKey(@Nullable X value, @NonNull Equivalence<? super X> equivalence) {
+            mValue = value;
+            mEquivalence = equivalence;
+            mHash = equivalence.hash(value);
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof MemoKey
+                    && mEquivalence.equivalent(mValue, ((MemoKey<X>) o).mValue);
+        }
+
+        @Override
+        public int hashCode() {
+            return mHash;
+        }
+    }
+
+    private static class CachedSource<Y> {
+        @NonNull
+        final LiveEvent<Y> mLiveEvent;
+        long mLastUsedTime;
+
+        CachedSource(@NonNull LiveEvent<Y> liveEvent) {
+            mLiveEvent = liveEvent;
+        }
+    }
 }
@@ -0,0 +1,46 @@
+package com.github.panpf.liveevent;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.arch.core.executor.ArchTaskExecutor;
+
+/**
+ * An {@link EventClock} on {@link SystemClock#uptimeMillis()}. Wakes that are due are posted with
+ * {@link ArchTaskExecutor}, like {@link LiveEvent#postValue(Object)}, later ones wait in a
+ * {@link Handler} of the main thread until their time.
+ */
+public class MainThreadEventClock implements EventClock {
+    @Nullable
+    private Handler mHandler;
+
+    @AnyThread
+    @Override
+    public long uptimeMillis() {
+        return SystemClock.uptimeMillis();
+    }
+
+    @AnyThread
+    @Override
+    public synchronized void wakeAt(@NonNull final Runnable wake, long uptimeMillis) {
+        if (mHandler != null) {
+            mHandler.removeCallbacks(wake);
+        }
+        if (uptimeMillis == Long.MAX_VALUE) {
+            return;
+        }
+        if (uptimeMillis <= SystemClock.uptimeMillis()) {
+            // can not be removed again, the wheel ignores a wake that comes too early
+            ArchTaskExecutor.getInstance().postToMainThread(wake);
+        } else {
+            if (mHandler == null) {
+                mHandler = new Handler(Looper.getMainLooper());
+            }
+            mHandler.postAtTime(wake, uptimeMillis);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.github.panpf.liveevent;
+
+import androidx.annotation.NonNull;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The changes of a {@link MapLiveEvent} since the previous dispatch: the keys that were
+ * inserted, removed or whose value was replaced. A key that was inserted and removed again
+ * between two dispatches is not reported.
+ *
+ * @param <K> The type of the keys
+ * @param <V> The type of the values
+ */
+public final class MapChange<K, V> {
+    @NonNull
+    private final Map<K, V> mMap;
+    @NonNull
+    private final Set<K> mInserted;
+    @NonNull
+    private final Set<K> mRemoved;
+    @NonNull
+    private final Set<K> mUpdated;
+    private final boolean mReset;
+
+    MapChange(@NonNull Map<K, V> map, @NonNull Set<K> inserted, @NonNull Set<K> removed,
+            @NonNull Set<K> updated, boolean reset) {
+        mMap = map;
+        mInserted = Collections.unmodifiableSet(inserted);
+        mRemoved = Collections.unmodifiableSet(removed);
+        mUpdated = Collections.unmodifiableSet(updated);
+        mReset = reset;
+    }
+
+    /**
+     * Returns a read-only view of the map after the changes. It is not a copy, it shows later
+     * changes as well, copy it to keep it.
+     */
+    @NonNull
+    public Map<K, V> getMap() {
+        return mMap;
+    }
+
+    /**
+     * Returns true if the listener has to rebuild from {@link #getMap()}, because it has not
+     * received the previous changes or because the map was cleared or replaced. The key sets are
+     * empty then.
+     */
+    public boolean isReset() {
+        return mReset;
+    }
+
+    @NonNull
+    public Set<K> getInserted() {
+        return mInserted;
+    }
+
+    @NonNull
+    public Set<K> getRemoved() {
+        return mRemoved;
+    }
+
+    @NonNull
+    public Set<K> getUpdated() {
+        return mUpdated;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return mReset ? "MapChange{reset}" : "MapChange{inserted=" + mInserted
+                + ", removed=" + mRemoved + ", updated=" + mUpdated + "}";
+    }
+}
@@ -0,0 +1,319 @@
+package com.github.panpf.liveevent;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.arch.core.executor.ArchTaskExecutor;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A map whose listeners receive {@link MapChange}s, the inserted, removed and updated keys,
+ * instead of the whole map.
+ * <p>
+ * Like {@link ListLiveEvent}, the changes made on the main thread are dispatched together once
+ * per main thread message, or right away with {@link #dispatchChanges()}, and a listener that did
+ * not receive the previous change set receives a reset.
+ *
+ * @param <K> The type of the keys
+ * @param <V> The type of the values
+ */
+public class MapLiveEvent<K, V> {
+
+    private final LinkedHashMap<K, V> mMap = new LinkedHashMap<>();
+    private final Map<K, V> mReadOnlyMap = Collections.unmodifiableMap(mMap);
+    // the keys changed since the last dispatch, mapped to whether they were in the map then
+    private LinkedHashMap<K, Boolean> mPendingKeys = new LinkedHashMap<>();
+    private boolean mPendingReset;
+    private boolean mDispatchScheduled;
+    private final ChangeSetLiveEvent<MapChange<K, V>> mEvent =
+            new ChangeSetLiveEvent<MapChange<K, V>>() {
+                @NonNull
+                @Override
+                MapChange<K, V> createReset() {
+                    return new MapChange<>(mReadOnlyMap, Collections.<K>emptySet(),
+                            Collections.<K>emptySet(), Collections.<K>emptySet(), true);
+                }
+
+                @Override
+                boolean hasPendingChanges() {
+                    return mPendingReset || !mPendingKeys.isEmpty();
+                }
+            };
+    private final Runnable mDispatchRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (mDispatchScheduled) {
+                dispatchChanges();
+            }
+        }
+    };
+
+    /**
+     * Creates an empty MapLiveEvent.
+     */
+    public MapLiveEvent() {
+    }
+
+    /**
+     * Creates a MapLiveEvent with the given entries, without dispatching them.
+     *
+     * @param entries The initial entries
+     */
+    public MapLiveEvent(@NonNull Map<? extends K, ? extends V> entries) {
+        mMap.putAll(entries);
+    }
+
+    /**
+     * Same as {@link LiveEvent#listen(LifecycleOwner, Listener)}.
+     *
+     * @param owner    The LifecycleOwner which controls the listener
+     * @param listener The listener that will receive the changes
+     */
+    @AnyThread
+    public void listen(@NonNull LifecycleOwner owner,
+            @NonNull Listener<? super MapChange<K, V>> listener) {
+        mEvent.listen(owner, listener);
+    }
+
+    /**
+     * Same as {@link LiveEvent#listenSticky(LifecycleOwner, Listener)}, the listener receives a
+     * reset first.
+     *
+     * @param owner    The LifecycleOwner which controls the listener
+     * @param listener The listener that will receive the changes
+     */
+    @AnyThread
+    public void listenSticky(@NonNull LifecycleOwner owner,
+            @NonNull Listener<? super MapChange<K, V>> listener) {
+        mEvent.listenSticky(owner, listener);
+    }
+
+    /**
+     * Same as {@link LiveEvent#listenForever(Listener)}.
+     *
+     * @param listener The listener that will receive the changes
+     */
+    @AnyThread
+    public void listenForever(@NonNull Listener<? super MapChange<K, V>> listener) {
+        mEvent.listenForever(listener);
+    }
+
+    /**
+     * Same as {@link LiveEvent#listenForeverSticky(Listener)}, the listener receives a reset
+     * first.
+     *
+     * @param listener The listener that will receive the changes
+     */
+    @AnyThread
+    public void listenForeverSticky(@NonNull Listener<? super MapChange<K, V>> listener) {
+        mEvent.listenForeverSticky(listener);
+    }
+
+    /**
+     * Removes the given listener.
+     *
+     * @param listener The listener to remove
+     */
+    @AnyThread
+    public void removeListener(@NonNull Listener<? super MapChange<K, V>> listener) {
+        mEvent.removeListener(listener);
+    }
+
+    /**
+     * Removes all listeners that are tied to the given {@link LifecycleOwner}.
+     *
+     * @param owner The {@code LifecycleOwner} scope for the listeners to be removed.
+     */
+    @AnyThread
+    public void removeListener(@NonNull LifecycleOwner owner) {
+        mEvent.removeListener(owner);
+    }
+
+    /**
+     * Returns true if this MapLiveEvent has listeners.
+     *
+     * @return true if this MapLiveEvent has listeners
+     */
+    public boolean hasListeners() {
+        return mEvent.hasListeners();
+    }
+
+    /**
+     * Returns a read-only view of the entries, including the changes that were not dispatched
+     * yet.
+     *
+     * @return the entries
+     */
+    @MainThread
+    @NonNull
+    public Map<K, V> getMap() {
+        return mReadOnlyMap;
+    }
+
+    @MainThread
+    public int size() {
+        return mMap.size();
+    }
+
+    @MainThread
+    @Nullable
+    public V get(K key) {
+        return mMap.get(key);
+    }
+
+    @MainThread
+    public boolean containsKey(K key) {
+        return mMap.containsKey(key);
+    }
+
+    /**
+     * @return the previous value, null if there was none
+     */
+    @MainThread
+    @Nullable
+    public V put(K key, V value) {
+        LiveEvent.assertMainThread("put");
+        beforeChange();
+        recordKey(key);
+        V previous = mMap.put(key, value);
+        scheduleDispatch();
+        return previous;
+    }
+
+    @MainThread
+    public void putAll(@NonNull Map<? extends K, ? extends V> entries) {
+        LiveEvent.assertMainThread("putAll");
+        if (entries.isEmpty()) {
+            return;
+        }
+        beforeChange();
+        for (Map.Entry<? extends K, ? extends V> entry : entries.entrySet()) {
+            recordKey(entry.getKey());
+            mMap.put(entry.getKey(), entry.getValue());
+        }
+        scheduleDispatch();
+    }
+
+    /**
+     * @return the removed value, null if there was none
+     */
+    @MainThread
+    @Nullable
+    public V remove(K key) {
+        LiveEvent.assertMainThread("remove");
+        if (!mMap.containsKey(key)) {
+            return null;
+        }
+        beforeChange();
+        recordKey(key);
+        V removed = mMap.remove(key);
+        scheduleDispatch();
+        return removed;
+    }
+
+    /**
+     * Removes all entries, reported as a reset.
+     */
+    @MainThread
+    public void clear() {
+        LiveEvent.assertMainThread("clear");
+        if (mMap.isEmpty()) {
+            return;
+        }
+        beforeChange();
+        mMap.clear();
+        setPendingReset();
+    }
+
+    /**
+     * Replaces all entries, reported as a reset.
+     *
+     * @param entries The new entries
+     */
+    @MainThread
+    public void setAll(@NonNull Map<? extends K, ? extends V> entries) {
+        LiveEvent.assertMainThread("setAll");
+        beforeChange();
+        mMap.clear();
+        mMap.putAll(entries);
+        setPendingReset();
+    }
+
+    /**
+     * Dispatches the changes that were not dispatched yet right away.
+     */
+    @MainThread
+    public void dispatchChanges() {
+        LiveEvent.assertMainThread("dispatchChanges");
+        mDispatchScheduled = false;
+        if (!mPendingReset && mPendingKeys.isEmpty()) {
+            return;
+        }
+        MapChange<K, V> change;
+        if (mPendingReset) {
+            change = mEvent.createReset();
+        } else {
+            Set<K> inserted = new LinkedHashSet<>();
+            Set<K> removed = new LinkedHashSet<>();
+            Set<K> updated = new LinkedHashSet<>();
+            for (Map.Entry<K, Boolean> entry : mPendingKeys.entrySet()) {
+                K key = entry.getKey();
+                boolean existed = entry.getValue();
+                boolean exists = mMap.containsKey(key);
+                if (existed && exists) {
+                    updated.add(key);
+                } else if (existed) {
+                    removed.add(key);
+                } else if (exists) {
+                    inserted.add(key);
+                }
+                // else put and removed again since the last dispatch, nothing to report
+            }
+            // an empty change set still has to reach the listeners that skip it
+            change = inserted.isEmpty() && removed.isEmpty() && updated.isEmpty()
+                    && !mEvent.isResetAhead() ? null
+                    : new MapChange<>(mReadOnlyMap, inserted, removed, updated, false);
+        }
+        mPendingKeys = new LinkedHashMap<>();
+        mPendingReset = false;
+        if (change != null) {
+            mEvent.setValue(change);
+        }
+    }
+
+    /**
+     * Same as in ListLiveEvent, the change set skipped after a reset must not contain any later
+     * change.
+     */
+    private void beforeChange() {
+        if (mEvent.isResetAhead()) {
+            dispatchChanges();
+        }
+    }
+
+    private void recordKey(K key) {
+        if (!mPendingReset && !mPendingKeys.containsKey(key)) {
+            mPendingKeys.put(key, mMap.containsKey(key));
+        }
+    }
+
+    private void setPendingReset() {
+        mPendingReset = true;
+        mPendingKeys = new LinkedHashMap<>();
+        scheduleDispatch();
+    }
+
+    private void scheduleDispatch() {
+        if (!mDispatchScheduled) {
+            mDispatchScheduled = true;
+            ArchTaskExecutor.getInstance().postToMainThread(mDispatchRunnable);
+        }
+    }
+}
@@ -22,13 +22,128 @@ import androidx.annotation.CallSuper;
 import androidx.annotation.MainThread;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
-import androidx.arch.core.internal.SafeIterableMap;
 
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 @SuppressLint("RestrictedApi")
 public class MediatorLiveEvent<T> extends LiveEvent<T> {
-    private SafeIterableMap<LiveEvent<?>, Source<?>> mSources = new SafeIterableMap<>();
+    // hash based, so that adding and removing a source does not scan all sources
+    private final Map<LiveEvent<?>, Source<?>> mSources = new LinkedHashMap<>();
+
+    private static boolean sGlitchFreeByDefault;
+    private static long sDefaultLingerMillis;
+    // negative to follow sDefaultLingerMillis
+    private long mLingerMillis = -1;
+    // whether the sources are listened to, from onActive until onInactive or the end of the linger
+    private boolean mPlugged;
+    // the pending unplug after onInactive
+    @Nullable
+    private ScheduledEvent mLingerUnplug;
+    private final Runnable mUnplugRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mLingerUnplug = null;
+            unplugAll();
+        }
+    };
+    // null to follow sGlitchFreeByDefault
+    @Nullable
+    private Boolean mGlitchFree;
+    // the source changes waiting for the recomputation of a glitch-free mediator
+    private List<PendingChange<?>> mPendingChanges = new ArrayList<>();
+    private boolean mRecomputing;
+    // whether a value was set while recomputing
+    private boolean mDispatchDeferred;
+    // whether this mediator is queued in LiveEventPropagation
+    boolean mQueued;
+    long mQueueSequence;
+    // the LiveEventTransformations method that created this mediator, for LiveEventGraph
+    @Nullable
+    String mOperator;
+
+    /**
+     * Sets whether new MediatorLiveEvents, including those created by
+     * {@link LiveEventTransformations}, are glitch-free, see {@link #setGlitchFree(boolean)}.
+     * The default is false.
+     *
+     * @param glitchFree Whether mediators are glitch-free by default
+     */
+    @MainThread
+    public static void setGlitchFreeByDefault(boolean glitchFree) {
+        sGlitchFreeByDefault = glitchFree;
+    }
+
+    /**
+     * Sets whether this mediator is glitch-free. When a {@link LiveEvent#setValue(Object)}
+     * propagates through a graph of glitch-free mediators, each mediator runs its source listeners
+     * after all of its upstream mediators were updated, and dispatches the value it sets at most
+     * once per propagation.
+     * <p>
+     * For example with A mapped to B and to C, and a mediator D with the sources B and C, one
+     * {@code A.setValue} makes D run the listeners of B and C with both new values and dispatch
+     * once, instead of dispatching twice with a mix of new and old values in between.
+     * <p>
+     * A glitch-free mediator does not run its source listeners synchronously within the
+     * {@code setValue} of a source, but before the outermost {@code setValue} returns.
+     *
+     * @param glitchFree Whether this mediator is glitch-free, by default it follows
+     *                   {@link #setGlitchFreeByDefault(boolean)}
+     */
+    @MainThread
+    public void setGlitchFree(boolean glitchFree) {
+        mGlitchFree = glitchFree;
+    }
+
+    /**
+     * Returns true if this mediator is glitch-free, see {@link #setGlitchFree(boolean)}.
+     *
+     * @return true if this mediator is glitch-free
+     */
+    public boolean isGlitchFree() {
+        return mGlitchFree != null ? mGlitchFree : sGlitchFreeByDefault;
+    }
+
+    /**
+     * Sets how long new MediatorLiveEvents, including those created by
+     * {@link LiveEventTransformations}, stay plugged into their sources after they became
+     * inactive, see {@link #setLingerMillis(long)}. The default is 0.
+     *
+     * @param lingerMillis The linger time in milliseconds
+     */
+    @MainThread
+    public static void setDefaultLingerMillis(long lingerMillis) {
+        sDefaultLingerMillis = Math.max(0, lingerMillis);
+    }
+
+    /**
+     * Sets how long this mediator keeps listening to its sources after its last active listener
+     * went away. A mediator that becomes active again within that time does not have to unplug
+     * and plug all its sources, which avoids restarting expensive sources on every configuration
+     * change or short STOPPED state. While lingering the source listeners keep running and the
+     * value of the mediator keeps being updated, there is just no one to dispatch it to.
+     *
+     * @param lingerMillis The linger time in milliseconds, 0 to unplug right away, by default it
+     *                     follows {@link #setDefaultLingerMillis(long)}
+     */
+    @MainThread
+    public void setLingerMillis(long lingerMillis) {
+        mLingerMillis = Math.max(0, lingerMillis);
+    }
+
+    /**
+     * Returns how long this mediator keeps listening to its sources after it became inactive,
+     * see {@link #setLingerMillis(long)}.
+     *
+     * @return the linger time in milliseconds
+     */
+    public long getLingerMillis() {
+        return mLingerMillis >= 0 ? mLingerMillis : sDefaultLingerMillis;
+    }
 
     /**
      * Starts to listen the given {@code source} LiveEvent, {@code onChanged} listener will be called
@@ -44,8 +159,7 @@ public class MediatorLiveEvent<T> extends LiveEvent<T> {
      */
     @MainThread
     public <S> void addSource(@NonNull LiveEvent<S> source, @NonNull Listener<? super S> onChanged) {
-        Source<S> e = new Source<>(source, onChanged);
-        Source<?> existing = mSources.putIfAbsent(source, e);
+        Source<?> existing = mSources.get(source);
         if (existing != null && existing.mListener != onChanged) {
             throw new IllegalArgumentException(
                     "This source was already added with the different listener");
@@ -53,11 +167,54 @@ public class MediatorLiveEvent<T> extends LiveEvent<T> {
         if (existing != null) {
             return;
         }
-        if (hasActiveListeners()) {
-            e.plug();
+        Source<S> e = new Source<>(this, source, onChanged);
+        mSources.put(source, e);
+        mRank = Math.max(mRank, source.mRank + 1);
+        if (mPlugged) {
+            e.plug(source);
         }
     }
 
+    /**
+     * Starts to listen all given {@code sources} with one {@code onChanged} listener. Unlike
+     * calling {@link #addSource(LiveEvent, Listener)} for each of them, the sources share one
+     * internal listener, so thousands of sources cost no more than one map entry each.
+     * <p>
+     * The listener does not tell which source changed, use {@link #addSource(LiveEvent, Listener)}
+     * when that matters. If one of the given LiveEvents is already added as a source but with a
+     * different Listener, {@link IllegalArgumentException} will be thrown and none of the sources
+     * is added.
+     *
+     * @param sources   the {@code LiveEvent}s to listen to
+     * @param onChanged The listener that will receive the events of all sources
+     * @param <S>       The type of data hold by the {@code sources}
+     */
+    @MainThread
+    public <S> void addSources(@NonNull Collection<? extends LiveEvent<? extends S>> sources,
+            @NonNull Listener<? super S> onChanged) {
+        for (LiveEvent<? extends S> source : sources) {
+            Source<?> existing = mSources.get(source);
+            if (existing != null && existing.mListener != onChanged) {
+                throw new IllegalArgumentException(
+                        "This source was already added with the different listener");
+            }
+        }
+        Source<S> shared = new Source<>(this, null, onChanged);
+        List<LiveEvent<?>> added = new ArrayList<>(sources.size());
+        int rank = mRank;
+        for (LiveEvent<? extends S> source : sources) {
+            if (!mSources.containsKey(source)) {
+                mSources.put(source, shared);
+                added.add(source);
+                rank = Math.max(rank, source.mRank + 1);
+            }
+        }
+        mRank = rank;
+        if (mPlugged) {
+            // all sources are in the map before the first one can call back
+            plugAll(added);
+        }
+    }
     /**
      * Stops to listen the given {@code LiveEvent}.
      *
@@ -68,50 +225,208 @@ public class MediatorLiveEvent<T> extends LiveEvent<T> {
     public <S> void removeSource(@NonNull LiveEvent<S> toRemote) {
         Source<?> source = mSources.remove(toRemote);
         if (source != null) {
-            source.unplug();
+            source.unplug(toRemote);
+        }
+    }
+
+    /**
+     * Stops to listen all given {@code LiveEvent}s.
+     *
+     * @param toRemove {@code LiveEvent}s to stop to listen
+     */
+    @MainThread
+    public void removeSources(@NonNull Collection<? extends LiveEvent<?>> toRemove) {
+        List<Map.Entry<LiveEvent<?>, Source<?>>> removed = new ArrayList<>(toRemove.size());
+        for (LiveEvent<?> liveEvent : toRemove) {
+            Source<?> source = mSources.remove(liveEvent);
+            if (source != null) {
+                removed.add(new AbstractMap.SimpleImmutableEntry<LiveEvent<?>, Source<?>>(
+                        liveEvent, source));
+            }
+        }
+        // all sources are out of the map before the first one is unplugged
+        for (Map.Entry<LiveEvent<?>, Source<?>> source : removed) {
+            source.getValue().unplug(source.getKey());
         }
     }
 
     @CallSuper
     @Override
     protected void onActive() {
-        for (Map.Entry<LiveEvent<?>, Source<?>> source : mSources) {
-            source.getValue().plug();
+        if (mLingerUnplug != null) {
+            // still plugged
+            mLingerUnplug.cancel();
+            mLingerUnplug = null;
+            return;
         }
+        mPlugged = true;
+        plugAll(mSources.keySet());
     }
 
     @CallSuper
     @Override
     protected void onInactive() {
-        for (Map.Entry<LiveEvent<?>, Source<?>> source : mSources) {
-            source.getValue().unplug();
+        long lingerMillis = getLingerMillis();
+        if (lingerMillis > 0) {
+            mLingerUnplug = EventTimerWheel.getDefault().scheduleAction(mUnplugRunnable,
+                    lingerMillis);
+        } else {
+            unplugAll();
+        }
+    }
+
+    @SuppressWarnings("WeakerAccess") /* synthetic access */
+    void unplugAll() {
+        mPlugged = false;
+        for (Map.Entry<LiveEvent<?>, Source<?>> source : copySources()) {
+            source.getValue().unplug(source.getKey());
+        }
+    }
+
+    @SuppressWarnings("WeakerAccess") /* synthetic access */
+    <V> void onSourceChanged(@NonNull Listener<? super V> listener, @Nullable V value) {
+        if (isGlitchFree() && LiveEventPropagation.isPropagating()) {
+            mPendingChanges.add(new PendingChange<>(listener, value));
+            LiveEventPropagation.schedule(this);
+        } else {
+            listener.onChanged(value);
+        }
+    }
+
+    /**
+     * Runs the source listeners of the changes queued during a propagation, and dispatches the
+     * resulting value once.
+     */
+    @MainThread
+    void recompute() {
+        List<PendingChange<?>> changes = mPendingChanges;
+        mPendingChanges = new ArrayList<>();
+        if (!mPlugged) {
+            // unplugged meanwhile, the sources would not have called it
+            return;
         }
+        mRecomputing = true;
+        try {
+            for (PendingChange<?> change : changes) {
+                change.deliver();
+            }
+        } finally {
+            mRecomputing = false;
+        }
+        if (mDispatchDeferred) {
+            mDispatchDeferred = false;
+            dispatchValue();
+        }
+    }
+
+    /**
+     * Drops the queued changes, when a propagation was aborted by an exception.
+     */
+    @MainThread
+    void discardPendingChanges() {
+        mPendingChanges = new ArrayList<>();
+    }
+
+    @Override
+    boolean deferDispatch() {
+        if (mRecomputing) {
+            mDispatchDeferred = true;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the LiveEvents added as sources, plugged or not.
+     */
+    @NonNull
+    List<LiveEvent<?>> getSources() {
+        return new ArrayList<>(mSources.keySet());
+    }
+
+    /**
+     * Returns the mediator of {@code listener} if it is the internal listener a mediator adds to
+     * its sources, null otherwise.
+     */
+    @Nullable
+    static MediatorLiveEvent<?> mediatorOf(@Nullable Listener<?> listener) {
+        return listener instanceof Source ? ((Source<?>) listener).mMediator : null;
+    }
+
+    @NonNull
+    private List<Map.Entry<LiveEvent<?>, Source<?>>> copySources() {
+        return new ArrayList<>(mSources.entrySet());
+    }
+
+    /**
+     * Plugs the sources of the given LiveEvents in one pass over one copy of them. A source may
+     * call back right away and add or remove sources, so a LiveEvent is only plugged if it is
+     * still a source when its turn comes.
+     */
+    private void plugAll(@NonNull Collection<LiveEvent<?>> liveEvents) {
+        for (LiveEvent<?> liveEvent : liveEvents.toArray(new LiveEvent<?>[0])) {
+            Source<?> source = mSources.get(liveEvent);
+            if (source != null && mPlugged) {
+                plug(source, liveEvent);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> void plug(@NonNull Source<V> source, @NonNull LiveEvent<?> liveEvent) {
+        source.plug((LiveEvent<V>) liveEvent);
     }
 
     private static class Source<V> implements Listener<V> {
+        @NonNull
+        final MediatorLiveEvent<?> mMediator;
+        // null if the source is shared by several LiveEvents
+        @Nullable
         final LiveEvent<V> mLiveEvent;
         final Listener<? super V> mListener;
         int mVersion = START_VERSION;
 
-        Source(LiveEvent<V> liveEvent, final Listener<? super V> listener) {
+        Source(@NonNull MediatorLiveEvent<?> mediator, @Nullable LiveEvent<V> liveEvent,
+                final Listener<? super V> listener) {
+            mMediator = mediator;
             mLiveEvent = liveEvent;
             mListener = listener;
         }
 
-        void plug() {
-            mLiveEvent.listenForever(this);
+        void plug(@NonNull LiveEvent<V> liveEvent) {
+            liveEvent.listenForever(this);
         }
 
-        void unplug() {
-            mLiveEvent.removeListener(this);
+        @SuppressWarnings("unchecked")
+        void unplug(@NonNull LiveEvent<?> liveEvent) {
+            ((LiveEvent<V>) liveEvent).removeListener(this);
         }
 
         @Override
         public void onChanged(@Nullable V v) {
-            if (mVersion != mLiveEvent.getVersion()) {
+            if (mLiveEvent == null) {
+                // the wrapper of each LiveEvent already delivers every version once
+                mMediator.onSourceChanged(mListener, v);
+            } else if (mVersion != mLiveEvent.getVersion()) {
                 mVersion = mLiveEvent.getVersion();
-                mListener.onChanged(v);
+                mMediator.onSourceChanged(mListener, v);
             }
         }
     }
+
+    private static class PendingChange<V> {
+        @NonNull
+        final Listener<? super V> mListener;
+        @Nullable
+        final V mValue;
+
+        PendingChange(@NonNull Listener<? super V> listener, @Nullable V value) {
+            mListener = listener;
+            mValue = value;
+        }
+
+        void deliver() {
+            mListener.onChanged(mValue);
+        }
+    }
 }
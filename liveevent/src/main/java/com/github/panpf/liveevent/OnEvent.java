@@ -0,0 +1,61 @@
+package com.github.panpf.liveevent;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a method as a listener of a {@link LiveEvent}. The {@code liveevent-compiler} annotation
+ * processor generates the code that binds the method to the event, all annotated methods of an
+ * object are then registered with one call to
+ * {@link LiveEventSubscribers#register(androidx.lifecycle.LifecycleOwner, Object)}, without any
+ * reflection.
+ * <p>
+ * The method must not be private or static and must take exactly one parameter, whose type must
+ * be a supertype of the event's type. The parameter must not be primitive, an event can be null.
+ * <p>
+ * The event is looked up on {@link #holder()} by {@link #event()}, in this order:
+ * <ul>
+ * <li>a static field named {@code event}</li>
+ * <li>a Kotlin {@code object}, the {@code INSTANCE} field and the property getter of
+ * {@code event}</li>
+ * <li>a static method named {@code event} or the getter of {@code event}</li>
+ * </ul>
+ * <pre>
+ * object EventService {
+ *     val loginLiveEvent = LiveEvent&lt;User&gt;()
+ * }
+ *
+ * class MainFragment : Fragment() {
+ *     &#64;OnEvent(holder = EventService::class, event = "loginLiveEvent", sticky = true)
+ *     fun onLogin(user: User?) {
+ *     }
+ * }
+ * </pre>
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.METHOD)
+public @interface OnEvent {
+    /**
+     * The class that holds the event.
+     */
+    Class<?> holder();
+
+    /**
+     * The name of the field, property or method of {@link #holder()} that returns the event.
+     */
+    String event();
+
+    /**
+     * Use {@link LiveEvent#listenSticky(androidx.lifecycle.LifecycleOwner, Listener)} or
+     * {@link LiveEvent#listenForeverSticky(Listener)}, so the current value is received too.
+     */
+    boolean sticky() default false;
+
+    /**
+     * Use {@link LiveEvent#listenForever(Listener)}, so the method is called regardless of the
+     * lifecycle of the owner until {@link EventSubscription#unregister()} is called.
+     */
+    boolean forever() default false;
+}
@@ -0,0 +1,209 @@
+package com.github.panpf.liveevent;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a task for every item of a list, split into chunks that run in parallel on an
+ * {@link Executor}. The calling thread runs the first chunk itself.
+ */
+class ParallelFanOut {
+    private static volatile ExecutorService sDefaultExecutor;
+
+    private ParallelFanOut() {
+    }
+
+    /**
+     * Returns the shared pool with one daemon thread per CPU core.
+     */
+    @NonNull
+    static Executor getDefaultExecutor() {
+        if (sDefaultExecutor == null) {
+            synchronized (ParallelFanOut.class) {
+                if (sDefaultExecutor == null) {
+                    final AtomicInteger count = new AtomicInteger();
+                    sDefaultExecutor = Executors.newFixedThreadPool(
+                            Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+                                @Override
+                                public Thread newThread(@NonNull Runnable r) {
+                                    Thread thread = new Thread(r,
+                                            "liveevent_fan_out_" + count.getAndIncrement());
+                                    thread.setDaemon(true);
+                                    return thread;
+                                }
+                            });
+                }
+            }
+        }
+        return sDefaultExecutor;
+    }
+
+    /**
+     * Runs {@code task} for every item.
+     * <p>
+     * A joining caller runs the chunks that no thread of the executor has started yet itself, so
+     * it only waits for chunks that are running. A listener that joins a nested fan-out on a
+     * thread of a fixed pool therefore can not deadlock the pool by waiting for chunks queued
+     * behind it.
+     *
+     * @param join Whether to wait until all chunks have run. Without it the calling thread only
+     *             runs its own chunk, and exceptions of the other chunks are thrown on the
+     *             executor's threads
+     */
+    static <E> void run(@NonNull final List<E> items, @NonNull Executor executor,
+            final int chunkSize, boolean join, @NonNull final ItemTask<E> task) {
+        final int size = items.size();
+        final int chunkCount = (size + chunkSize - 1) / chunkSize;
+        if (chunkCount <= 1) {
+            runChunk(items, 0, size, task);
+            return;
+        }
+        // the next chunk that nobody has claimed, chunk 0 belongs to the calling thread
+        final AtomicInteger nextChunk = new AtomicInteger(1);
+        final CountDownLatch latch = join ? new CountDownLatch(chunkCount - 1) : null;
+        final Throwable[] error = new Throwable[1];
+        Runnable worker = new Runnable() {
+            @Override
+            public void run() {
+                int chunk = nextChunk.getAndIncrement();
+                if (chunk < chunkCount) {
+                    runClaimedChunk(items, chunk, chunkSize, task, latch, error);
+                }
+            }
+        };
+        for (int chunk = 1; chunk < chunkCount; chunk++) {
+            executor.execute(worker);
+        }
+        runChunk(items, 0, Math.min(chunkSize, size), task);
+        if (latch == null) {
+            return;
+        }
+        int chunk;
+        while ((chunk = nextChunk.getAndIncrement()) < chunkCount) {
+            runClaimedChunk(items, chunk, chunkSize, task, latch, error);
+        }
+        await(latch);
+        rethrow(error);
+    }
+
+    static <E> void runClaimedChunk(@NonNull List<E> items, int chunk, int chunkSize,
+            @NonNull ItemTask<E> task, @Nullable CountDownLatch latch,
+            @NonNull Throwable[] error) {
+        int from = chunk * chunkSize;
+        int to = Math.min(from + chunkSize, items.size());
+        if (latch == null) {
+            runChunk(items, from, to, task);
+            return;
+        }
+        try {
+            runChunk(items, from, to, task);
+        } catch (Throwable e) {
+            synchronized (error) {
+                if (error[0] == null) {
+                    error[0] = e;
+                }
+            }
+        } finally {
+            latch.countDown();
+        }
+    }
+
+    /**
+     * Runs {@code task} for every item on the executor, without waiting.
+     */
+    static <E> void submit(@NonNull List<E> items, @NonNull Executor executor,
+            @NonNull final ItemTask<E> task) {
+        for (final E item : items) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    task.run(item);
+                }
+            });
+        }
+    }
+
+    /**
+     * Runs {@code task} for every item on the executor and waits until all have run, without
+     * running any of them on the calling thread. For a caller that must stay free of the work,
+     * like the main thread, and that is not a thread of the executor.
+     */
+    static <E> void submitAndWait(@NonNull List<E> items, @NonNull Executor executor,
+            @NonNull final ItemTask<E> task) {
+        final CountDownLatch latch = new CountDownLatch(items.size());
+        final Throwable[] error = new Throwable[1];
+        for (final E item : items) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        task.run(item);
+                    } catch (Throwable e) {
+                        synchronized (error) {
+                            if (error[0] == null) {
+                                error[0] = e;
+                            }
+                        }
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            });
+        }
+        await(latch);
+        rethrow(error);
+    }
+
+    /**
+     * Throws the first error of the chunks on the joining thread, so that an Error like a failed
+     * assertion is not lost on a thread of the executor.
+     */
+    private static void rethrow(@NonNull Throwable[] error) {
+        Throwable throwable;
+        synchronized (error) {
+            throwable = error[0];
+        }
+        if (throwable instanceof RuntimeException) {
+            throw (RuntimeException) throwable;
+        } else if (throwable instanceof Error) {
+            throw (Error) throwable;
+        } else if (throwable != null) {
+            // a checked exception thrown by Kotlin code
+            throw new RuntimeException(throwable);
+        }
+    }
+
+    private static void await(@NonNull CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static <E> void runChunk(@NonNull List<E> items, int from, int to,
+            @NonNull ItemTask<E> task) {
+        for (int i = from; i < to; i++) {
+            task.run(items.get(i));
+        }
+    }
+
+    interface ItemTask<E> {
+        void run(E item);
+    }
+}
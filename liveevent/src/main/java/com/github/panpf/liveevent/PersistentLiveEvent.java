@@ -0,0 +1,268 @@
+package com.github.panpf.liveevent;
+
+import android.annotation.SuppressLint;
+import android.util.Log;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+import androidx.arch.core.executor.ArchTaskExecutor;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A {@link LiveEvent} whose value is saved to a file, so that sticky listeners still receive it
+ * after the process was killed.
+ * <p>
+ * The saved value is restored lazily, the file is read on the disk IO thread the first time
+ * {@link #getValue()}, {@link #listenSticky(LifecycleOwner, Listener)} or
+ * {@link #listenForeverSticky(Listener)} is called. Until the restored value arrives on the main
+ * thread {@link #getValue()} returns null. Only sticky listeners receive the restored value, and
+ * it is dropped if a new value was set in the meantime. A file whose data the codec reports as
+ * corrupt is deleted, see {@link EventCodec#decode(InputStream)}.
+ * <p>
+ * Values are written on the disk IO thread too. If the value changes several times before the
+ * write starts, only the latest one is written, and a write that starts after a newer one was
+ * saved already is skipped, as the disk IO threads may run them in any order. Each value is
+ * written to a temporary file that then replaces the file, so a crash while writing keeps the
+ * previous value. Setting null deletes the file.
+ *
+ * @param <T> The type of the value
+ */
+@SuppressLint("RestrictedApi")
+public class PersistentLiveEvent<T> extends LiveEvent<T> {
+    private static final String TAG = "PersistentLiveEvent";
+
+    @NonNull
+    private final File mFile;
+    @NonNull
+    private final EventCodec<T> mCodec;
+    private final AtomicBoolean mRestoreStarted = new AtomicBoolean(false);
+    // the reads and writes of the file
+    private final Object mFileLock = new Object();
+
+    // the sequence of the value in the file, guarded by mFileLock
+    private long mWrittenSequence;
+
+    private final Object mWriteLock = new Object();
+    private Object mPendingWrite = NOT_SET;
+    // the sequence of the latest value set, guarded by mWriteLock
+    private long mWriteSequence;
+    private final Runnable mWriteRunnable = new Runnable() {
+        @SuppressWarnings("unchecked")
+        @Override
+        public void run() {
+            Object value;
+            long sequence;
+            synchronized (mWriteLock) {
+                value = mPendingWrite;
+                sequence = mWriteSequence;
+                mPendingWrite = NOT_SET;
+            }
+            write((T) value, sequence);
+        }
+    };
+
+    /**
+     * @param file  The file the value is saved to
+     * @param codec Converts the value to bytes
+     */
+    public PersistentLiveEvent(@NonNull File file, @NonNull EventCodec<T> codec) {
+        mFile = file;
+        mCodec = codec;
+    }
+
+    @MainThread
+    @Override
+    public void setValue(T value) {
+        // a new value makes the saved one obsolete
+        mRestoreStarted.set(true);
+        super.setValue(value);
+        boolean postTask;
+        synchronized (mWriteLock) {
+            postTask = mPendingWrite == NOT_SET;
+            mPendingWrite = value;
+            mWriteSequence++;
+        }
+        if (postTask) {
+            ArchTaskExecutor.getInstance().executeOnDiskIO(mWriteRunnable);
+        }
+    }
+
+    @Nullable
+    @Override
+    public T getValue() {
+        restoreIfNeeded();
+        return super.getValue();
+    }
+
+    @AnyThread
+    @Override
+    public void listenSticky(@NonNull LifecycleOwner owner, @NonNull Listener<? super T> listener) {
+        restoreIfNeeded();
+        super.listenSticky(owner, listener);
+    }
+
+    @AnyThread
+    @Override
+    public void listenForeverSticky(@NonNull Listener<? super T> listener) {
+        restoreIfNeeded();
+        super.listenForeverSticky(listener);
+    }
+
+    @AnyThread
+    @Override
+    public void listenSticky(@NonNull LifecycleOwner owner, int priority,
+            @NonNull Listener<? super T> listener) {
+        restoreIfNeeded();
+        super.listenSticky(owner, priority, listener);
+    }
+
+    @AnyThread
+    @Override
+    public <S extends T> void listenSticky(@NonNull LifecycleOwner owner, @NonNull Class<S> type,
+            @NonNull Listener<? super S> listener) {
+        restoreIfNeeded();
+        super.listenSticky(owner, type, listener);
+    }
+
+    @AnyThread
+    @Override
+    public void listenForeverSticky(int priority, @NonNull Listener<? super T> listener) {
+        restoreIfNeeded();
+        super.listenForeverSticky(priority, listener);
+    }
+
+    @AnyThread
+    @Override
+    public <S extends T> void listenForeverSticky(@NonNull Class<S> type,
+            @NonNull Listener<? super S> listener) {
+        restoreIfNeeded();
+        super.listenForeverSticky(type, listener);
+    }
+
+    @AnyThread
+    @Override
+    public void listenForeverStickyWeak(@NonNull Listener<? super T> listener) {
+        restoreIfNeeded();
+        super.listenForeverStickyWeak(listener);
+    }
+
+    private void restoreIfNeeded() {
+        if (!mRestoreStarted.compareAndSet(false, true)) {
+            return;
+        }
+        final int version = getVersion();
+        ArchTaskExecutor.getInstance().executeOnDiskIO(new Runnable() {
+            @Override
+            public void run() {
+                final T value;
+                try {
+                    value = read();
+                } catch (IOException e) {
+                    Log.w(TAG, "Unable to restore value from " + mFile, e);
+                    return;
+                } catch (RuntimeException e) {
+                    Log.w(TAG, "Unable to restore value from " + mFile, e);
+                    return;
+                }
+                if (value == null) {
+                    return;
+                }
+                ArchTaskExecutor.getInstance().postToMainThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (getVersion() == version) {
+                            setStickyValue(value);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    @WorkerThread
+    @Nullable
+    private T read() throws IOException {
+        synchronized (mFileLock) {
+            if (!mFile.exists()) {
+                return null;
+            }
+            InputStream in = new BufferedInputStream(new FileInputStream(mFile));
+            try {
+                return mCodec.decode(in);
+            } catch (StreamCorruptedException e) {
+                deleteCorruptFile();
+                throw e;
+            } catch (EOFException e) {
+                deleteCorruptFile();
+                throw e;
+            } finally {
+                in.close();
+            }
+        }
+    }
+
+    /**
+     * A corrupt file would fail again after every start. Must hold mFileLock.
+     */
+    private void deleteCorruptFile() {
+        //noinspection ResultOfMethodCallIgnored
+        mFile.delete();
+    }
+
+    @WorkerThread
+    private void write(@Nullable T value, long sequence) {
+        synchronized (mFileLock) {
+            if (sequence <= mWrittenSequence) {
+                // a newer value was written by another disk IO thread already
+                return;
+            }
+            mWrittenSequence = sequence;
+            if (value == null) {
+                //noinspection ResultOfMethodCallIgnored
+                mFile.delete();
+                return;
+            }
+            // write to a temp file first, so a crash never leaves a half written value behind
+            File tempFile = new File(mFile.getPath() + ".tmp");
+            try {
+                FileOutputStream fileOut = new FileOutputStream(tempFile);
+                OutputStream out = new BufferedOutputStream(fileOut);
+                try {
+                    mCodec.encode(value, out);
+                    out.flush();
+                    // the data must be on disk before the rename is, or a power loss can leave
+                    // an empty file behind
+                    fileOut.getFD().sync();
+                } finally {
+                    out.close();
+                }
+                if (!tempFile.renameTo(mFile)) {
+                    throw new IOException("Unable to rename " + tempFile + " to " + mFile);
+                }
+            } catch (IOException e) {
+                Log.w(TAG, "Unable to save value to " + mFile, e);
+                //noinspection ResultOfMethodCallIgnored
+                tempFile.delete();
+            } catch (RuntimeException e) {
+                Log.w(TAG, "Unable to save value to " + mFile, e);
+                //noinspection ResultOfMethodCallIgnored
+                tempFile.delete();
+            }
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.github.panpf.liveevent;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Selects the values to wait for with {@link LiveEvent#awaitFirst(Predicate, long)}.
+ *
+ * @param <T> The type of the value
+ */
+public interface Predicate<T> {
+    /**
+     * Called on the main thread while the value is dispatched, keep it short.
+     *
+     * @param value The dispatched value
+     * @return true to complete the wait with this value
+     */
+    boolean test(@Nullable T value);
+}
@@ -0,0 +1,22 @@
+package com.github.panpf.liveevent;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Merges a value posted with {@link LiveEvent#postValue(Object, Reducer)} into the value that is
+ * still waiting for the main thread.
+ *
+ * @param <T> The type of the value
+ */
+public interface Reducer<T> {
+    /**
+     * Called on the posting thread while the LiveEvent is locked, keep it short and do not call
+     * the LiveEvent from it.
+     *
+     * @param pending  The value that is waiting for the main thread
+     * @param incoming The posted value
+     * @return the value to wait for the main thread instead
+     */
+    @Nullable
+    T reduce(@Nullable T pending, @Nullable T incoming);
+}
@@ -0,0 +1,122 @@
+package com.github.panpf.liveevent;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * A value that will be set on a {@link LiveEvent} later, returned by
+ * {@link LiveEvent#postValueDelayed(Object, long)} and {@link LiveEvent#postValueAt(Object, long)}.
+ */
+public final class ScheduledEvent {
+    // in the wheel
+    static final int STATE_PENDING = 0;
+    // taken from the wheel, about to be set
+    static final int STATE_DUE = 1;
+    static final int STATE_DONE = 2;
+    static final int STATE_CANCELLED = 3;
+
+    @NonNull
+    private final EventTimerWheel mWheel;
+    // null for an action
+    @Nullable
+    final LiveEvent<?> mTarget;
+    @Nullable
+    private final Object mValue;
+    @Nullable
+    private final Runnable mAction;
+    // the uptime in milliseconds, the wheel ticks once per millisecond
+    final long mTime;
+    // guarded by the wheel
+    volatile int mState = STATE_PENDING;
+
+    // the slot list of the wheel, guarded by the wheel
+    @Nullable
+    ScheduledEvent mPrev;
+    @Nullable
+    ScheduledEvent mNext;
+    int mLevel;
+    int mSlot;
+    // the list of the scheduled values of mTarget, guarded by the wheel
+    @Nullable
+    ScheduledEvent mTargetPrev;
+    @Nullable
+    ScheduledEvent mTargetNext;
+
+    ScheduledEvent(@NonNull EventTimerWheel wheel, @NonNull LiveEvent<?> target,
+            @Nullable Object value, long time) {
+        mWheel = wheel;
+        mTarget = target;
+        mValue = value;
+        mAction = null;
+        mTime = time;
+    }
+
+    ScheduledEvent(@NonNull EventTimerWheel wheel, @NonNull Runnable action, long time) {
+        mWheel = wheel;
+        mTarget = null;
+        mValue = null;
+        mAction = action;
+        mTime = time;
+    }
+
+    /**
+     * Cancels the value, it will not be set.
+     *
+     * @return true if the value was still pending
+     */
+    @AnyThread
+    public boolean cancel() {
+        return mWheel.cancel(this);
+    }
+
+    /**
+     * Returns true if the value has neither been set nor cancelled yet.
+     *
+     * @return true if the value is pending
+     */
+    public boolean isPending() {
+        int state = mState;
+        return state == STATE_PENDING || state == STATE_DUE;
+    }
+
+    /**
+     * Replaces the clock of the scheduled values, a fake clock can be used in tests. Must be
+     * called while no values are scheduled.
+     *
+     * @param clock The new clock, null for a {@link MainThreadEventClock}
+     * @throws IllegalStateException if values are scheduled
+     */
+    @AnyThread
+    public static void setClock(@Nullable EventClock clock) {
+        EventTimerWheel.setDefaultClock(clock != null ? clock : new MainThreadEventClock());
+    }
+
+    /**
+     * Returns the time at which the value is set, in the time base of the {@link EventClock},
+     * {@link android.os.SystemClock#uptimeMillis()} by default.
+     *
+     * @return the time at which the value is set
+     */
+    public long getTimeMillis() {
+        return mTime;
+    }
+
+    @SuppressWarnings("unchecked")
+    @MainThread
+    void fire() {
+        if (!mWheel.markDone(this)) {
+            // cancelled after the wheel took it
+            return;
+        }
+        if (mAction != null) {
+            mAction.run();
+            return;
+        }
+        if (mTarget.mCancelScheduledWhenInactive && !mTarget.hasActiveListeners()) {
+            return;
+        }
+        ((LiveEvent<Object>) mTarget).setValue(mValue);
+    }
+}
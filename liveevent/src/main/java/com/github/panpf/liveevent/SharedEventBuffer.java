@@ -0,0 +1,266 @@
+package com.github.panpf.liveevent;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The memory-mapped ring buffer file shared by {@link SharedEventWriter} and
+ * {@link SharedEventReader}.
+ * <p>
+ * Layout, all numbers are little-endian:
+ * <pre>
+ * header: int magic | int slotCount | int slotSize | int reserved | long lastSequence | padding
+ * slot:   long sequence | int length | payload
+ * </pre>
+ * Sequences start at 1. While a slot is being written its sequence is the negated new sequence,
+ * readers compare the slot sequence before and after reading the payload to detect slots that
+ * were overwritten under them. The mapped memory has no volatile access, so the writer and the
+ * readers order their accesses with {@link #storeFence()} and {@link #loadFence()}. The slot size
+ * is a multiple of 8 so that the sequences are aligned and read in one access.
+ */
+class SharedEventBuffer implements Closeable {
+    static final int MAGIC = 0x4C455642;    // "LEVB"
+    static final int HEADER_SIZE = 64;
+    static final int SLOT_HEADER_SIZE = 12;
+    static final int NULL_LENGTH = -1;
+
+    private static final int OFFSET_MAGIC = 0;
+    private static final int OFFSET_SLOT_COUNT = 4;
+    private static final int OFFSET_SLOT_SIZE = 8;
+    private static final int OFFSET_LAST_SEQUENCE = 16;
+
+    // sun.misc.Unsafe and its fences, null where they are not available
+    @Nullable
+    private static final Object sUnsafe;
+    @Nullable
+    private static final Method sLoadFence;
+    @Nullable
+    private static final Method sStoreFence;
+    // updated by the fences without Unsafe
+    private static final AtomicInteger sFallbackFence = new AtomicInteger();
+
+    static {
+        Object unsafe = null;
+        Method loadFence = null;
+        Method storeFence = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field;
+            try {
+                field = unsafeClass.getDeclaredField("theUnsafe");
+            } catch (NoSuchFieldException e) {
+                // older Android versions
+                field = unsafeClass.getDeclaredField("THE_ONE");
+            }
+            field.setAccessible(true);
+            loadFence = unsafeClass.getMethod("loadFence");
+            storeFence = unsafeClass.getMethod("storeFence");
+            unsafe = field.get(null);
+        } catch (Exception e) {
+            loadFence = null;
+            storeFence = null;
+        }
+        sUnsafe = unsafe;
+        sLoadFence = unsafe != null ? loadFence : null;
+        sStoreFence = unsafe != null ? storeFence : null;
+    }
+
+    @NonNull
+    private final RandomAccessFile mFile;
+    @NonNull
+    private final MappedByteBuffer mBuffer;
+    final int mSlotCount;
+    final int mSlotSize;
+
+    private SharedEventBuffer(@NonNull RandomAccessFile file, @NonNull MappedByteBuffer buffer,
+            int slotCount, int slotSize) {
+        mFile = file;
+        mBuffer = buffer;
+        mSlotCount = slotCount;
+        mSlotSize = slotSize;
+    }
+
+    @NonNull
+    static SharedEventBuffer create(@NonNull File file, int slotCount, int slotSize)
+            throws IOException {
+        if (slotCount <= 0) {
+            throw new IllegalArgumentException("slotCount must be greater than 0");
+        }
+        if (slotSize <= SLOT_HEADER_SIZE) {
+            throw new IllegalArgumentException("slotSize must be greater than "
+                    + SLOT_HEADER_SIZE);
+        }
+        if (slotSize % 8 != 0) {
+            throw new IllegalArgumentException("slotSize must be a multiple of 8");
+        }
+        long size = HEADER_SIZE + (long) slotCount * slotSize;
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            // the file of a previous writer is taken over and its sequence continued, its
+            // readers wait for the next sequence and would never see a restarted one
+            long lastSequence = 0;
+            boolean sameLayout = false;
+            long length = randomAccessFile.length();
+            if (length >= HEADER_SIZE) {
+                MappedByteBuffer header = randomAccessFile.getChannel()
+                        .map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+                header.order(ByteOrder.LITTLE_ENDIAN);
+                if (header.getInt(OFFSET_MAGIC) == MAGIC) {
+                    lastSequence = Math.max(0, header.getLong(OFFSET_LAST_SEQUENCE));
+                    sameLayout = length == size && header.getInt(OFFSET_SLOT_COUNT) == slotCount
+                            && header.getInt(OFFSET_SLOT_SIZE) == slotSize;
+                }
+            }
+            if (!sameLayout) {
+                randomAccessFile.setLength(size);
+            }
+            MappedByteBuffer buffer = randomAccessFile.getChannel()
+                    .map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (!sameLayout) {
+                buffer.putInt(OFFSET_MAGIC, 0);
+                storeFence();
+                for (int i = 0; i < slotCount; i++) {
+                    buffer.putLong(slotOffset(i, slotSize), 0);
+                }
+                buffer.putInt(OFFSET_SLOT_COUNT, slotCount);
+                buffer.putInt(OFFSET_SLOT_SIZE, slotSize);
+                buffer.putLong(OFFSET_LAST_SEQUENCE, lastSequence);
+                storeFence();
+                // magic goes last, readers refuse to open a file without it
+                buffer.putInt(OFFSET_MAGIC, MAGIC);
+            }
+            return new SharedEventBuffer(randomAccessFile, buffer, slotCount, slotSize);
+        } catch (IOException e) {
+            randomAccessFile.close();
+            throw e;
+        }
+    }
+
+    @NonNull
+    static SharedEventBuffer open(@NonNull File file) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            long length = randomAccessFile.length();
+            if (length < HEADER_SIZE) {
+                throw new IOException("Not a shared event file: " + file);
+            }
+            MappedByteBuffer buffer = randomAccessFile.getChannel()
+                    .map(FileChannel.MapMode.READ_ONLY, 0, length);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            int slotCount = buffer.getInt(OFFSET_SLOT_COUNT);
+            int slotSize = buffer.getInt(OFFSET_SLOT_SIZE);
+            if (buffer.getInt(OFFSET_MAGIC) != MAGIC
+                    || length < HEADER_SIZE + (long) slotCount * slotSize) {
+                throw new IOException("Not a shared event file: " + file);
+            }
+            return new SharedEventBuffer(randomAccessFile, buffer, slotCount, slotSize);
+        } catch (IOException e) {
+            randomAccessFile.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Keeps the loads before the fence from being reordered with the loads after it.
+     */
+    static void loadFence() {
+        fence(sLoadFence);
+    }
+
+    /**
+     * Keeps the stores before the fence from being reordered with the stores after it.
+     */
+    static void storeFence() {
+        fence(sStoreFence);
+    }
+
+    private static void fence(@Nullable Method method) {
+        if (method != null) {
+            try {
+                method.invoke(sUnsafe, (Object[]) null);
+                return;
+            } catch (Exception ignored) {
+                // fall through to the atomic update
+            }
+        }
+        // a volatile read-modify-write, which ART and HotSpot compile to a full barrier
+        sFallbackFence.incrementAndGet();
+    }
+
+    /**
+     * Returns true if the header still describes the layout this buffer was mapped with, a
+     * writer re-created with another layout invalidates the readers of the old one.
+     */
+    boolean hasLayout() {
+        return mBuffer.getInt(OFFSET_MAGIC) == MAGIC
+                && mBuffer.getInt(OFFSET_SLOT_COUNT) == mSlotCount
+                && mBuffer.getInt(OFFSET_SLOT_SIZE) == mSlotSize;
+    }
+
+    private static int slotOffset(int index, int slotSize) {
+        return HEADER_SIZE + index * slotSize;
+    }
+
+    int slotOffset(long sequence) {
+        return slotOffset((int) ((sequence - 1) % mSlotCount), mSlotSize);
+    }
+
+    long getLastSequence() {
+        return mBuffer.getLong(OFFSET_LAST_SEQUENCE);
+    }
+
+    void setLastSequence(long sequence) {
+        mBuffer.putLong(OFFSET_LAST_SEQUENCE, sequence);
+    }
+
+    long getSlotSequence(int slotOffset) {
+        return mBuffer.getLong(slotOffset);
+    }
+
+    void setSlotSequence(int slotOffset, long sequence) {
+        mBuffer.putLong(slotOffset, sequence);
+    }
+
+    int getSlotLength(int slotOffset) {
+        return mBuffer.getInt(slotOffset + 8);
+    }
+
+    void setSlotLength(int slotOffset, int length) {
+        mBuffer.putInt(slotOffset + 8, length);
+    }
+
+    /**
+     * Returns a view of the payload of the slot at the given offset, positioned at its start and
+     * limited to {@code length} bytes.
+     */
+    @NonNull
+    ByteBuffer payload(int slotOffset, int length) {
+        ByteBuffer duplicate = mBuffer.duplicate();
+        int start = slotOffset + SLOT_HEADER_SIZE;
+        duplicate.limit(start + length);
+        duplicate.position(start);
+        return duplicate.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    int getPayloadCapacity() {
+        return mSlotSize - SLOT_HEADER_SIZE;
+    }
+
+    @Override
+    public void close() throws IOException {
+        mFile.close();
+    }
+}
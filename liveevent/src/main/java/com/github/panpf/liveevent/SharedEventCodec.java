@@ -0,0 +1,44 @@
+package com.github.panpf.liveevent;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Converts the values of a {@link LiveEvent} to and from the slots of a shared ring buffer file.
+ *
+ * @param <T> The type of the value
+ *
+ * @see SharedEventWriter
+ * @see SharedEventReader
+ * @see SharedEventCodecs
+ */
+public interface SharedEventCodec<T> {
+    /**
+     * Writes the given value into {@code out}, starting at its current position.
+     * <p>
+     * {@code out} is a view of the slot in the mapped file, so the value is written without any
+     * intermediate copy. Its limit is the payload capacity of a slot, writing beyond it throws
+     * a {@link java.nio.BufferOverflowException}.
+     *
+     * @param value The value to write, never null
+     * @param out   The slot payload
+     */
+    void encode(@NonNull T value, @NonNull ByteBuffer out);
+
+    /**
+     * Reads a value from {@code in}, which spans exactly the bytes written by
+     * {@link #encode(Object, ByteBuffer)}.
+     * <p>
+     * {@code in} is a read-only view of the mapped file. All bytes must be read while decoding,
+     * the reader checks afterwards that the writer did not overwrite the slot in the meantime,
+     * and the value is delivered later on the main thread, after the slot may have been reused.
+     * So the value must not be or keep a view of {@code in}.
+     *
+     * @param in The slot payload
+     * @return The decoded value
+     */
+    @Nullable
+    T decode(@NonNull ByteBuffer in);
+}
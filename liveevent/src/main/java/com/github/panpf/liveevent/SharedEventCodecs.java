@@ -0,0 +1,98 @@
+package com.github.panpf.liveevent;
+
+import androidx.annotation.NonNull;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Commonly used {@link SharedEventCodec}s. Primitive values are read straight from the mapped
+ * file, {@link #BYTES} and {@link #STRING} copy the bytes while decoding.
+ */
+public class SharedEventCodecs {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private SharedEventCodecs() {
+    }
+
+    public static final SharedEventCodec<Integer> INT = new SharedEventCodec<Integer>() {
+        @Override
+        public void encode(@NonNull Integer value, @NonNull ByteBuffer out) {
+            out.putInt(value);
+        }
+
+        @Override
+        public Integer decode(@NonNull ByteBuffer in) {
+            return in.getInt();
+        }
+    };
+
+    public static final SharedEventCodec<Long> LONG = new SharedEventCodec<Long>() {
+        @Override
+        public void encode(@NonNull Long value, @NonNull ByteBuffer out) {
+            out.putLong(value);
+        }
+
+        @Override
+        public Long decode(@NonNull ByteBuffer in) {
+            return in.getLong();
+        }
+    };
+
+    public static final SharedEventCodec<Double> DOUBLE = new SharedEventCodec<Double>() {
+        @Override
+        public void encode(@NonNull Double value, @NonNull ByteBuffer out) {
+            out.putDouble(value);
+        }
+
+        @Override
+        public Double decode(@NonNull ByteBuffer in) {
+            return in.getDouble();
+        }
+    };
+
+    public static final SharedEventCodec<Boolean> BOOLEAN = new SharedEventCodec<Boolean>() {
+        @Override
+        public void encode(@NonNull Boolean value, @NonNull ByteBuffer out) {
+            out.put(value ? (byte) 1 : (byte) 0);
+        }
+
+        @Override
+        public Boolean decode(@NonNull ByteBuffer in) {
+            return in.get() != 0;
+        }
+    };
+
+    /**
+     * Writes the remaining bytes of a buffer, without changing its position. The decoded buffer
+     * is a copy of the slot, so the reader can check that the writer did not overwrite the slot
+     * while it was copied, and the value stays valid after the listener call.
+     */
+    public static final SharedEventCodec<ByteBuffer> BYTES = new SharedEventCodec<ByteBuffer>() {
+        @Override
+        public void encode(@NonNull ByteBuffer value, @NonNull ByteBuffer out) {
+            out.put(value.duplicate());
+        }
+
+        @Override
+        public ByteBuffer decode(@NonNull ByteBuffer in) {
+            ByteBuffer copy = ByteBuffer.allocate(in.remaining());
+            copy.put(in);
+            copy.flip();
+            return copy;
+        }
+    };
+
+    public static final SharedEventCodec<String> STRING = new SharedEventCodec<String>() {
+        @Override
+        public void encode(@NonNull String value, @NonNull ByteBuffer out) {
+            out.put(value.getBytes(UTF_8));
+        }
+
+        @Override
+        public String decode(@NonNull ByteBuffer in) {
+            return UTF_8.decode(in).toString();
+        }
+    };
+}
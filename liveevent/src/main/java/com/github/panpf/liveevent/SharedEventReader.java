@@ -0,0 +1,221 @@
+package com.github.panpf.liveevent;
+
+import android.annotation.SuppressLint;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.arch.core.executor.ArchTaskExecutor;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the values written by a {@link SharedEventWriter}, usually in another process, and sets
+ * them on a local {@link LiveEvent} on the main thread.
+ * <p>
+ * Values are read straight from the mapped file, see {@link SharedEventCodec}. The reader starts
+ * after the last value written before it was created, like {@link LiveEvent#listen}. Every value
+ * is delivered in order, the values collected by one {@link #poll()} are set on the main thread
+ * in a single task.
+ * <p>
+ * If the writer overwrites values before they were read, the missed sequence numbers are reported
+ * to the {@link GapListener} and reading continues with the oldest value still available.
+ *
+ * @param <T> The type of the value
+ */
+@SuppressLint("RestrictedApi")
+public class SharedEventReader<T> implements Closeable {
+    @NonNull
+    private final SharedEventBuffer mBuffer;
+    @NonNull
+    private final SharedEventCodec<T> mCodec;
+    @NonNull
+    private final LiveEvent<T> mTarget;
+    @Nullable
+    private volatile GapListener mGapListener;
+    private long mNextSequence;
+    @Nullable
+    private Thread mPollThread;
+
+    /**
+     * @param file   The file created by the {@link SharedEventWriter}
+     * @param codec  Converts the bytes back to values, must match the writer's codec
+     * @param target The LiveEvent the values are set on
+     * @throws IOException If the file can not be mapped or is not a shared event file
+     */
+    public SharedEventReader(@NonNull File file, @NonNull SharedEventCodec<T> codec,
+            @NonNull LiveEvent<T> target) throws IOException {
+        mBuffer = SharedEventBuffer.open(file);
+        mCodec = codec;
+        mTarget = target;
+        mNextSequence = mBuffer.getLastSequence() + 1;
+    }
+
+    /**
+     * Sets the listener that is told about values that were overwritten before they could be
+     * read. It is called on the thread calling {@link #poll()}.
+     *
+     * @param gapListener The listener, null to remove it
+     */
+    public void setGapListener(@Nullable GapListener gapListener) {
+        mGapListener = gapListener;
+    }
+
+    /**
+     * Reads all values written since the last call and delivers them to the target LiveEvent.
+     *
+     * @return How many values were read
+     */
+    public synchronized int poll() {
+        if (!mBuffer.hasLayout()) {
+            throw new IllegalStateException("The writer was re-created with another slot count"
+                    + " or slot size, the reader must be re-created too");
+        }
+        long lastSequence = mBuffer.getLastSequence();
+        long sequence = mNextSequence;
+        if (lastSequence < sequence) {
+            return 0;
+        }
+        // the slots up to lastSequence were published before it
+        SharedEventBuffer.loadFence();
+        final List<T> values = new ArrayList<>((int) Math.min(lastSequence - sequence + 1,
+                mBuffer.mSlotCount));
+        while (sequence <= lastSequence) {
+            if (lastSequence - sequence >= mBuffer.mSlotCount) {
+                sequence = skip(sequence, lastSequence);
+                continue;
+            }
+            int slotOffset = mBuffer.slotOffset(sequence);
+            if (mBuffer.getSlotSequence(slotOffset) != sequence) {
+                lastSequence = mBuffer.getLastSequence();
+                SharedEventBuffer.loadFence();
+                sequence = skip(sequence, lastSequence);
+                continue;
+            }
+            // the payload must not be read before the sequence that says it is complete
+            SharedEventBuffer.loadFence();
+            T value;
+            try {
+                value = read(slotOffset);
+            } catch (RuntimeException e) {
+                // the payload may have been half overwritten, that is a gap and not an error
+                if (mBuffer.getSlotSequence(slotOffset) == sequence) {
+                    throw e;
+                }
+                value = null;
+            }
+            // the writer may have lapped us while decoding
+            SharedEventBuffer.loadFence();
+            if (mBuffer.getSlotSequence(slotOffset) != sequence) {
+                lastSequence = mBuffer.getLastSequence();
+                sequence = skip(sequence, lastSequence);
+                continue;
+            }
+            values.add(value);
+            sequence++;
+        }
+        mNextSequence = sequence;
+        if (values.isEmpty()) {
+            return 0;
+        }
+        Runnable deliver = new Runnable() {
+            @Override
+            public void run() {
+                for (T value : values) {
+                    mTarget.setValue(value);
+                }
+            }
+        };
+        if (ArchTaskExecutor.getInstance().isMainThread()) {
+            deliver.run();
+        } else {
+            ArchTaskExecutor.getInstance().postToMainThread(deliver);
+        }
+        return values.size();
+    }
+
+    @Nullable
+    private T read(int slotOffset) {
+        int length = mBuffer.getSlotLength(slotOffset);
+        if (length == SharedEventBuffer.NULL_LENGTH) {
+            return null;
+        }
+        if (length < 0 || length > mBuffer.getPayloadCapacity()) {
+            throw new IllegalStateException("Invalid payload length " + length);
+        }
+        return mCodec.decode(mBuffer.payload(slotOffset, length));
+    }
+
+    /**
+     * Reports the values from {@code sequence} that are no longer available and returns the
+     * sequence of the oldest value that still is.
+     */
+    private long skip(long sequence, long lastSequence) {
+        long resume = Math.max(sequence + 1, lastSequence - mBuffer.mSlotCount + 1);
+        GapListener gapListener = mGapListener;
+        if (gapListener != null) {
+            gapListener.onGap(sequence, resume - 1);
+        }
+        return resume;
+    }
+
+    /**
+     * Starts a daemon thread that calls {@link #poll()} every {@code intervalMillis}
+     * milliseconds until {@link #stop()} or {@link #close()} is called.
+     *
+     * @param intervalMillis The polling interval
+     */
+    public synchronized void start(final long intervalMillis) {
+        if (mPollThread != null) {
+            return;
+        }
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (!Thread.currentThread().isInterrupted()) {
+                    poll();
+                    try {
+                        Thread.sleep(intervalMillis);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+        }, "SharedEventReader");
+        thread.setDaemon(true);
+        thread.start();
+        mPollThread = thread;
+    }
+
+    /**
+     * Stops the thread started by {@link #start(long)}.
+     */
+    public synchronized void stop() {
+        if (mPollThread != null) {
+            mPollThread.interrupt();
+            mPollThread = null;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        stop();
+        mBuffer.close();
+    }
+
+    /**
+     * Told about values that were overwritten by the writer before they could be read.
+     */
+    public interface GapListener {
+        /**
+         * Called when values were missed.
+         *
+         * @param fromSequence The sequence number of the first missed value
+         * @param toSequence   The sequence number of the last missed value, inclusive
+         */
+        void onGap(long fromSequence, long toSequence);
+    }
+}
@@ -0,0 +1,101 @@
+package com.github.panpf.liveevent;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Writes the values of a {@link LiveEvent} into a memory-mapped ring buffer file so that
+ * {@link SharedEventReader}s in other processes can receive them without going through Binder.
+ * <p>
+ * The file has a fixed number of slots of a fixed size, a value that does not fit into a slot
+ * throws a {@link java.nio.BufferOverflowException}. When the readers fall behind by more than the
+ * number of slots, the oldest values are overwritten and the readers report a gap.
+ * <p>
+ * There must be only one writer per file. The writer is a {@link Listener}, so the easiest way
+ * to use it is to let it listen to the event that should be shared:
+ * <pre>
+ * SharedEventWriter&lt;Integer&gt; writer =
+ *         new SharedEventWriter&lt;&gt;(file, 1024, 64, SharedEventCodecs.INT);
+ * syncProgressLiveEvent.listenForever(writer);
+ * </pre>
+ *
+ * @param <T> The type of the value
+ */
+public class SharedEventWriter<T> implements Listener<T>, Closeable {
+    @NonNull
+    private final SharedEventBuffer mBuffer;
+    @NonNull
+    private final SharedEventCodec<T> mCodec;
+    private long mLastSequence;
+
+    /**
+     * Creates the ring buffer file. The file of a previous writer is taken over, the sequence
+     * numbers continue after its last value so that its readers keep receiving values.
+     *
+     * @param file      The file shared by the processes
+     * @param slotCount How many values the buffer holds before the oldest is overwritten
+     * @param slotSize  The size of a slot in bytes, including a 12 bytes slot header, a
+     *                  multiple of 8
+     * @param codec     Converts the values to bytes
+     * @throws IOException If the file can not be created or mapped
+     */
+    public SharedEventWriter(@NonNull File file, int slotCount, int slotSize,
+            @NonNull SharedEventCodec<T> codec) throws IOException {
+        mBuffer = SharedEventBuffer.create(file, slotCount, slotSize);
+        mCodec = codec;
+        mLastSequence = mBuffer.getLastSequence();
+    }
+
+    /**
+     * Writes the given value to the next slot and publishes it to the readers.
+     *
+     * @param value The value to write
+     * @return The sequence number of the value
+     */
+    public synchronized long write(@Nullable T value) {
+        long sequence = mLastSequence + 1;
+        int slotOffset = mBuffer.slotOffset(sequence);
+        // mark the slot as being written, readers still on the old value will notice
+        mBuffer.setSlotSequence(slotOffset, -sequence);
+        // readers must see the slot as being written before its payload changes
+        SharedEventBuffer.storeFence();
+        if (value != null) {
+            ByteBuffer payload = mBuffer.payload(slotOffset, mBuffer.getPayloadCapacity());
+            mCodec.encode(value, payload);
+            mBuffer.setSlotLength(slotOffset, payload.position());
+        } else {
+            mBuffer.setSlotLength(slotOffset, SharedEventBuffer.NULL_LENGTH);
+        }
+        SharedEventBuffer.storeFence();
+        mBuffer.setSlotSequence(slotOffset, sequence);
+        // a reader that sees the new last sequence must see the published slot
+        SharedEventBuffer.storeFence();
+        mBuffer.setLastSequence(sequence);
+        mLastSequence = sequence;
+        return sequence;
+    }
+
+    @Override
+    public void onChanged(@Nullable T t) {
+        write(t);
+    }
+
+    /**
+     * Returns the sequence number of the last written value, 0 if nothing has been written.
+     *
+     * @return the sequence number of the last written value
+     */
+    public synchronized long getLastSequence() {
+        return mLastSequence;
+    }
+
+    @Override
+    public void close() throws IOException {
+        mBuffer.close();
+    }
+}
@@ -0,0 +1,25 @@
+package com.github.panpf.liveevent;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.lifecycle.LifecycleOwner;
+
+/**
+ * Registers the {@link OnEvent} methods of a subscriber class. Implementations are generated by
+ * the {@code liveevent-compiler} annotation processor.
+ *
+ * @param <S> The type of the subscriber
+ */
+public interface SubscriberBinder<S> {
+    /**
+     * Registers all {@link OnEvent} methods declared by the subscriber class, not including the
+     * ones of its superclasses.
+     *
+     * @param subscriber   The object whose methods are registered
+     * @param owner        The LifecycleOwner which controls the non-forever listeners
+     * @param subscription Records the listeners so they can be removed again
+     */
+    @MainThread
+    void bind(@NonNull S subscriber, @NonNull LifecycleOwner owner,
+            @NonNull EventSubscription subscription);
+}
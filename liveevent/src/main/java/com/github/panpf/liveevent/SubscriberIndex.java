@@ -0,0 +1,20 @@
+package com.github.panpf.liveevent;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Maps subscriber classes to their {@link SubscriberBinder}. The {@code liveevent-compiler}
+ * annotation processor generates one index per module, named by the {@code liveEventIndex}
+ * processor option, it must be added with {@link LiveEventSubscribers#addIndex(SubscriberIndex)}.
+ */
+public interface SubscriberIndex {
+    /**
+     * Returns the binder of the given class, null if it declares no {@link OnEvent} methods.
+     *
+     * @param subscriberClass The subscriber class
+     * @return the binder of the given class
+     */
+    @Nullable
+    SubscriberBinder<?> getBinder(@NonNull Class<?> subscriberClass);
+}
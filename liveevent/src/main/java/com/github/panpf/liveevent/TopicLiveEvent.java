@@ -0,0 +1,344 @@
+package com.github.panpf.liveevent;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An event hub where values are published to topics, paths of segments separated by {@code /}
+ * such as {@code download/1234/progress}, so that modules can exchange events without sharing
+ * one LiveEvent field per topic.
+ * <p>
+ * Listeners subscribe to a topic pattern, which is either an exact topic or contains wildcards:
+ * <ul>
+ * <li>{@code *} matches exactly one segment, <code>download/&#42;/progress</code> matches the
+ * progress of every download</li>
+ * <li>{@code **} matches one or more segments and must be the last segment,
+ * {@code download/**} matches every topic below {@code download}</li>
+ * </ul>
+ * The patterns are kept in a trie of segments, so publishing only walks the segments of the topic
+ * and visits the listeners of the matching patterns. A listener that subscribed to several
+ * matching patterns receives the value once per pattern.
+ * <p>
+ * Like {@link LiveEvent} the listeners only receive the values published after they subscribed,
+ * and lifecycle-bound listeners only while their owner is active.
+ *
+ * @param <T> The type of the values
+ */
+public class TopicLiveEvent<T> {
+    private static final String SEPARATOR = "/";
+    private static final String SINGLE_WILDCARD = "*";
+    private static final String MULTI_WILDCARD = "**";
+
+    private final Object mLock = new Object();
+    // guarded by mLock
+    private final Node<T> mRoot = new Node<>(null, null);
+
+    /**
+     * Same as {@link LiveEvent#listen(LifecycleOwner, Listener)}, for the values published to the
+     * topics matching {@code pattern}.
+     *
+     * @param owner    The LifecycleOwner which controls the listener
+     * @param pattern  An exact topic or a topic pattern with wildcards
+     * @param listener The listener that will receive the events
+     * @throws IllegalArgumentException If the pattern is empty, has an empty segment or
+     *                                  {@code **} is not its last segment
+     */
+    @AnyThread
+    public void listen(@NonNull LifecycleOwner owner, @NonNull String pattern,
+            @NonNull Listener<? super TopicMessage<T>> listener) {
+        String[] segments = parsePattern(pattern);
+        synchronized (mLock) {
+            NodeEvent<T> event = obtainNode(segments).obtainEvent(this);
+            event.listen(owner, listener);
+            // the owner may already be destroyed
+            releaseIfUnused(event);
+        }
+    }
+
+    /**
+     * Same as {@link LiveEvent#listenForever(Listener)}, for the values published to the topics
+     * matching {@code pattern}.
+     *
+     * @param pattern  An exact topic or a topic pattern with wildcards
+     * @param listener The listener that will receive the events
+     * @throws IllegalArgumentException If the pattern is empty, has an empty segment or
+     *                                  {@code **} is not its last segment
+     */
+    @AnyThread
+    public void listenForever(@NonNull String pattern,
+            @NonNull Listener<? super TopicMessage<T>> listener) {
+        String[] segments = parsePattern(pattern);
+        synchronized (mLock) {
+            obtainNode(segments).obtainEvent(this).listenForever(listener);
+        }
+    }
+
+    /**
+     * Removes the given listener of {@code pattern}.
+     *
+     * @param pattern  The pattern the listener subscribed to
+     * @param listener The listener to remove
+     */
+    @AnyThread
+    public void removeListener(@NonNull String pattern,
+            @NonNull Listener<? super TopicMessage<T>> listener) {
+        String[] segments = parsePattern(pattern);
+        NodeEvent<T> event;
+        synchronized (mLock) {
+            Node<T> node = findNode(segments);
+            event = node != null ? node.mEvent : null;
+        }
+        if (event != null) {
+            event.removeListener(listener);
+        }
+    }
+
+    /**
+     * Removes all listeners that are tied to the given {@link LifecycleOwner}, for all patterns.
+     *
+     * @param owner The {@code LifecycleOwner} scope for the listeners to be removed.
+     */
+    @AnyThread
+    public void removeListener(@NonNull LifecycleOwner owner) {
+        List<NodeEvent<T>> events = new ArrayList<>();
+        synchronized (mLock) {
+            collectEvents(mRoot, events);
+        }
+        for (NodeEvent<T> event : events) {
+            event.removeListener(owner);
+        }
+    }
+
+    /**
+     * Publishes {@code value} to {@code topic} and dispatches it to the listeners of all matching
+     * patterns.
+     * <p>
+     * This method must be called from the main thread. If you need set a value from a background
+     * thread, you can use {@link #postValue(String, Object)}
+     *
+     * @param topic The topic, without wildcards
+     * @param value The value to publish
+     * @throws IllegalArgumentException If the topic is empty, has an empty segment or a wildcard
+     */
+    @MainThread
+    public void setValue(@NonNull String topic, T value) {
+        LiveEvent.assertMainThread("setValue");
+        TopicMessage<T> message = new TopicMessage<>(topic, value);
+        for (NodeEvent<T> event : match(parseTopic(topic))) {
+            event.setValue(message);
+        }
+    }
+
+    /**
+     * Posts a task to the main thread to publish {@code value} to {@code topic}. If you called
+     * this method multiple times before the main thread executed the posted tasks, every value is
+     * published, unlike {@link LiveEvent#postValue(Object)}.
+     *
+     * @param topic The topic, without wildcards
+     * @param value The value to publish
+     * @throws IllegalArgumentException If the topic is empty, has an empty segment or a wildcard
+     */
+    @AnyThread
+    public void postValue(@NonNull final String topic, final T value) {
+        parseTopic(topic);
+        LiveEvent.runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                setValue(topic, value);
+            }
+        });
+    }
+
+    /**
+     * Returns true if any pattern matching {@code topic} has listeners.
+     *
+     * @param topic The topic, without wildcards
+     * @return true if a value published to the topic would reach a listener
+     */
+    public boolean hasListeners(@NonNull String topic) {
+        for (NodeEvent<T> event : match(parseTopic(topic))) {
+            if (event.hasListeners()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @NonNull
+    private List<NodeEvent<T>> match(@NonNull String[] segments) {
+        List<NodeEvent<T>> matched = new ArrayList<>();
+        synchronized (mLock) {
+            match(mRoot, segments, 0, matched);
+        }
+        return matched;
+    }
+
+    private static <T> void match(@NonNull Node<T> node, @NonNull String[] segments, int index,
+            @NonNull List<NodeEvent<T>> matched) {
+        if (index == segments.length) {
+            if (node.mEvent != null) {
+                matched.add(node.mEvent);
+            }
+            return;
+        }
+        Node<T> exact = node.mChildren.get(segments[index]);
+        if (exact != null) {
+            match(exact, segments, index + 1, matched);
+        }
+        Node<T> single = node.mChildren.get(SINGLE_WILDCARD);
+        if (single != null) {
+            match(single, segments, index + 1, matched);
+        }
+        Node<T> multi = node.mChildren.get(MULTI_WILDCARD);
+        if (multi != null && multi.mEvent != null) {
+            matched.add(multi.mEvent);
+        }
+    }
+
+    /**
+     * Must hold mLock.
+     */
+    @NonNull
+    private Node<T> obtainNode(@NonNull String[] segments) {
+        Node<T> node = mRoot;
+        for (String segment : segments) {
+            Node<T> child = node.mChildren.get(segment);
+            if (child == null) {
+                child = new Node<>(node, segment);
+                node.mChildren.put(segment, child);
+            }
+            node = child;
+        }
+        return node;
+    }
+
+    /**
+     * Must hold mLock.
+     */
+    @Nullable
+    private Node<T> findNode(@NonNull String[] segments) {
+        Node<T> node = mRoot;
+        for (int i = 0; i < segments.length && node != null; i++) {
+            node = node.mChildren.get(segments[i]);
+        }
+        return node;
+    }
+
+    private static <T> void collectEvents(@NonNull Node<T> node,
+            @NonNull List<NodeEvent<T>> events) {
+        if (node.mEvent != null) {
+            events.add(node.mEvent);
+        }
+        for (Node<T> child : node.mChildren.values()) {
+            collectEvents(child, events);
+        }
+    }
+
+    /**
+     * Frees the node of the event and its empty parents once the event has no listeners.
+     */
+    @SuppressWarnings("WeakerAccess") /* synthetic access */
+    void releaseIfUnused(@NonNull NodeEvent<T> event) {
+        synchronized (mLock) {
+            Node<T> node = event.mNode;
+            // the pattern may have been released and listened to again meanwhile
+            if (event.hasListeners() || node.mEvent != event) {
+                return;
+            }
+            node.mEvent = null;
+            while (node.mParent != null && node.mEvent == null && node.mChildren.isEmpty()) {
+                node.mParent.mChildren.remove(node.mSegment);
+                node = node.mParent;
+            }
+        }
+    }
+
+    @NonNull
+    private static String[] parsePattern(@NonNull String pattern) {
+        String[] segments = split(pattern);
+        for (int i = 0; i < segments.length - 1; i++) {
+            if (MULTI_WILDCARD.equals(segments[i])) {
+                throw new IllegalArgumentException(
+                        "'" + MULTI_WILDCARD + "' must be the last segment: " + pattern);
+            }
+        }
+        return segments;
+    }
+
+    @NonNull
+    private static String[] parseTopic(@NonNull String topic) {
+        String[] segments = split(topic);
+        for (String segment : segments) {
+            if (SINGLE_WILDCARD.equals(segment) || MULTI_WILDCARD.equals(segment)) {
+                throw new IllegalArgumentException("A topic can not contain wildcards: " + topic);
+            }
+        }
+        return segments;
+    }
+
+    @NonNull
+    private static String[] split(@NonNull String path) {
+        String[] segments = path.split(SEPARATOR, -1);
+        for (String segment : segments) {
+            if (segment.isEmpty()) {
+                throw new IllegalArgumentException("Empty topic segment: '" + path + "'");
+            }
+        }
+        return segments;
+    }
+
+    private static class Node<T> {
+        @Nullable
+        final Node<T> mParent;
+        @Nullable
+        final String mSegment;
+        final Map<String, Node<T>> mChildren = new HashMap<>();
+        // the listeners of the pattern ending at this node, null if it has none
+        @Nullable
+        NodeEvent<T> mEvent;
+
+        Node(@Nullable Node<T> parent, @Nullable String segment) {
+            mParent = parent;
+            mSegment = segment;
+        }
+
+        /**
+         * Must hold mLock.
+         */
+        @NonNull
+        NodeEvent<T> obtainEvent(@NonNull TopicLiveEvent<T> hub) {
+            if (mEvent == null) {
+                mEvent = new NodeEvent<>(hub, this);
+            }
+            return mEvent;
+        }
+    }
+
+    private static class NodeEvent<T> extends LiveEvent<TopicMessage<T>> {
+        @NonNull
+        private final TopicLiveEvent<T> mHub;
+        @NonNull
+        final Node<T> mNode;
+
+        NodeEvent(@NonNull TopicLiveEvent<T> hub, @NonNull Node<T> node) {
+            mHub = hub;
+            mNode = node;
+        }
+
+        @Override
+        public void removeListener(@NonNull Listener<? super TopicMessage<T>> listener) {
+            super.removeListener(listener);
+            if (!hasListeners()) {
+                mHub.releaseIfUnused(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.github.panpf.liveevent;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * A value published to a topic of a {@link TopicLiveEvent}.
+ *
+ * @param <T> The type of the value
+ */
+public final class TopicMessage<T> {
+    @NonNull
+    private final String mTopic;
+    @Nullable
+    private final T mValue;
+
+    TopicMessage(@NonNull String topic, @Nullable T value) {
+        mTopic = topic;
+        mValue = value;
+    }
+
+    /**
+     * Returns the topic the value was published to, such as {@code download/1234/progress}.
+     */
+    @NonNull
+    public String getTopic() {
+        return mTopic;
+    }
+
+    @Nullable
+    public T getValue() {
+        return mValue;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return mTopic + "=" + mValue;
+    }
+}
@@ -1 +1 @@
-include(":liveevent", "sample")
\ No newline at end of file
+include(":liveevent", ":liveevent-compiler", "sample")
\ No newline at end of file